@@ -0,0 +1,137 @@
+package apimining.clustering;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Complete-linkage agglomerative clustering using the nearest-neighbour chain
+ * algorithm, in O(n^2) time and no memory beyond the distance matrix.
+ * <p>
+ * Produces the same dendrogram as the O(n^3) merging of Weka's
+ * HierarchicalClusterer (with complete linkage), as complete linkage is
+ * reducible and so any order of merging mutual nearest neighbours yields the
+ * same merges. Ties in distance are broken as Weka does, i.e. of the closest
+ * pairs of clusters (i, j), i < j, by their lowest instance index, the pair
+ * with the lowest i and then the lowest j is merged first. Ordering pairs by
+ * (distance, i, j) keeps the linkage reducible, so the chain finds the same
+ * merges with ties as without. Distances are doubles, as in Weka, since
+ * rounding them to floats creates ties that change the merge order.
+ *
+ * @see <a href="https://arxiv.org/abs/1109.2378">Muellner, Modern hierarchical,
+ *      agglomerative clustering algorithms</a>
+ */
+public class CompleteLinkage {
+
+	/**
+	 * Cluster the instances of the given distance matrix. The matrix is
+	 * overwritten with the linkage distances between clusters.
+	 */
+	public static Dendrogram cluster(final DistanceMatrix distances) {
+		final int n = distances.size();
+		final int noMerges = Math.max(n - 1, 0);
+
+		// Active clusters (represented by their lowest instance index) as a
+		// linked list in index order
+		final int[] next = new int[n + 1];
+		final int[] prev = new int[n + 1];
+		for (int i = 0; i <= n; i++) {
+			next[i] = i + 1;
+			prev[i] = i - 1;
+		}
+		int first = 0;
+
+		// Merges in the order found, as pairs of cluster representatives
+		final int[] merged1 = new int[noMerges];
+		final int[] merged2 = new int[noMerges];
+		final double[] mergeHeights = new double[noMerges];
+
+		final int[] chain = new int[n];
+		int chainLength = 0;
+		for (int m = 0; m < noMerges; m++) {
+			if (chainLength == 0)
+				chain[chainLength++] = first;
+
+			// Grow the chain until its last two clusters are mutual nearest
+			// neighbours (preferring the lowest index on ties, which orders
+			// the pairs of a cluster by (distance, i, j))
+			int a, b;
+			double minDistance;
+			while (true) {
+				a = chain[chainLength - 1];
+				b = -1;
+				minDistance = Double.POSITIVE_INFINITY;
+				for (int k = first; k < n; k = next[k]) {
+					if (k == a)
+						continue;
+					final double distance = distances.get(a, k);
+					if (distance < minDistance || b == -1) {
+						minDistance = distance;
+						b = k;
+					}
+				}
+				if (chainLength > 1 && b == chain[chainLength - 2])
+					break;
+				chain[chainLength++] = b;
+			}
+			chainLength -= 2;
+
+			// Merge b into a, keeping the lower index as representative
+			if (b < a) {
+				final int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			merged1[m] = a;
+			merged2[m] = b;
+			mergeHeights[m] = minDistance;
+
+			for (int k = first; k < n; k = next[k]) {
+				if (k != a && k != b)
+					distances.set(a, k, Math.max(distances.get(a, k), distances.get(b, k)));
+			}
+			if (b == first)
+				first = next[b];
+			else
+				next[prev[b]] = next[b];
+			prev[next[b]] = prev[b];
+		}
+
+		return toDendrogram(n, merged1, merged2, mergeHeights);
+	}
+
+	/**
+	 * Sort merges by height and then by the representatives of the merged
+	 * clusters (i.e. in Weka's merge order) and label the merged clusters as
+	 * dendrogram nodes
+	 */
+	private static Dendrogram toDendrogram(final int n, final int[] merged1, final int[] merged2,
+			final double[] mergeHeights) {
+		final int noMerges = mergeHeights.length;
+		final Integer[] order = new Integer[noMerges];
+		for (int m = 0; m < noMerges; m++)
+			order[m] = m;
+		Arrays.sort(order, Comparator.<Integer> comparingDouble(m -> mergeHeights[m])
+				.thenComparingInt(m -> merged1[m]).thenComparingInt(m -> merged2[m]));
+
+		// Current dendrogram node of each cluster, by representative
+		final int[] nodes = new int[n];
+		for (int i = 0; i < n; i++)
+			nodes[i] = i;
+
+		final int[] left = new int[noMerges];
+		final int[] right = new int[noMerges];
+		final double[] heights = new double[noMerges];
+		for (int k = 0; k < noMerges; k++) {
+			final int m = order[k];
+			left[k] = nodes[merged1[m]];
+			right[k] = nodes[merged2[m]];
+			heights[k] = mergeHeights[m];
+			nodes[merged1[m]] = n + k;
+		}
+		return new Dendrogram(n, left, right, heights);
+	}
+
+	private CompleteLinkage() {
+	}
+
+}
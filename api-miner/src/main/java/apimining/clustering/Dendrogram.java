@@ -0,0 +1,155 @@
+package apimining.clustering;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Binary cluster tree over n instances, stored as its list of n-1 merges in
+ * order of increasing height. Leaves are nodes 0..n-1 and merge k creates node
+ * n+k, so the root is node 2n-2. As in Weka's HierarchicalClusterer, the left
+ * child of a merge is the one containing the instance with the lower index.
+ */
+public class Dendrogram {
+
+	private final int noLeaves;
+	private final int[] left;
+	private final int[] right;
+	private final double[] heights;
+
+	/**
+	 * @param noLeaves
+	 *            number of instances
+	 * @param left
+	 *            left child node of each merge
+	 * @param right
+	 *            right child node of each merge
+	 * @param heights
+	 *            height (linkage distance) of each merge
+	 */
+	public Dendrogram(final int noLeaves, final int[] left, final int[] right, final double[] heights) {
+		if (left.length != Math.max(noLeaves - 1, 0) || right.length != left.length
+				|| heights.length != left.length)
+			throw new IllegalArgumentException("A dendrogram of " + noLeaves + " leaves needs "
+					+ Math.max(noLeaves - 1, 0) + " merges");
+		this.noLeaves = noLeaves;
+		this.left = left;
+		this.right = right;
+		this.heights = heights;
+	}
+
+	/** Number of instances */
+	public int getNoLeaves() {
+		return noLeaves;
+	}
+
+	/** Number of merges, i.e. n-1 */
+	public int getNoMerges() {
+		return left.length;
+	}
+
+	public int getLeft(final int merge) {
+		return left[merge];
+	}
+
+	public int getRight(final int merge) {
+		return right[merge];
+	}
+
+	public double getHeight(final int merge) {
+		return heights[merge];
+	}
+
+	/** Height of the root, zero for fewer than two instances */
+	public double getTreeHeight() {
+		return heights.length == 0 ? 0. : heights[heights.length - 1];
+	}
+
+	/**
+	 * Cut the dendrogram at the given relative tree height threshold: the
+	 * clusters are the largest subtrees whose depth below the root exceeds
+	 * threshold * tree height. Clusters are numbered in pre-order (left
+	 * first) and instances in no cluster are assigned -1, exactly as
+	 * {@code NewickTreeParser.getClusters} does on the Newick form of the
+	 * dendrogram. Note that, as there, the tree height is the depth of the
+	 * parent of the leftmost leaf, so leaves may be deeper than it.
+	 *
+	 * @return cluster ID of each instance
+	 */
+	public int[] cut(final double relativeHeightThreshold) {
+		final int[] clusters = new int[noLeaves];
+		if (noLeaves == 0)
+			return clusters;
+
+		// The leftmost leaf is instance 0, whose parent is the first merge
+		// with it as left child
+		double leftmostParentHeight = getTreeHeight();
+		for (int m = 0; m < left.length; m++) {
+			if (left[m] == 0) {
+				leftmostParentHeight = heights[m];
+				break;
+			}
+		}
+		final double treeHeight = getTreeHeight();
+		final double depthThreshold = (treeHeight - leftmostParentHeight) * relativeHeightThreshold;
+
+		// Pre-order traversal with an explicit stack of (node, cluster)
+		final int[] nodeStack = new int[noLeaves];
+		final int[] clusterStack = new int[noLeaves];
+		int top = 0;
+		nodeStack[top] = 2 * noLeaves - 2;
+		clusterStack[top++] = -1;
+		int noClusters = 0;
+		while (top > 0) {
+			final int node = nodeStack[--top];
+			int cluster = clusterStack[top];
+			if (cluster == -1 && treeHeight - getNodeHeight(node) > depthThreshold)
+				cluster = noClusters++;
+			if (node < noLeaves) {
+				clusters[node] = cluster;
+			} else {
+				nodeStack[top] = right[node - noLeaves];
+				clusterStack[top++] = cluster;
+				nodeStack[top] = left[node - noLeaves];
+				clusterStack[top++] = cluster;
+			}
+		}
+		return clusters;
+	}
+
+	private double getNodeHeight(final int node) {
+		return node < noLeaves ? 0. : heights[node - noLeaves];
+	}
+
+	/**
+	 * Newick form of the dendrogram with heights as in Weka's
+	 * HierarchicalClusterer (i.e. without distance as branch length), e.g. for
+	 * the Weka HierarchyVisualizer.
+	 *
+	 * @param names
+	 *            name of each instance
+	 */
+	public String toNewick(final String[] names) {
+		if (noLeaves < 2)
+			return noLeaves == 0 ? "(no,clusters)" : names[0];
+		final DecimalFormat format = new DecimalFormat("#.#####", new DecimalFormatSymbols(Locale.US));
+		final StringBuilder sb = new StringBuilder();
+		appendNewick(2 * noLeaves - 2, names, format, sb);
+		return sb.toString();
+	}
+
+	private void appendNewick(final int node, final String[] names, final DecimalFormat format,
+			final StringBuilder sb) {
+		if (node < noLeaves) {
+			sb.append(names[node]);
+			return;
+		}
+		final int merge = node - noLeaves;
+		sb.append('(');
+		appendNewick(left[merge], names, format, sb);
+		sb.append(':').append(format.format(heights[merge] - getNodeHeight(left[merge]))).append(',');
+		appendNewick(right[merge], names, format, sb);
+		sb.append(':').append(format.format(heights[merge] - getNodeHeight(right[merge]))).append(')');
+	}
+
+}
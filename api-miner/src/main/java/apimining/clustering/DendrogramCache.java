@@ -0,0 +1,117 @@
+package apimining.clustering;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import apimining.io.AtomicFiles;
+import apimining.io.CallDataset;
+
+/**
+ * Persistent cache of clustering dendrograms, so that re-runs on the same
+ * dataset cut the cached dendrogram at any threshold instead of clustering
+ * from scratch.
+ * <p>
+ * Entries are keyed by the SHA-256 of the records already read from the ARFF
+ * file (see {@link CallDataset#hash()}) together with a description of the
+ * clustering (distance function and linkage). Each entry is the number of
+ * leaves followed by the merge list of the dendrogram, 16 bytes per merge, so
+ * the cluster assignments at a threshold are a linear time
+ * {@link Dendrogram#cut(double)} away.
+ */
+public class DendrogramCache {
+
+	/**
+	 * Version of the entry layout and of the clustering code, hashed into
+	 * every key so that a change to either misses all old entries
+	 */
+	private static final int FORMAT_VERSION = 2;
+
+	/** Clustering of a dataset into a dendrogram */
+	public interface Clusterer {
+		Dendrogram cluster() throws IOException;
+	}
+
+	private final File cacheFolder;
+
+	/**
+	 * @param cacheFolder
+	 *            folder holding the cache
+	 */
+	public DendrogramCache(final File cacheFolder) {
+		this.cacheFolder = cacheFolder;
+	}
+
+	/**
+	 * Get the dendrogram of the given dataset, clustering it only if it's not
+	 * cached
+	 *
+	 * @param clustering
+	 *            description of the clustering, e.g. "MAPO complete linkage"
+	 */
+	public Dendrogram get(final CallDataset dataset, final String clustering, final Clusterer clusterer)
+			throws IOException {
+		final File entry = getEntry(dataset.hash(), clustering);
+		Dendrogram dendrogram = entry.exists() ? read(entry) : null;
+		if (dendrogram == null || dendrogram.getNoLeaves() != dataset.size()) {
+			dendrogram = clusterer.cluster();
+			write(dendrogram, entry);
+		}
+		return dendrogram;
+	}
+
+	/** Get cache entry for the given dataset contents hash and clustering */
+	File getEntry(final HashCode contentsHash, final String clustering) {
+		final String hash = Hashing.sha256().newHasher().putInt(FORMAT_VERSION).putBytes(contentsHash.asBytes())
+				.putUnencodedChars(clustering).hash().toString();
+		return new File(cacheFolder, hash + ".dendrogram");
+	}
+
+	/**
+	 * Read the dendrogram of a cache entry, or null unless the entry holds
+	 * exactly one merge per leaf but the last and every merge joins two
+	 * distinct existing nodes that have not been merged before
+	 */
+	static Dendrogram read(final File entry) {
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+			final int noLeaves = in.readInt();
+			if (noLeaves < 0 || entry.length() != 4 + 16L * Math.max(noLeaves - 1, 0))
+				return null;
+			final int[] left = new int[Math.max(noLeaves - 1, 0)];
+			final int[] right = new int[left.length];
+			final double[] heights = new double[left.length];
+			final boolean[] merged = new boolean[noLeaves + left.length];
+			for (int m = 0; m < left.length; m++) {
+				left[m] = in.readInt();
+				right[m] = in.readInt();
+				heights[m] = in.readDouble();
+				if (left[m] < 0 || left[m] >= noLeaves + m || right[m] < 0 || right[m] >= noLeaves + m
+						|| left[m] == right[m] || merged[left[m]] || merged[right[m]])
+					return null;
+				merged[left[m]] = true;
+				merged[right[m]] = true;
+			}
+			return new Dendrogram(noLeaves, left, right, heights);
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/** Write the dendrogram as a cache entry */
+	static void write(final Dendrogram dendrogram, final File entry) throws IOException {
+		AtomicFiles.write(entry, out -> {
+			out.writeInt(dendrogram.getNoLeaves());
+			for (int m = 0; m < dendrogram.getNoMerges(); m++) {
+				out.writeInt(dendrogram.getLeft(m));
+				out.writeInt(dendrogram.getRight(m));
+				out.writeDouble(dendrogram.getHeight(m));
+			}
+		});
+	}
+
+}
@@ -0,0 +1,275 @@
+package apimining.clustering;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Condensed symmetric distance matrix: the upper triangle (without the
+ * diagonal) of an n x n matrix stored row by row as doubles, i.e. n(n-1)/2
+ * entries, in blocks so that n is not limited by the maximum array size. The
+ * blocks are either on the heap or in a memory-mapped temporary file, for
+ * matrices larger than the heap.
+ */
+public class DistanceMatrix {
+
+	/** Pairwise distance function between instances (must be thread safe) */
+	public interface Distance {
+		double distance(int i, int j);
+	}
+
+	/** Entries per block (2^24 doubles, 128MB) */
+	private static final int BLOCK_BITS = 24;
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	/** Rows/columns per tile when computing distances */
+	private static final int TILE_SIZE = 256;
+
+	/** Interval between progress reports */
+	private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+	private final int size;
+	private final DoubleBuffer[] blocks;
+	private final boolean mapped;
+
+	/** Create an n x n distance matrix on the heap with all distances zero */
+	public DistanceMatrix(final int size) {
+		this.size = size;
+		this.mapped = false;
+		final long noEntries = getNoEntries(size);
+		blocks = new DoubleBuffer[getNoBlocks(noEntries)];
+		for (int b = 0; b < blocks.length; b++)
+			blocks[b] = DoubleBuffer.wrap(new double[getBlockSize(noEntries, b)]);
+	}
+
+	/**
+	 * Create an n x n distance matrix memory-mapped to the given file (which
+	 * is deleted once mapped, so the matrix is freed when garbage collected)
+	 */
+	private DistanceMatrix(final int size, final File file) throws IOException {
+		this.size = size;
+		this.mapped = true;
+		final long noEntries = getNoEntries(size);
+		blocks = new DoubleBuffer[getNoBlocks(noEntries)];
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				final FileChannel channel = raf.getChannel()) {
+			raf.setLength(8 * noEntries);
+			for (int b = 0; b < blocks.length; b++)
+				blocks[b] = channel.map(MapMode.READ_WRITE, 8L * b * BLOCK_SIZE, 8L * getBlockSize(noEntries, b))
+						.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		} finally {
+			if (!file.delete())
+				file.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Create an n x n distance matrix on the heap if it takes at most half the
+	 * free heap, otherwise in a memory-mapped temporary file
+	 */
+	public static DistanceMatrix create(final int size) throws IOException {
+		final Runtime runtime = Runtime.getRuntime();
+		final long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		if (8 * getNoEntries(size) <= freeHeap / 2)
+			return new DistanceMatrix(size);
+		return createMapped(size);
+	}
+
+	/** Create an n x n distance matrix in a memory-mapped temporary file */
+	public static DistanceMatrix createMapped(final int size) throws IOException {
+		return new DistanceMatrix(size, File.createTempFile("distances", ".bin"));
+	}
+
+	/**
+	 * Compute all pairwise distances between the given number of instances
+	 * into a matrix on the heap, in parallel
+	 */
+	public static DistanceMatrix compute(final int size, final Distance distance) {
+		final DistanceMatrix matrix = new DistanceMatrix(size);
+		matrix.computeAll(distance, Runtime.getRuntime().availableProcessors(), null);
+		return matrix;
+	}
+
+	/**
+	 * Compute all pairwise distances between the given number of instances in
+	 * parallel, into a matrix on the heap or memory-mapped (see
+	 * {@link #create(int)}), reporting progress and memory use to the given
+	 * log
+	 */
+	public static DistanceMatrix compute(final int size, final Distance distance, final PrintStream log)
+			throws IOException {
+		final DistanceMatrix matrix = create(size);
+		matrix.computeAll(distance, Runtime.getRuntime().availableProcessors(), log);
+		return matrix;
+	}
+
+	/**
+	 * Compute all pairwise distances using the given number of threads. The
+	 * upper triangle is split into square tiles, so that the features of the
+	 * instances in a tile stay in cache, which are computed in parallel using
+	 * fork/join.
+	 *
+	 * @param log
+	 *            where to report progress and memory use (may be null)
+	 */
+	public void computeAll(final Distance distance, final int nThreads, final PrintStream log) {
+		final int noTileRows = (size + TILE_SIZE - 1) / TILE_SIZE;
+		final int noTiles = noTileRows * (noTileRows + 1) / 2;
+		final int[] tileRows = new int[noTiles];
+		final int[] tileCols = new int[noTiles];
+		int t = 0;
+		for (int row = 0; row < noTileRows; row++) {
+			for (int col = row; col < noTileRows; col++) {
+				tileRows[t] = row;
+				tileCols[t++] = col;
+			}
+		}
+
+		if (log != null) {
+			final Runtime runtime = Runtime.getRuntime();
+			log.printf("  Distance matrix: %d instances, %d distances, %.1f MB %s (heap used %.1f of %.1f MB)%n",
+					size, getNoEntries(size), 8. * getNoEntries(size) / (1 << 20), mapped ? "memory-mapped" : "on heap",
+					(double) (runtime.totalMemory() - runtime.freeMemory()) / (1 << 20),
+					(double) runtime.maxMemory() / (1 << 20));
+		}
+
+		final AtomicLong noComputed = new AtomicLong();
+		final ForkJoinPool pool = new ForkJoinPool(nThreads);
+		final long start = System.nanoTime();
+		try {
+			final ForkJoinTask<Void> task = pool
+					.submit(new TileTask(distance, tileRows, tileCols, 0, noTiles, noComputed));
+			while (true) {
+				try {
+					task.get(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+					break;
+				} catch (final TimeoutException e) {
+					if (log != null) {
+						final double seconds = (System.nanoTime() - start) / 1e9;
+						log.printf("  ... %.1f%% of distances computed (%.0f per second)%n",
+								100. * noComputed.get() / getNoEntries(size), noComputed.get() / seconds);
+					}
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		if (log != null)
+			log.printf("  Computed %d distances in %.1f s%n", getNoEntries(size), (System.nanoTime() - start) / 1e9);
+	}
+
+	/** Compute distances of a range of tiles, splitting it in half */
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Distance distance;
+		private final int[] tileRows;
+		private final int[] tileCols;
+		private final int from;
+		private final int to;
+		private final AtomicLong noComputed;
+
+		TileTask(final Distance distance, final int[] tileRows, final int[] tileCols, final int from, final int to,
+				final AtomicLong noComputed) {
+			this.distance = distance;
+			this.tileRows = tileRows;
+			this.tileCols = tileCols;
+			this.from = from;
+			this.to = to;
+			this.noComputed = noComputed;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new TileTask(distance, tileRows, tileCols, from, mid, noComputed),
+						new TileTask(distance, tileRows, tileCols, mid, to, noComputed));
+			} else if (to > from) {
+				noComputed.addAndGet(computeTile(distance, tileRows[from], tileCols[from]));
+			}
+		}
+	}
+
+	/** Compute the distances of the given tile, returning their number */
+	private long computeTile(final Distance distance, final int tileRow, final int tileCol) {
+		final int rowEnd = Math.min(size, (tileRow + 1) * TILE_SIZE);
+		final int colEnd = Math.min(size, (tileCol + 1) * TILE_SIZE);
+		long count = 0;
+		for (int i = tileRow * TILE_SIZE; i < rowEnd; i++) {
+			final int colStart = Math.max(i + 1, tileCol * TILE_SIZE);
+			long index = colStart < colEnd ? getIndex(i, colStart) : 0;
+			for (int j = colStart; j < colEnd; j++) {
+				blocks[(int) (index >>> BLOCK_BITS)].put((int) (index & BLOCK_MASK),
+						distance.distance(i, j));
+				index++;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/** Number of instances */
+	public int size() {
+		return size;
+	}
+
+	/** Whether the matrix is in a memory-mapped file rather than on the heap */
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	/** Distance between instances i and j (i != j) */
+	public double get(final int i, final int j) {
+		final long index = getIndex(i, j);
+		return blocks[(int) (index >>> BLOCK_BITS)].get((int) (index & BLOCK_MASK));
+	}
+
+	/** Set distance between instances i and j (i != j) */
+	public void set(final int i, final int j, final double distance) {
+		final long index = getIndex(i, j);
+		blocks[(int) (index >>> BLOCK_BITS)].put((int) (index & BLOCK_MASK), distance);
+	}
+
+	/** Index of entry (i, j) in the condensed upper triangle */
+	long getIndex(final int i, final int j) {
+		if (i < j)
+			return (long) i * (2 * size - i - 1) / 2 + (j - i - 1);
+		return (long) j * (2 * size - j - 1) / 2 + (i - j - 1);
+	}
+
+	/** Number of entries in the condensed upper triangle */
+	static long getNoEntries(final int size) {
+		return (long) size * (size - 1) / 2;
+	}
+
+	private static int getNoBlocks(final long noEntries) {
+		return (int) ((noEntries + BLOCK_SIZE - 1) >>> BLOCK_BITS);
+	}
+
+	private static int getBlockSize(final long noEntries, final int block) {
+		return (int) Math.min(BLOCK_SIZE, noEntries - ((long) block << BLOCK_BITS));
+	}
+
+}
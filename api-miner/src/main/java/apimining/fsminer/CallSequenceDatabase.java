@@ -0,0 +1,110 @@
+package apimining.fsminer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Sequence database of a cluster of API call sequences, with calls encoded as
+ * item IDs in order of first occurrence. Built once per cluster and then mined
+ * in memory at any number of support thresholds.
+ */
+public class CallSequenceDatabase {
+
+	/** Frequent sequence mining algorithm run on sequences of item IDs */
+	public interface Algorithm {
+		SortedMap<Sequence, Integer> mine(List<int[]> sequences, double minSupp) throws IOException;
+	}
+
+	private final BiMap<String, Integer> dictionary = HashBiMap.create();
+	private final List<int[]> sequences = new ArrayList<>();
+
+	/**
+	 * @param callSeqs
+	 *            space separated API call sequences
+	 */
+	public CallSequenceDatabase(final Collection<String> callSeqs) {
+		for (final String callSeq : callSeqs) {
+			final String[] calls = callSeq.split(" ");
+			final int[] items = new int[calls.length];
+			for (int k = 0; k < calls.length; k++) {
+				Integer id = dictionary.get(calls[k]);
+				if (id == null) {
+					id = dictionary.size();
+					dictionary.put(calls[k], id);
+				}
+				items[k] = id;
+			}
+			sequences.add(items);
+		}
+	}
+
+	/** Number of sequences */
+	public int size() {
+		return sequences.size();
+	}
+
+	/** Item IDs of each sequence */
+	public List<int[]> getSequences() {
+		return sequences;
+	}
+
+	/** API call of the given item ID */
+	public String getCall(final int item) {
+		return dictionary.inverse().get(item);
+	}
+
+	/** API calls of the given sequence of item IDs */
+	public List<String> decode(final Sequence seq) {
+		final List<String> calls = new ArrayList<>(seq.size());
+		for (final int item : seq)
+			calls.add(getCall(item));
+		return calls;
+	}
+
+	/** Parse comma separated minimum support thresholds */
+	public static List<Double> parseSupports(final String supports) {
+		final List<Double> minSupps = new ArrayList<>();
+		for (final String minSupp : supports.split(","))
+			minSupps.add(Double.parseDouble(minSupp.trim()));
+		return minSupps;
+	}
+
+	/**
+	 * Mine all databases at all the given support thresholds in parallel
+	 *
+	 * @return frequent sequences of each database, by support threshold
+	 */
+	public static List<List<SortedMap<Sequence, Integer>>> mine(final List<CallSequenceDatabase> databases,
+			final List<Double> supports, final Algorithm algorithm) throws IOException {
+		if (databases.isEmpty())
+			return Collections.nCopies(supports.size(), Collections.<SortedMap<Sequence, Integer>> emptyList());
+
+		final int noDatabases = databases.size();
+		try {
+			final List<SortedMap<Sequence, Integer>> freqSeqs = IntStream.range(0, supports.size() * noDatabases)
+					.parallel().mapToObj(task -> {
+						try {
+							return algorithm.mine(databases.get(task % noDatabases).getSequences(),
+									supports.get(task / noDatabases));
+						} catch (final IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}).collect(Collectors.toList());
+			return Lists.partition(freqSeqs, noDatabases);
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package apimining.fsminer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.SortedMap;
@@ -44,6 +45,19 @@ public class FrequentSequenceMiner {
 		return toMap(patterns);
 	}
 
+	/**
+	 * Run PrefixSpan algorithm in memory on the given sequences of item IDs
+	 *
+	 * @return frequent sequences sorted by support
+	 */
+	public static SortedMap<Sequence, Integer> mineFrequentSequencesPrefixSpan(final List<int[]> sequences,
+			final double minSupp) throws IOException {
+
+		final AlgoPrefixSpan algo = new AlgoPrefixSpan();
+		algo.setShowSequenceIdentifiers(false);
+		return toMap(algo.runAlgorithm(toSequenceDatabase(sequences), minSupp, null));
+	}
+
 	/** Run SPADE algorithm */
 	public static SortedMap<Sequence, Integer> mineFrequentSequencesSPADE(final String dataset, final String saveFile,
 			final double minSupp) throws IOException {
@@ -99,6 +113,38 @@ public class FrequentSequenceMiner {
 		return toMap(patterns);
 	}
 
+	/**
+	 * Run BIDE algorithm in memory on the given sequences of item IDs
+	 *
+	 * @return frequent closed sequences sorted by support
+	 */
+	public static SortedMap<Sequence, Integer> mineFrequentClosedSequencesBIDE(final List<int[]> sequences,
+			final double minSupp) throws IOException {
+
+		// Convert to absolute support (rounding down)
+		final int absMinSupp = (int) (sequences.size() * minSupp);
+
+		final AlgoBIDEPlus algo = new AlgoBIDEPlus();
+		algo.setShowSequenceIdentifiers(false);
+		return toMap(algo.runAlgorithm(toSequenceDatabase(sequences), null, absMinSupp));
+	}
+
+	/**
+	 * Build an SPMF sequence database of singleton itemsets from the given
+	 * sequences of item IDs
+	 */
+	public static SequenceDatabase toSequenceDatabase(final List<int[]> sequences) {
+		final SequenceDatabase sequenceDatabase = new SequenceDatabase();
+		for (int id = 0; id < sequences.size(); id++) {
+			final ca.pfv.spmf.input.sequence_database_list_integers.Sequence sequence = new ca.pfv.spmf.input.sequence_database_list_integers.Sequence(
+					id);
+			for (final int item : sequences.get(id))
+				sequence.addItemset(Collections.singletonList(item));
+			sequenceDatabase.addSequence(sequence);
+		}
+		return sequenceDatabase;
+	}
+
 	/** Convert frequent sequences to sorted Map<Sequence, Integer> */
 	public static SortedMap<Sequence, Integer> toMap(final SequentialPatterns patterns) {
 		if (patterns == null) {
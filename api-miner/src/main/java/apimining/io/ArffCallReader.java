@@ -0,0 +1,483 @@
+package apimining.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming reader for ARFF files of API calls. Attributes are fqCaller and
+ * fqCalls as space separated string of API calls.
+ * <p>
+ * The file is memory-mapped and split into line-aligned chunks which are
+ * parsed in parallel straight from the mapped bytes, interning callers and
+ * calls without creating intermediate Strings. Chunks are merged in file
+ * order so call IDs are assigned in order of first appearance, exactly as a
+ * sequential read would.
+ * <p>
+ * Compressed files (see {@link CompressedFiles}) are decompressed as a stream
+ * and the decompressed blocks handed to the parsing threads as they arrive.
+ */
+public class ArffCallReader {
+
+	/** Minimum and maximum size of a memory-mapped chunk */
+	private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+	private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/** Window size used when scanning for line boundaries */
+	private static final int SCAN_WINDOW = 64 * 1024;
+
+	/** Size of the decompressed blocks parsed when streaming */
+	private static final int STREAM_BLOCK_SIZE = 4 * 1024 * 1024;
+
+	/** Read ARFF file using all available processors */
+	public static CallDataset read(final File arffFile) throws IOException {
+		return read(arffFile, Runtime.getRuntime().availableProcessors());
+	}
+
+	/** Read ARFF file using the given number of parsing threads */
+	public static CallDataset read(final File arffFile, final int nThreads) throws IOException {
+
+		if (CompressedFiles.isCompressed(arffFile)) {
+			try (final InputStream in = CompressedFiles.newInputStream(arffFile)) {
+				return read(in, nThreads);
+			}
+		}
+
+		try (final FileChannel channel = FileChannel.open(arffFile.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final long dataStart = findDataStart(channel, size);
+
+			// Split data section into line-aligned chunks
+			final long dataSize = size - dataStart;
+			final long noChunks = Math.max(Math.min(nThreads, dataSize / MIN_CHUNK_SIZE + 1),
+					(dataSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+			final List<long[]> chunks = new ArrayList<>();
+			long start = dataStart;
+			for (long i = 1; i <= noChunks; i++) {
+				final long end = i == noChunks ? size
+						: nextLineStart(channel, dataStart + dataSize * i / noChunks, size);
+				if (end > start) {
+					chunks.add(new long[] { start, end });
+					start = end;
+				}
+			}
+
+			// Parse chunks in parallel
+			final List<Chunk> parsed = new ArrayList<>();
+			if (nThreads <= 1 || chunks.size() <= 1) {
+				for (final long[] chunk : chunks)
+					parsed.add(parseChunk(channel, chunk[0], chunk[1]));
+			} else {
+				final ExecutorService pool = Executors.newFixedThreadPool(Math.min(nThreads, chunks.size()));
+				try {
+					final List<Future<Chunk>> futures = new ArrayList<>();
+					for (final long[] chunk : chunks)
+						futures.add(pool.submit(() -> parseChunk(channel, chunk[0], chunk[1])));
+					for (final Future<Chunk> future : futures)
+						parsed.add(future.get());
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading " + arffFile, e);
+				} catch (final ExecutionException e) {
+					throw new IOException("Error reading " + arffFile, e.getCause());
+				} finally {
+					pool.shutdownNow();
+				}
+			}
+
+			return merge(parsed);
+		}
+	}
+
+	/**
+	 * Read ARFF data from the given (decompressed) stream. The stream is read
+	 * in line-aligned blocks which are parsed in parallel while the next block
+	 * is being read.
+	 */
+	public static CallDataset read(final InputStream in, final int nThreads) throws IOException {
+
+		final ExecutorService pool = nThreads > 1 ? Executors.newFixedThreadPool(nThreads) : null;
+		final List<Future<Chunk>> futures = new ArrayList<>();
+		final List<Chunk> parsed = new ArrayList<>();
+		try {
+			byte[] block = new byte[STREAM_BLOCK_SIZE];
+			int len = 0;
+			boolean inData = false;
+			boolean eof = false;
+			while (!eof) {
+
+				// Fill block
+				while (len < block.length) {
+					final int read = in.read(block, len, block.length - len);
+					if (read < 0) {
+						eof = true;
+						break;
+					}
+					len += read;
+				}
+
+				// Split off trailing incomplete line
+				int end = len;
+				if (!eof) {
+					while (end > 0 && block[end - 1] != '\n')
+						end--;
+					if (end == 0) { // line longer than block
+						block = Arrays.copyOf(block, block.length * 2);
+						continue;
+					}
+				}
+
+				int start = 0;
+				if (!inData) {
+					final ByteBuffer buf = ByteBuffer.wrap(block);
+					final int dataStart = findDataStart(buf, 0, end);
+					if (dataStart < 0) { // still in header, drop complete lines
+						System.arraycopy(block, end, block, 0, len - end);
+						len -= end;
+						continue;
+					}
+					inData = true;
+					start = Math.min(dataStart, end);
+				}
+
+				// Parse complete lines, carrying the rest over to a new block
+				final byte[] data = block;
+				final int from = start;
+				final int to = end;
+				if (pool == null) {
+					parsed.add(parseBlock(data, from, to));
+				} else {
+					futures.add(pool.submit(() -> parseBlock(data, from, to)));
+					// Bound the number of blocks in flight
+					while (futures.size() - parsed.size() > 2 * nThreads)
+						parsed.add(futures.get(parsed.size()).get());
+				}
+				if (!eof) {
+					block = new byte[Math.max(STREAM_BLOCK_SIZE, len - end)];
+					System.arraycopy(data, end, block, 0, len - end);
+					len -= end;
+				}
+			}
+
+			if (pool != null) {
+				while (parsed.size() < futures.size())
+					parsed.add(futures.get(parsed.size()).get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading ARFF stream", e);
+		} catch (final ExecutionException e) {
+			throw new IOException("Error reading ARFF stream", e.getCause());
+		} finally {
+			if (pool != null)
+				pool.shutdownNow();
+		}
+
+		return merge(parsed);
+	}
+
+	/** Parse ARFF data lines in the given heap buffer (for testing/streams) */
+	public static CallDataset read(final ByteBuffer buf) {
+		final int dataStart = findDataStart(buf, 0, buf.limit());
+		final Chunk chunk = new Chunk();
+		if (dataStart >= 0)
+			chunk.parse(buf, dataStart, buf.limit());
+		else
+			chunk.offsets.add(0);
+		final List<Chunk> chunks = new ArrayList<>();
+		chunks.add(chunk);
+		return merge(chunks);
+	}
+
+	private static Chunk parseBlock(final byte[] block, final int from, final int to) {
+		final Chunk chunk = new Chunk();
+		chunk.parse(ByteBuffer.wrap(block), from, to);
+		return chunk;
+	}
+
+	private static Chunk parseChunk(final FileChannel channel, final long start, final long end) throws IOException {
+		final ByteBuffer buf = channel.map(MapMode.READ_ONLY, start, end - start);
+		final Chunk chunk = new Chunk();
+		chunk.parse(buf, 0, buf.limit());
+		return chunk;
+	}
+
+	/** Concatenate chunks in order, remapping to global dictionaries */
+	private static CallDataset merge(final List<Chunk> chunks) {
+		if (chunks.size() == 1) {
+			final Chunk chunk = chunks.get(0);
+			return new CallDataset(chunk.callerDictionary, chunk.callDictionary, chunk.callers.toArray(),
+					chunk.offsets.toArray(), chunk.calls.toArray());
+		}
+
+		final ByteDictionary callerDictionary = new ByteDictionary();
+		final ByteDictionary callDictionary = new ByteDictionary();
+		int noRecords = 0;
+		int noCalls = 0;
+		for (final Chunk chunk : chunks) {
+			noRecords += chunk.callers.size;
+			noCalls += chunk.calls.size;
+		}
+
+		final int[] callers = new int[noRecords];
+		final int[] offsets = new int[noRecords + 1];
+		final int[] calls = new int[noCalls];
+		int record = 0;
+		int call = 0;
+		for (final Chunk chunk : chunks) {
+			final int[] callerMap = callerDictionary.internAll(chunk.callerDictionary);
+			final int[] callMap = callDictionary.internAll(chunk.callDictionary);
+			for (int i = 0; i < chunk.callers.size; i++) {
+				callers[record] = callerMap[chunk.callers.data[i]];
+				offsets[record] = call + chunk.offsets.data[i];
+				record++;
+			}
+			for (int i = 0; i < chunk.calls.size; i++)
+				calls[call + i] = callMap[chunk.calls.data[i]];
+			call += chunk.calls.size;
+		}
+		offsets[noRecords] = call;
+
+		return new CallDataset(callerDictionary, callDictionary, callers, offsets, calls);
+	}
+
+	/** Find the offset of the first line after the @data line */
+	private static long findDataStart(final FileChannel channel, final long size) throws IOException {
+		long pos = 0;
+		while (pos < size) {
+			final int len = (int) Math.min(size - pos, MAX_CHUNK_SIZE);
+			final ByteBuffer buf = channel.map(MapMode.READ_ONLY, pos, len);
+			final int start = findDataStart(buf, 0, len);
+			if (start >= 0)
+				return pos + start;
+			if (pos + len == size)
+				break;
+			// Continue from the last complete line in the window
+			int last = len - 1;
+			while (last > 0 && buf.get(last - 1) != '\n')
+				last--;
+			pos += last > 0 ? last : len;
+		}
+		return size;
+	}
+
+	/**
+	 * Find the offset of the first line after the @data line in [from, to)
+	 *
+	 * @return the offset or -1 if not found
+	 */
+	private static int findDataStart(final ByteBuffer buf, final int from, final int to) {
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = lineStart;
+			while (lineEnd < to && buf.get(lineEnd) != '\n')
+				lineEnd++;
+			if (lineEnd == to)
+				break; // incomplete line
+			int pos = lineStart;
+			while (pos < lineEnd && isWhitespace(buf.get(pos)))
+				pos++;
+			if (startsWithIgnoreCase(buf, pos, lineEnd, "@data"))
+				return lineEnd + 1;
+			lineStart = lineEnd + 1;
+		}
+		return -1;
+	}
+
+	/** Offset of the start of the line following the given position */
+	private static long nextLineStart(final FileChannel channel, final long pos, final long size)
+			throws IOException {
+		long start = Math.max(pos - 1, 0);
+		while (start < size) {
+			final int len = (int) Math.min(size - start, SCAN_WINDOW);
+			final ByteBuffer buf = channel.map(MapMode.READ_ONLY, start, len);
+			for (int i = 0; i < len; i++) {
+				if (buf.get(i) == '\n')
+					return start + i + 1;
+			}
+			start += len;
+		}
+		return size;
+	}
+
+	private static boolean startsWithIgnoreCase(final ByteBuffer buf, final int from, final int to,
+			final String prefix) {
+		if (to - from < prefix.length())
+			return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (Character.toLowerCase((char) buf.get(from + i)) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isWhitespace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/** Parsed records of a chunk with chunk-local dictionaries */
+	static class Chunk {
+
+		final ByteDictionary callerDictionary = new ByteDictionary();
+		final ByteDictionary callDictionary = new ByteDictionary();
+		final IntList callers = new IntList();
+		final IntList offsets = new IntList();
+		final IntList calls = new IntList();
+
+		/** Scratch space for unescaped quoted values */
+		private byte[] scratch = new byte[256];
+
+		/** Bounds of the last parsed value */
+		private int valueStart;
+		private int valueEnd;
+		private boolean valueEscaped;
+
+		/** Parse all lines in [from, to) */
+		void parse(final ByteBuffer buf, final int from, final int to) {
+			int lineStart = from;
+			while (lineStart < to) {
+				int lineEnd = lineStart;
+				while (lineEnd < to && buf.get(lineEnd) != '\n')
+					lineEnd++;
+				parseLine(buf, lineStart, lineEnd);
+				lineStart = lineEnd + 1;
+			}
+			offsets.add(calls.size);
+		}
+
+		private void parseLine(final ByteBuffer buf, final int from, final int to) {
+			int pos = from;
+			while (pos < to && isWhitespace(buf.get(pos)))
+				pos++;
+			if (pos == to || buf.get(pos) == '%') // empty line or comment
+				return;
+
+			// Caller
+			pos = parseValue(buf, pos, to);
+			if (valueEscaped) {
+				final int len = unescape(buf, valueStart, valueEnd);
+				callers.add(callerDictionary.intern(scratch, 0, len));
+			} else {
+				callers.add(callerDictionary.intern(buf, valueStart, valueEnd));
+			}
+			offsets.add(calls.size);
+
+			// Calls
+			if (pos < to && buf.get(pos) == ',') {
+				parseValue(buf, pos + 1, to);
+				if (valueStart == valueEnd - 1 && buf.get(valueStart) == '?' && !valueEscaped)
+					return; // missing value
+				if (valueEscaped) {
+					final int len = unescape(buf, valueStart, valueEnd);
+					tokenize(ByteBuffer.wrap(scratch), 0, len);
+				} else {
+					tokenize(buf, valueStart, valueEnd);
+				}
+			}
+		}
+
+		/** Split space separated calls and intern them */
+		private void tokenize(final ByteBuffer buf, final int from, final int to) {
+			int start = from;
+			while (start < to) {
+				while (start < to && isWhitespace(buf.get(start)))
+					start++;
+				int end = start;
+				while (end < to && !isWhitespace(buf.get(end)))
+					end++;
+				if (end > start)
+					calls.add(callDictionary.intern(buf, start, end));
+				start = end;
+			}
+		}
+
+		/**
+		 * Parse a (possibly quoted) value starting at pos
+		 *
+		 * @return position after the value (at the separator or end of line)
+		 */
+		private int parseValue(final ByteBuffer buf, int pos, final int to) {
+			while (pos < to && isWhitespace(buf.get(pos)))
+				pos++;
+			valueEscaped = false;
+			if (pos < to && (buf.get(pos) == '\'' || buf.get(pos) == '"')) {
+				final byte quote = buf.get(pos);
+				valueStart = ++pos;
+				while (pos < to && buf.get(pos) != quote) {
+					if (buf.get(pos) == '\\') {
+						valueEscaped = true;
+						pos++;
+					}
+					pos++;
+				}
+				valueEnd = Math.min(pos, to);
+				pos = Math.min(pos + 1, to);
+				while (pos < to && buf.get(pos) != ',')
+					pos++;
+			} else {
+				valueStart = pos;
+				while (pos < to && buf.get(pos) != ',')
+					pos++;
+				valueEnd = pos;
+				while (valueEnd > valueStart && isWhitespace(buf.get(valueEnd - 1)))
+					valueEnd--;
+			}
+			return pos;
+		}
+
+		/** Unescape backslash escapes in [from, to) into scratch */
+		private int unescape(final ByteBuffer buf, final int from, final int to) {
+			if (scratch.length < to - from)
+				scratch = new byte[Math.max(scratch.length * 2, to - from)];
+			int len = 0;
+			for (int i = from; i < to; i++) {
+				byte b = buf.get(i);
+				if (b == '\\' && i + 1 < to) {
+					b = buf.get(++i);
+					if (b == 'n')
+						b = '\n';
+					else if (b == 'r')
+						b = '\r';
+					else if (b == 't')
+						b = '\t';
+				}
+				scratch[len++] = b;
+			}
+			return len;
+		}
+
+	}
+
+	/** Minimal growable int array */
+	static class IntList {
+
+		int[] data = new int[1024];
+		int size = 0;
+
+		void add(final int value) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+
+	}
+
+	private ArffCallReader() {
+	}
+
+}
@@ -0,0 +1,44 @@
+package apimining.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Atomic writes of files that concurrent writers (threads or processes) may
+ * race on, e.g. cache entries. The contents are written to a temporary file
+ * next to the target which is then moved into place, so readers see either
+ * no file or a complete one.
+ */
+public class AtomicFiles {
+
+	/** Writer of the file contents */
+	public interface Contents {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/** Atomically write the given file, creating its parent folders */
+	public static void write(final File file, final Contents contents) throws IOException {
+		file.getParentFile().mkdirs();
+		final File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		try {
+			try (final DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				contents.write(out);
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			tmp.delete();
+		}
+	}
+
+}
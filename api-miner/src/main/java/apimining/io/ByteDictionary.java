@@ -0,0 +1,175 @@
+package apimining.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.common.hash.Hasher;
+
+/**
+ * Dictionary interning UTF-8 byte sequences to consecutive integer IDs in
+ * order of first appearance. Keys are stored in a single byte arena so no
+ * String is created unless explicitly requested via {@link #get(int)}.
+ * <p>
+ * Not thread safe, use one dictionary per parsing thread and
+ * {@link #internAll(ByteDictionary)} to merge.
+ */
+public class ByteDictionary {
+
+	private static final int EMPTY = -1;
+
+	/** Concatenated key bytes */
+	private byte[] arena = new byte[1 << 16];
+	private int arenaSize = 0;
+
+	/** Start offset and hash of each key (indexed by ID) */
+	private int[] offsets = new int[1 << 10];
+	private int[] hashes = new int[1 << 10];
+	private int size = 0;
+
+	/** Open addressing table of IDs */
+	private int[] table = newTable(1 << 11);
+
+	/** Materialised Strings (lazily filled) */
+	private String[] strings = new String[0];
+
+	/** Intern the key given by buffer bytes [from, to) */
+	public int intern(final ByteBuffer buf, final int from, final int to) {
+		final int hash = hash(buf, from, to);
+		final int mask = table.length - 1;
+		int slot = hash & mask;
+		for (int id; (id = table[slot]) != EMPTY; slot = (slot + 1) & mask) {
+			if (hashes[id] == hash && equals(id, buf, from, to))
+				return id;
+		}
+		return add(slot, hash, buf, from, to);
+	}
+
+	/** Intern the key given by array bytes [from, to) */
+	public int intern(final byte[] bytes, final int from, final int to) {
+		return intern(ByteBuffer.wrap(bytes), from, to);
+	}
+
+	/** Intern the given String */
+	public int intern(final String key) {
+		final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		return intern(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Intern all keys of the given dictionary in ID order
+	 *
+	 * @return array mapping IDs of the given dictionary to IDs in this one
+	 */
+	public int[] internAll(final ByteDictionary other) {
+		final int[] mapping = new int[other.size];
+		final ByteBuffer otherArena = ByteBuffer.wrap(other.arena);
+		for (int id = 0; id < other.size; id++)
+			mapping[id] = intern(otherArena, other.offsets[id], other.end(id));
+		return mapping;
+	}
+
+	/** Get the ID of the given String or -1 if not present */
+	public int getID(final String key) {
+		final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer buf = ByteBuffer.wrap(bytes);
+		final int hash = hash(buf, 0, bytes.length);
+		final int mask = table.length - 1;
+		for (int slot = hash & mask, id; (id = table[slot]) != EMPTY; slot = (slot + 1) & mask) {
+			if (hashes[id] == hash && equals(id, buf, 0, bytes.length))
+				return id;
+		}
+		return EMPTY;
+	}
+
+	/** Get the String for the given ID */
+	public String get(final int id) {
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException("No such ID: " + id);
+		if (strings.length <= id)
+			strings = Arrays.copyOf(strings, offsets.length);
+		String string = strings[id];
+		if (string == null) {
+			string = new String(arena, offsets[id], end(id) - offsets[id], StandardCharsets.UTF_8);
+			strings[id] = string;
+		}
+		return string;
+	}
+
+	/** Put the keys, in ID order, into the given hasher */
+	public void hash(final Hasher hasher) {
+		hasher.putInt(size);
+		for (int id = 0; id < size; id++) {
+			hasher.putInt(end(id) - offsets[id]);
+			hasher.putBytes(arena, offsets[id], end(id) - offsets[id]);
+		}
+	}
+
+	/** Number of keys in this dictionary */
+	public int size() {
+		return size;
+	}
+
+	private int end(final int id) {
+		return id + 1 < size ? offsets[id + 1] : arenaSize;
+	}
+
+	private boolean equals(final int id, final ByteBuffer buf, final int from, final int to) {
+		final int start = offsets[id];
+		if (end(id) - start != to - from)
+			return false;
+		for (int i = 0; i < to - from; i++) {
+			if (arena[start + i] != buf.get(from + i))
+				return false;
+		}
+		return true;
+	}
+
+	private int add(final int slot, final int hash, final ByteBuffer buf, final int from, final int to) {
+		final int len = to - from;
+		if (arenaSize + len > arena.length)
+			arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + len));
+		for (int i = 0; i < len; i++)
+			arena[arenaSize + i] = buf.get(from + i);
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		final int id = size++;
+		offsets[id] = arenaSize;
+		hashes[id] = hash;
+		arenaSize += len;
+		table[slot] = id;
+		if (size * 2 > table.length)
+			rehash();
+		return id;
+	}
+
+	private void rehash() {
+		table = newTable(table.length * 2);
+		final int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (table[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			table[slot] = id;
+		}
+	}
+
+	private static int[] newTable(final int capacity) {
+		final int[] table = new int[capacity];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}
+
+	/** FNV-1a hash of the given bytes */
+	private static int hash(final ByteBuffer buf, final int from, final int to) {
+		int hash = 0x811c9dc5;
+		for (int i = from; i < to; i++) {
+			hash ^= buf.get(i) & 0xff;
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+}
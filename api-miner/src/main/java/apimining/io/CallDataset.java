@@ -0,0 +1,103 @@
+package apimining.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Dataset of API call records, i.e. (fqCaller, fqCalls) pairs, with callers
+ * and calls interned to integer IDs. The records are stored in compressed row
+ * format: the calls of record i are {@code calls[offsets[i]..offsets[i+1])}.
+ */
+public class CallDataset {
+
+	private final ByteDictionary callerDictionary;
+	private final ByteDictionary callDictionary;
+
+	private final int[] callers;
+	private final int[] offsets;
+	private final int[] calls;
+
+	CallDataset(final ByteDictionary callerDictionary, final ByteDictionary callDictionary, final int[] callers,
+			final int[] offsets, final int[] calls) {
+		this.callerDictionary = callerDictionary;
+		this.callDictionary = callDictionary;
+		this.callers = callers;
+		this.offsets = offsets;
+		this.calls = calls;
+	}
+
+	/** Number of records in this dataset */
+	public int size() {
+		return callers.length;
+	}
+
+	/** ID of the caller of the given record */
+	public int getCaller(final int record) {
+		return callers[record];
+	}
+
+	/** Fully qualified name of the caller of the given record */
+	public String getCallerName(final int record) {
+		return callerDictionary.get(callers[record]);
+	}
+
+	/** Number of calls in the given record */
+	public int getNoCalls(final int record) {
+		return offsets[record + 1] - offsets[record];
+	}
+
+	/** ID of the given call in the given record */
+	public int getCall(final int record, final int call) {
+		return calls[offsets[record] + call];
+	}
+
+	/** Copy of the call IDs of the given record */
+	public int[] getCalls(final int record) {
+		return Arrays.copyOfRange(calls, offsets[record], offsets[record + 1]);
+	}
+
+	/** Fully qualified names of the calls of the given record */
+	public List<String> getCallNames(final int record) {
+		final List<String> names = new ArrayList<>(getNoCalls(record));
+		for (int i = offsets[record]; i < offsets[record + 1]; i++)
+			names.add(callDictionary.get(calls[i]));
+		return names;
+	}
+
+	/** Fully qualified name of the given call ID */
+	public String getCallName(final int callID) {
+		return callDictionary.get(callID);
+	}
+
+	/**
+	 * SHA-256 of the records of this dataset, i.e. of the parsed data lines
+	 * independent of the file header, compression and parsing threads
+	 */
+	public HashCode hash() {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		callerDictionary.hash(hasher);
+		callDictionary.hash(hasher);
+		hasher.putInt(callers.length);
+		for (int i = 0; i < callers.length; i++)
+			hasher.putInt(callers[i]).putInt(offsets[i + 1] - offsets[i]);
+		for (final int call : calls)
+			hasher.putInt(call);
+		return hasher.hash();
+	}
+
+	/** Dictionary of caller names (IDs in order of first appearance) */
+	public ByteDictionary getCallerDictionary() {
+		return callerDictionary;
+	}
+
+	/** Dictionary of call names (IDs in order of first appearance) */
+	public ByteDictionary getCallDictionary() {
+		return callDictionary;
+	}
+
+}
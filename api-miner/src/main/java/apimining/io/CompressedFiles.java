@@ -0,0 +1,146 @@
+package apimining.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Transparent (de)compression of dataset files chosen by file extension:
+ * {@code .gz} files are gzip compressed, {@code .zst} files are zstd
+ * compressed and all other files are read/written as is. All streams are
+ * buffered in large blocks.
+ */
+public class CompressedFiles {
+
+	/** Block size for buffered file I/O */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Default zstd compression level (fast, near gzip ratio) */
+	private static final int ZSTD_LEVEL = 3;
+
+	public enum Compression {
+		NONE(""), GZIP(".gz"), ZSTD(".zst");
+
+		private final String extension;
+
+		private Compression(final String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		/** Compression of the given file based on its extension */
+		public static Compression forFile(final File file) {
+			final String name = file.getName().toLowerCase();
+			if (name.endsWith(GZIP.extension))
+				return GZIP;
+			if (name.endsWith(ZSTD.extension))
+				return ZSTD;
+			return NONE;
+		}
+
+		/** Compression with the given name (none, gz/gzip or zst/zstd) */
+		public static Compression forName(final String name) {
+			switch (name.toLowerCase()) {
+			case "":
+			case "none":
+				return NONE;
+			case "gz":
+			case "gzip":
+				return GZIP;
+			case "zst":
+			case "zstd":
+				return ZSTD;
+			default:
+				throw new IllegalArgumentException("Unknown compression: " + name);
+			}
+		}
+	}
+
+	/** Whether the given file is compressed (based on its extension) */
+	public static boolean isCompressed(final File file) {
+		return Compression.forFile(file) != Compression.NONE;
+	}
+
+	/**
+	 * Resolve the given file to itself or, if it does not exist, its first
+	 * existing compressed variant (i.e. file.gz or file.zst).
+	 */
+	public static File resolve(final File file) {
+		if (file.exists())
+			return file;
+		for (final Compression compression : Compression.values()) {
+			final File compressed = new File(file.getPath() + compression.getExtension());
+			if (compressed.exists())
+				return compressed;
+		}
+		return file;
+	}
+
+	/** Open a buffered (decompressing) input stream for the given file */
+	public static InputStream newInputStream(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			switch (Compression.forFile(file)) {
+			case GZIP:
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case ZSTD:
+				return new BufferedInputStream(new ZstdInputStream(in), BUFFER_SIZE);
+			default:
+				return new BufferedInputStream(in, BUFFER_SIZE);
+			}
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/** Open a buffered (compressing) output stream for the given file */
+	public static OutputStream newOutputStream(final File file) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			switch (Compression.forFile(file)) {
+			case GZIP:
+				return new GZIPOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+			case ZSTD:
+				return new BufferedOutputStream(new ZstdOutputStream(out, ZSTD_LEVEL), BUFFER_SIZE);
+			default:
+				return new BufferedOutputStream(out, BUFFER_SIZE);
+			}
+		} catch (final IOException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/** Open a buffered UTF-8 reader for the given (possibly compressed) file */
+	public static BufferedReader newReader(final File file) throws IOException {
+		return new BufferedReader(new InputStreamReader(newInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/** Open a UTF-8 writer for the given (possibly compressed) file */
+	public static PrintWriter newWriter(final File file) throws IOException {
+		return new PrintWriter(new OutputStreamWriter(newOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	private CompressedFiles() {
+	}
+
+}
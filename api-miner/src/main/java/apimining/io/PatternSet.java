@@ -0,0 +1,297 @@
+package apimining.io;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import apimining.io.ArffCallReader.IntList;
+import apimining.io.CompressedFiles.Compression;
+
+/**
+ * Mined API call patterns in a compact binary, versioned format. Each pattern
+ * holds the ID of its cluster (0 if the miner does not cluster), its calls as
+ * IDs into a shared dictionary, its probability and interestingness (NaN if
+ * not computed by the miner) and its support (-1 if unknown). Patterns are
+ * stored in the order they were added, i.e. in the order of the miner's text
+ * output.
+ * <p>
+ * The file is laid out in fixed-width columns so that an uncompressed file is
+ * memory-mapped and read in place: only the header is parsed on load and call
+ * names are decoded on first access.
+ *
+ * <pre>
+ * int     magic, version, miner, noCalls, noPatterns, noItems
+ * int     callOffsets[noCalls + 1]  (into the UTF-8 call names)
+ * byte    callNames[], padded to a multiple of 8 bytes
+ * int     clusters[noPatterns]
+ * int     itemOffsets[noPatterns + 1]
+ * int     items[noItems], padded to a multiple of 8 bytes
+ * double  probabilities[noPatterns]
+ * double  interestingness[noPatterns]
+ * long    supports[noPatterns]
+ * </pre>
+ */
+public class PatternSet {
+
+	/** File magic ("APIP") and current format version */
+	public static final int MAGIC = 0x41504950;
+	public static final int VERSION = 1;
+
+	/** Extension of binary pattern files */
+	public static final String EXTENSION = ".pat";
+
+	private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+	/** Miner that produced the patterns */
+	public enum Miner {
+		PAM, MAPO, UPMINER
+	}
+
+	private final Miner miner;
+
+	private final IntBuffer callOffsets;
+	private final ByteBuffer callNames;
+	private final String[] calls;
+
+	private final IntBuffer clusters;
+	private final IntBuffer itemOffsets;
+	private final IntBuffer items;
+	private final DoubleBuffer probabilities;
+	private final DoubleBuffer interestingness;
+	private final LongBuffer supports;
+
+	private PatternSet(final ByteBuffer buf) throws IOException {
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+			throw new IOException("Not a pattern file.");
+		final int version = buf.getInt(4);
+		if (version != VERSION)
+			throw new IOException("Unsupported pattern file version " + version + ", expected " + VERSION);
+		final int minerOrdinal = buf.getInt(8);
+		if (minerOrdinal < 0 || minerOrdinal >= Miner.values().length)
+			throw new IOException("Unknown miner " + minerOrdinal + " in pattern file.");
+		miner = Miner.values()[minerOrdinal];
+		final int noCalls = buf.getInt(12);
+		final int noPatterns = buf.getInt(16);
+		final int noItems = buf.getInt(20);
+
+		int pos = HEADER_SIZE;
+		callOffsets = slice(buf, pos, (noCalls + 1) * Integer.BYTES).asIntBuffer();
+		pos += (noCalls + 1) * Integer.BYTES;
+		final int namesSize = callOffsets.get(noCalls);
+		callNames = slice(buf, pos, namesSize);
+		pos = pad(pos + namesSize);
+		calls = new String[noCalls];
+
+		clusters = slice(buf, pos, noPatterns * Integer.BYTES).asIntBuffer();
+		pos += noPatterns * Integer.BYTES;
+		itemOffsets = slice(buf, pos, (noPatterns + 1) * Integer.BYTES).asIntBuffer();
+		pos += (noPatterns + 1) * Integer.BYTES;
+		items = slice(buf, pos, noItems * Integer.BYTES).asIntBuffer();
+		pos = pad(pos + noItems * Integer.BYTES);
+		probabilities = slice(buf, pos, noPatterns * Double.BYTES).asDoubleBuffer();
+		pos += noPatterns * Double.BYTES;
+		interestingness = slice(buf, pos, noPatterns * Double.BYTES).asDoubleBuffer();
+		pos += noPatterns * Double.BYTES;
+		supports = slice(buf, pos, noPatterns * Long.BYTES).asLongBuffer();
+	}
+
+	/**
+	 * Read patterns from the given file, memory-mapping it unless compressed
+	 */
+	public static PatternSet read(final File file) throws IOException {
+		if (CompressedFiles.isCompressed(file)) {
+			try (final InputStream in = CompressedFiles.newInputStream(file)) {
+				return new PatternSet(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+			}
+		}
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new PatternSet(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Binary pattern file for the given text output file, i.e. with its
+	 * extension replaced by {@value #EXTENSION} (keeping any compression)
+	 */
+	public static File getBinaryFile(final File textFile) {
+		final String compression = Compression.forFile(textFile).getExtension();
+		final String name = textFile.getName();
+		final String baseName = FilenameUtils
+				.getBaseName(name.substring(0, name.length() - compression.length()));
+		return new File(textFile.getParentFile(), baseName + EXTENSION + compression);
+	}
+
+	/** Whether the given file is a (possibly compressed) binary pattern file */
+	public static boolean isBinaryFile(final File file) {
+		final String name = file.getName();
+		return name.substring(0, name.length() - Compression.forFile(file).getExtension().length())
+				.endsWith(EXTENSION);
+	}
+
+	public Miner getMiner() {
+		return miner;
+	}
+
+	/** Number of patterns */
+	public int size() {
+		return clusters.limit();
+	}
+
+	/** Number of distinct calls in the dictionary */
+	public int getNoCalls() {
+		return calls.length;
+	}
+
+	/** Name of the given call ID */
+	public String getCall(final int id) {
+		String call = calls[id];
+		if (call == null) { // benign race, Strings are immutable
+			final int start = callOffsets.get(id);
+			final byte[] bytes = new byte[callOffsets.get(id + 1) - start];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = callNames.get(start + i);
+			call = new String(bytes, StandardCharsets.UTF_8);
+			calls[id] = call;
+		}
+		return call;
+	}
+
+	public int getCluster(final int pattern) {
+		return clusters.get(pattern);
+	}
+
+	/** Call IDs of the given pattern */
+	public int[] getItems(final int pattern) {
+		final int start = itemOffsets.get(pattern);
+		final int[] patternItems = new int[itemOffsets.get(pattern + 1) - start];
+		for (int i = 0; i < patternItems.length; i++)
+			patternItems[i] = items.get(start + i);
+		return patternItems;
+	}
+
+	/** Call names of the given pattern */
+	public List<String> getCalls(final int pattern) {
+		final List<String> patternCalls = new ArrayList<>();
+		for (int i = itemOffsets.get(pattern); i < itemOffsets.get(pattern + 1); i++)
+			patternCalls.add(getCall(items.get(i)));
+		return patternCalls;
+	}
+
+	public double getProbability(final int pattern) {
+		return probabilities.get(pattern);
+	}
+
+	public double getInterestingness(final int pattern) {
+		return interestingness.get(pattern);
+	}
+
+	public long getSupport(final int pattern) {
+		return supports.get(pattern);
+	}
+
+	private static ByteBuffer slice(final ByteBuffer buf, final int pos, final int len) {
+		final ByteBuffer dup = buf.duplicate();
+		dup.position(pos);
+		dup.limit(pos + len);
+		return dup.slice();
+	}
+
+	private static int pad(final int pos) {
+		return (pos + 7) & ~7;
+	}
+
+	/** Collects patterns and writes them in the binary format */
+	public static class Builder {
+
+		private final Miner miner;
+		private final ByteDictionary dictionary = new ByteDictionary();
+
+		private final IntList clusters = new IntList();
+		private final IntList itemOffsets = new IntList();
+		private final IntList items = new IntList();
+		private final List<Double> probabilities = new ArrayList<>();
+		private final List<Double> interestingness = new ArrayList<>();
+		private final List<Long> supports = new ArrayList<>();
+
+		public Builder(final Miner miner) {
+			this.miner = miner;
+			itemOffsets.add(0);
+		}
+
+		/** Add a pattern with the given calls */
+		public Builder add(final int cluster, final Iterable<String> calls, final double probability,
+				final double interestingness, final long support) {
+			clusters.add(cluster);
+			for (final String call : calls)
+				items.add(dictionary.intern(call));
+			itemOffsets.add(items.size);
+			this.probabilities.add(probability);
+			this.interestingness.add(interestingness);
+			this.supports.add(support);
+			return this;
+		}
+
+		/** Write patterns to the given (possibly compressed) file */
+		public void write(final File file) throws IOException {
+			final int noCalls = dictionary.size();
+			final List<byte[]> names = new ArrayList<>(noCalls);
+			for (int id = 0; id < noCalls; id++)
+				names.add(dictionary.get(id).getBytes(StandardCharsets.UTF_8));
+
+			try (final DataOutputStream out = new DataOutputStream(CompressedFiles.newOutputStream(file))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(miner.ordinal());
+				out.writeInt(noCalls);
+				out.writeInt(clusters.size);
+				out.writeInt(items.size);
+
+				int offset = 0;
+				out.writeInt(offset);
+				for (final byte[] name : names) {
+					offset += name.length;
+					out.writeInt(offset);
+				}
+				for (final byte[] name : names)
+					out.write(name);
+				writePadding(out);
+
+				for (int i = 0; i < clusters.size; i++)
+					out.writeInt(clusters.data[i]);
+				for (int i = 0; i < itemOffsets.size; i++)
+					out.writeInt(itemOffsets.data[i]);
+				for (int i = 0; i < items.size; i++)
+					out.writeInt(items.data[i]);
+				writePadding(out);
+
+				for (final double probability : probabilities)
+					out.writeDouble(probability);
+				for (final double intr : interestingness)
+					out.writeDouble(intr);
+				for (final long support : supports)
+					out.writeLong(support);
+			}
+		}
+
+		private static void writePadding(final DataOutputStream out) throws IOException {
+			while (out.size() % 8 != 0)
+				out.writeByte(0);
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+package apimining.java;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import apimining.io.AtomicFiles;
+import apimining.java.JavaSources.Source;
+
+/**
+ * Persistent per-file cache of extracted API calls, so that re-runs only parse
+ * changed source files.
+ * <p>
+ * Entries are keyed by the SHA-1 of the file contents and stored under a
+ * version folder hashed from the cache format and the wildcard namespace
+ * folder (file names, sizes and modification times), so changing the
+ * namespaces invalidates the cache and deleting the cache folder clears it.
+ * Each entry holds the unfiltered (caller, calls) records of the file in
+ * extraction order, so one cache serves all API namespaces and a cache hit
+ * gives the same calls as parsing. Entries are written with
+ * {@link AtomicFiles}, so concurrent extractions can share the cache.
+ */
+public class APICallCache {
+
+	/** Bump when the entry format or the extraction changes */
+	private static final int FORMAT_VERSION = 2;
+
+	private final File versionFolder;
+	private final String namespaceFolder;
+
+	/**
+	 * @param cacheFolder
+	 *            folder holding the cache
+	 * @param namespaceFolder
+	 *            folder with namespaces for wildcarded imports (may be null)
+	 */
+	public APICallCache(final File cacheFolder, final String namespaceFolder) {
+		this.namespaceFolder = namespaceFolder;
+		this.versionFolder = new File(cacheFolder, getVersion(namespaceFolder));
+	}
+
+	/**
+	 * Get the API calls in the given namespace for the given source file,
+	 * parsing it only if it's not cached
+	 *
+	 * @param namespace
+	 *            API namespace (e.g. org.apache.hadoop), "" for all namespaces
+	 * @see APICallVisitor#getAPINames(String)
+	 */
+	public LinkedListMultimap<String, String> getAPINames(final Source source, final String namespace)
+			throws IOException {
+		final byte[] contents = source.getBytes();
+		final LinkedListMultimap<String, String> fqAPICalls = getCached(contents, namespace);
+		if (fqAPICalls != null)
+			return fqAPICalls;
+
+		final APICallVisitor acv = new APICallVisitor(ASTVisitors.getAST(source, contents), namespaceFolder);
+		acv.process();
+		final LinkedListMultimap<String, String> allAPICalls = acv.getAPINames("");
+		put(contents, allAPICalls);
+		return filter(allAPICalls, namespace);
+	}
+
+	/**
+	 * Get the cached API calls in the given namespace for the source file
+	 * with the given contents, or null if it's not cached
+	 */
+	public LinkedListMultimap<String, String> getCached(final byte[] contents, final String namespace) {
+		final File entry = getEntry(contents);
+		final LinkedListMultimap<String, String> fqAPICalls = entry.exists() ? read(entry) : null;
+		return fqAPICalls == null ? null : filter(fqAPICalls, namespace);
+	}
+
+	/**
+	 * Cache the API calls in all namespaces (i.e. getAPINames("")) for the
+	 * source file with the given contents
+	 */
+	public void put(final byte[] contents, final LinkedListMultimap<String, String> allAPICalls)
+			throws IOException {
+		write(allAPICalls, getEntry(contents));
+	}
+
+	/** Get cache entry for the given file contents */
+	File getEntry(final byte[] contents) {
+		final String hash = Hashing.sha1().hashBytes(contents).toString();
+		return new File(new File(versionFolder, hash.substring(0, 2)), hash.substring(2));
+	}
+
+	/** Keep only calls in the given namespace (preserving order) */
+	static LinkedListMultimap<String, String> filter(final LinkedListMultimap<String, String> fqAPICalls,
+			final String namespace) {
+		if (namespace.isEmpty())
+			return fqAPICalls;
+		final LinkedListMultimap<String, String> filtered = LinkedListMultimap.create();
+		for (final Entry<String, String> entry : fqAPICalls.entries()) {
+			if (entry.getValue().startsWith(namespace))
+				filtered.put(entry.getKey(), entry.getValue());
+		}
+		return filtered;
+	}
+
+	/** Read cache entry, returning null if it is corrupt */
+	static LinkedListMultimap<String, String> read(final File entry) {
+		final LinkedListMultimap<String, String> fqAPICalls = LinkedListMultimap.create();
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+			final int noRuns = in.readInt();
+			for (int i = 0; i < noRuns; i++) {
+				final String fqCaller = in.readUTF();
+				final int noCalls = in.readInt();
+				for (int j = 0; j < noCalls; j++)
+					fqAPICalls.put(fqCaller, in.readUTF());
+			}
+		} catch (final IOException e) {
+			return null;
+		}
+		return fqAPICalls;
+	}
+
+	/** Atomically write cache entry */
+	static void write(final LinkedListMultimap<String, String> fqAPICalls, final File entry) throws IOException {
+		AtomicFiles.write(entry, out -> {
+			// Runs of consecutive calls by the same caller, in entry order
+			final List<Entry<String, String>> entries = new ArrayList<>(fqAPICalls.entries());
+			int noRuns = 0;
+			for (int i = 0; i < entries.size(); i++) {
+				if (i == 0 || !entries.get(i).getKey().equals(entries.get(i - 1).getKey()))
+					noRuns++;
+			}
+			out.writeInt(noRuns);
+			for (int start = 0; start < entries.size();) {
+				final String fqCaller = entries.get(start).getKey();
+				int end = start + 1;
+				while (end < entries.size() && entries.get(end).getKey().equals(fqCaller))
+					end++;
+				out.writeUTF(fqCaller);
+				out.writeInt(end - start);
+				for (int i = start; i < end; i++)
+					out.writeUTF(entries.get(i).getValue());
+				start = end;
+			}
+		});
+	}
+
+	/** Cache version from format and namespace folder listing */
+	static String getVersion(final String namespaceFolder) {
+		final Hasher hasher = Hashing.sha1().newHasher().putInt(FORMAT_VERSION);
+		if (namespaceFolder != null) {
+			for (final String type : new String[] { "class", "method" }) {
+				final File[] files = new File(namespaceFolder, type).listFiles();
+				if (files == null)
+					continue;
+				Arrays.sort(files);
+				for (final File file : files)
+					hasher.putUnencodedChars(type + "/" + file.getName()).putLong(file.length())
+							.putLong(file.lastModified());
+			}
+		}
+		final HashCode hash = hasher.hash();
+		return "v" + FORMAT_VERSION + "-" + hash.toString().substring(0, 12);
+	}
+
+}
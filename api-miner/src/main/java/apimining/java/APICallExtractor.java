@@ -3,16 +3,47 @@ package apimining.java;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.FileUtils;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
 import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Lists;
+
+import apimining.io.CompressedFiles;
+import apimining.java.APICallVisitor.DeadlineExceededException;
+import apimining.java.ExtractionProfile.FileTiming;
+import apimining.java.ExtractionProfile.Stage;
+import apimining.java.JavaSources.Source;
 
 /**
  * Extract API calls into ARF Format. Attributes are fqCaller and fqCalls as
  * space separated string of API calls.
+ * <p>
+ * Files are extracted in a pipeline: a producer lists the source files and
+ * submits them in batches to a pool of parse-and-visit workers (each batch is
+ * parsed by a single JDT parser), the futures are passed
+ * through a bounded queue (for back-pressure) to a single writer that writes
+ * them in file order, so the output is identical to a sequential run.
+ * <p>
+ * Parse, process and output times are recorded for each parsed file (see
+ * {@link ExtractionProfile}) and files exceeding the optional time budget are
+ * abandoned (i.e. have no API calls) and reported.
  *
  * @author Jaroslav Fowkes <jaroslav.fowkes@ed.ac.uk>
  */
@@ -35,61 +66,311 @@ public class APICallExtractor {
 	// private static final String outFolder =
 	// "/afs/inf.ed.ac.uk/user/j/jfowkes/Code/Sequences/Datasets/API/examples/train/calls/";
 
+	/** Output extension (.arff.gz or .arff.zst to compress) */
+	private static final String outExtension = ".arff";
+
+	/** Main function parameters */
+	public static class Parameters {
+
+		@Parameter(names = { "-t", "--threads" }, description = "Number of parse-and-visit worker threads")
+		int noThreads = Runtime.getRuntime().availableProcessors();
+
+		@Parameter(names = { "-q", "--queueSize" }, description = "Max batches in flight between workers and writer")
+		int queueSize = 16;
+
+		@Parameter(names = { "-b", "--batchSize" }, description = "Files per batch (one parser if no prefilter or cache)")
+		int batchSize = 32;
+
+		@Parameter(names = { "-p", "--prefilter" }, description = "Skip files not mentioning the API namespace", arity = 1)
+		boolean prefilter = true;
+
+		@Parameter(names = { "-c", "--cache" }, description = "Folder for per-file extraction cache (none if empty)")
+		String cacheFolder = "";
+
+		@Parameter(names = { "-f", "--fileBudget" }, description = "Time budget per file in ms (none if 0)")
+		long fileBudget = 0;
+
+		@Parameter(names = { "-s", "--slowest" }, description = "Number of slowest files to report")
+		int noSlowest = 20;
+
+	}
+
 	public static void main(final String[] args) throws IOException {
 
-		// For each java file in project
-		for (int i = 0; i < packageNames.length; i++) {
+		// Runtime parameters
+		final Parameters params = new Parameters();
+		final JCommander jc = new JCommander(params);
 
-			System.out.println("===== Processing " + projFolders[i]);
+		try {
+			jc.parse(args);
 
-			final PrintWriter out = new PrintWriter(new File(outFolder + projFolders[i] + ".arff"), "UTF-8");
+			final APICallCache cache = params.cacheFolder.isEmpty() ? null
+					: new APICallCache(new File(params.cacheFolder), namespaceFolder);
 
-			// ARF Header
-			out.println("@relation " + projFolders[i]);
-			out.println();
-			out.println("@attribute fqCaller string");
-			out.println("@attribute fqCalls string");
-			out.println();
-			out.println("@data");
+			// For each java file in project
+			for (int i = 0; i < packageNames.length; i++) {
 
-			// Get all java files in source folder
-			final List<File> files = (List<File>) FileUtils.listFiles(new File(libFolder + projFolders[i]),
-					new String[] { "java" }, true);
-			Collections.sort(files);
+				System.out.println("===== Processing " + projFolders[i]);
 
-			int count = 0;
-			for (final File file : files) {
-				// if (!file.getName().contains("TestSirenNumericRange"))
-				// continue;
+				final PrintWriter out = CompressedFiles.newWriter(new File(outFolder + projFolders[i] + outExtension));
 
-				System.out.println("\nFile: " + file);
+				// ARF Header
+				out.println("@relation " + projFolders[i]);
+				out.println();
+				out.println("@attribute fqCaller string");
+				out.println("@attribute fqCalls string");
+				out.println();
+				out.println("@data");
 
-				// Ignore empty files
-				if (file.length() == 0)
-					continue;
+				// Get all java files in source folder or archive
+				final ExtractionProfile profile = new ExtractionProfile(params.noSlowest);
+				try (final JavaSources sources = JavaSources.open(new File(libFolder + projFolders[i]))) {
+					extractAPICalls(sources.getSources(), packageNames[i], out, cache, params.prefilter,
+							params.noThreads, params.queueSize, params.batchSize, params.fileBudget, profile);
+				}
 
-				if (count % 50 == 0)
-					System.out.println("At file " + count + " of " + files.size());
-				count++;
+				out.close();
+				profile.printReport(System.out);
+			}
 
-				final APICallVisitor acv = new APICallVisitor(ASTVisitors.getAST(file), namespaceFolder);
-				acv.process();
-				final LinkedListMultimap<String, String> fqAPICalls = acv.getAPINames(packageNames[i]);
+		} catch (final ParameterException e) {
+			System.out.println(e.getMessage());
+			jc.usage();
+		}
+	}
+
+	/**
+	 * Extract API calls in the given namespace from the given source files
+	 * (see {@link JavaSources}), writing them as ARFF data lines in file order
+	 *
+	 * @param cache
+	 *            per-file extraction cache (may be null)
+	 * @param prefilter
+	 *            whether to skip parsing files that don't mention the
+	 *            namespace (see {@link LexicalPrefilter})
+	 * @param noThreads
+	 *            number of parse-and-visit workers
+	 * @param queueSize
+	 *            max number of batches parsed ahead of the writer
+	 * @param batchSize
+	 *            number of files per batch, parsed by a single parser (see
+	 *            {@link ASTVisitors#getASTs}) unless their contents are read
+	 *            for the prefilter or the cache
+	 * @param fileBudget
+	 *            time in ms after which parsing and processing a file is
+	 *            abandoned (none if 0). Parsing can't be interrupted, so files
+	 *            whose parse alone exceeds the budget are abandoned after it.
+	 * @param profile
+	 *            profile to record the timings of parsed files in
+	 */
+	public static void extractAPICalls(final List<Source> files, final String namespace, final PrintWriter out,
+			final APICallCache cache, final boolean prefilter, final int noThreads, final int queueSize,
+			final int batchSize, final long fileBudget, final ExtractionProfile profile) {
+
+		// Ignore empty files
+		final List<Source> nonEmptyFiles = new ArrayList<>(files.size());
+		for (final Source file : files) {
+			if (file.length() != 0)
+				nonEmptyFiles.add(file);
+		}
 
-				for (final String fqCaller : fqAPICalls.keySet()) {
-					out.print("'" + fqCaller + "','");
-					String prefix = "";
-					for (final String fqCall : fqAPICalls.get(fqCaller)) {
-						out.print(prefix + fqCall);
-						prefix = " ";
+		final List<List<Source>> batches = Lists.partition(nonEmptyFiles, batchSize);
+		final LexicalPrefilter filter = prefilter ? new LexicalPrefilter(namespace) : null;
+		final AtomicInteger noSkipped = new AtomicInteger();
+		final long budget = TimeUnit.MILLISECONDS.toNanos(fileBudget);
+
+		final ExecutorService workers = Executors.newFixedThreadPool(noThreads);
+		final BlockingQueue<Future<List<ExtractedFile>>> queue = new ArrayBlockingQueue<>(queueSize);
+
+		// Producer: submit batches in order, blocking when the writer lags
+		final Thread producer = new Thread(() -> {
+			try {
+				for (final List<Source> batch : batches)
+					queue.put(workers.submit(() -> getARFFLines(batch, namespace, cache, filter, noSkipped,
+							budget)));
+			} catch (final InterruptedException | RejectedExecutionException e) {
+				// writer failed
+			}
+		}, "APICallExtractor-producer");
+		producer.start();
+
+		// Writer: take futures in file order
+		try {
+			int count = 0;
+			for (final List<Source> batch : batches) {
+				final List<ExtractedFile> extracted = queue.take().get();
+				for (int j = 0; j < batch.size(); j++, count++) {
+					System.out.println("\nFile: " + batch.get(j));
+					if (count % 50 == 0)
+						System.out.println("At file " + count + " of " + files.size());
+					final FileTiming timing = extracted.get(j).timing;
+					final long startOutput = System.nanoTime();
+					out.print(extracted.get(j).lines);
+					if (timing != null) {
+						timing.add(Stage.OUTPUT, System.nanoTime() - startOutput);
+						if (timing.getAbandonedAt() != null)
+							System.out.println("***** WARNING: File abandoned at " + timing.getAbandonedAt()
+									+ " after exceeding time budget of " + fileBudget + " ms");
+						profile.add(timing);
 					}
-					out.println("'");
 				}
+			}
+			if (filter != null)
+				System.out.println("Prefilter skipped " + noSkipped.get() + " of " + nonEmptyFiles.size()
+						+ " files not mentioning " + namespace);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while extracting API calls.", e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException("Failed to extract API calls.", e.getCause());
+		} finally {
+			producer.interrupt();
+			workers.shutdownNow();
+		}
+	}
+
+	/** ARFF data lines of a file and its timings (null if it wasn't parsed) */
+	private static class ExtractedFile {
+		private final String lines;
+		private final FileTiming timing;
+
+		public ExtractedFile(final String lines, final FileTiming timing) {
+			this.lines = lines;
+			this.timing = timing;
+		}
+	}
+
+	/** Start time of the parse of the next file in a batch */
+	private static class ParseClock {
+		private long startParse = System.nanoTime();
+	}
+
+	/**
+	 * Parse the given batch of files (skipping cached files and files
+	 * rejected by the prefilter) and get their API calls as ARFF data lines.
+	 * Files are read once if the prefilter or the cache needs their contents,
+	 * and then parsed from memory. Otherwise files on disk are parsed in a
+	 * single batch by JDT, which reads them itself, and archive entries from
+	 * memory. Files that can't be read, parsed or cached are logged and have
+	 * no API calls.
+	 */
+	private static List<ExtractedFile> getARFFLines(final List<Source> batch, final String namespace,
+			final APICallCache cache, final LexicalPrefilter filter, final AtomicInteger noSkipped,
+			final long budget) {
+
+		final Map<Source, LinkedListMultimap<String, String>> fqAPICalls = new HashMap<>();
+		final Map<Source, FileTiming> timings = new HashMap<>();
+		final Map<File, Source> toParse = new HashMap<>(); // by absolute file
+		final boolean readContents = filter != null || cache != null;
+		for (final Source source : batch) {
+			try {
+				if (!readContents && source.getFile() != null) {
+					toParse.put(source.getFile().getAbsoluteFile(), source);
+					continue;
+				}
+				final byte[] contents = source.getBytes();
+				if (filter != null && !filter.matches(contents)) {
+					noSkipped.incrementAndGet();
+					continue;
+				}
+				final LinkedListMultimap<String, String> cached = cache == null ? null
+						: cache.getCached(contents, namespace);
+				if (cached != null) {
+					fqAPICalls.put(source, cached);
+				} else {
+					final FileTiming timing = new FileTiming(source.getName());
+					timings.put(source, timing);
+					final long startParse = System.nanoTime();
+					fqAPICalls.put(source, getAPINames(ASTVisitors.getAST(source, contents), contents, namespace,
+							cache, startParse, budget, timing));
+				}
+			} catch (final IOException e) {
+				System.out.println("***** WARNING: Skipping file " + source + ": " + e);
+			}
+		}
 
+		// Files on disk not read above (so not cached) are parsed in turn
+		// before being passed on, so a file's parse starts when the previous
+		// file has been processed
+		final ParseClock clock = new ParseClock();
+		ASTVisitors.getASTs(toParse.keySet(), (file, ast) -> {
+			final Source source = toParse.get(file);
+			final FileTiming timing = new FileTiming(source.getName());
+			timings.put(source, timing);
+			try {
+				fqAPICalls.put(source, getAPINames(ast, null, namespace, cache, clock.startParse, budget, timing));
+			} catch (final IOException e) {
+				System.out.println("***** WARNING: Skipping file " + source + ": " + e);
 			}
+			clock.startParse = System.nanoTime();
+		});
+		for (final Source source : toParse.values()) {
+			if (!timings.containsKey(source))
+				System.out.println("***** WARNING: Skipping file " + source + ": not parsed");
+		}
+
+		// Files without a result (skipped or failed) have no API calls
+		final List<ExtractedFile> extracted = new ArrayList<>(batch.size());
+		for (final Source source : batch) {
+			final FileTiming timing = timings.get(source);
+			final long startOutput = System.nanoTime();
+			final LinkedListMultimap<String, String> apiCalls = fqAPICalls.get(source);
+			final String lines = apiCalls == null ? "" : getARFFLines(apiCalls);
+			if (timing != null)
+				timing.add(Stage.OUTPUT, System.nanoTime() - startOutput);
+			extracted.add(new ExtractedFile(lines, timing));
+		}
+		return extracted;
+	}
 
-			out.close();
+	/**
+	 * Get API calls in the given AST (parsed from the given start time),
+	 * caching them if there is a cache. If parsing and processing the file
+	 * exceeds the budget (in ns, none if 0) it is abandoned and has no API
+	 * calls.
+	 */
+	private static LinkedListMultimap<String, String> getAPINames(final CompilationUnit ast, final byte[] contents,
+			final String namespace, final APICallCache cache, final long startParse, final long budget,
+			final FileTiming timing) throws IOException {
+		final long startProcess = System.nanoTime();
+		timing.add(Stage.PARSE, startProcess - startParse);
+		if (budget > 0 && startProcess - startParse > budget) {
+			timing.abandon(Stage.PARSE);
+			return LinkedListMultimap.create();
+		}
+
+		final LinkedListMultimap<String, String> apiCalls;
+		try {
+			final APICallVisitor acv = new APICallVisitor(ast, namespaceFolder);
+			if (budget > 0)
+				acv.setDeadline(startParse + budget);
+			acv.process();
+			apiCalls = acv.getAPINames(cache == null ? namespace : "");
+		} catch (final DeadlineExceededException e) {
+			timing.abandon(Stage.PROCESS);
+			return LinkedListMultimap.create();
+		} finally {
+			timing.add(Stage.PROCESS, System.nanoTime() - startProcess);
+		}
+		if (cache == null)
+			return apiCalls;
+		cache.put(contents, apiCalls);
+		return APICallCache.filter(apiCalls, namespace);
+	}
+
+	/** Get API calls as ARFF data lines */
+	private static String getARFFLines(final LinkedListMultimap<String, String> fqAPICalls) {
+		final StringBuilder lines = new StringBuilder();
+		for (final String fqCaller : fqAPICalls.keySet()) {
+			lines.append("'").append(fqCaller).append("','");
+			String prefix = "";
+			for (final String fqCall : fqAPICalls.get(fqCaller)) {
+				lines.append(prefix).append(fqCall);
+				prefix = " ";
+			}
+			lines.append("'").append(System.lineSeparator());
 		}
+		return lines.toString();
 	}
 
 }
@@ -1,14 +1,15 @@
 package apimining.java;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ArrayAccess;
@@ -33,13 +34,10 @@ import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
 import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
 import org.eclipse.jdt.core.dom.TypeLiteral;
 
-import com.google.common.base.Charsets;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Table;
-import com.google.common.io.Files;
 
 import apimining.java.ASTVisitors.MethodClassDeclarationVisitor;
 import apimining.java.ASTVisitors.WildcardImportVisitor;
@@ -69,7 +67,7 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 	/** Map between declared method fqNames and their return types */
 	private final Map<String, Type> methodReturnTypes;
 
-	/** Folder with namespaces for wildcarded imports */
+	/** Folder with namespaces for wildcarded imports (see NamespaceIndex) */
 	private final String wildcardNameSpaceFolder;
 
 	/** Wildcarded imports */
@@ -99,6 +97,48 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 	/** Unresolved method names */
 	private final Set<String> unresMethods = new HashSet<>();
 
+	/** System.nanoTime() after which processing is abandoned */
+	private long deadline = Long.MAX_VALUE;
+
+	/** Memoized covering Block/Class nodes */
+	private final Map<ASTNode, ASTNode> coveringBlocks = new IdentityHashMap<>();
+
+	/** Names of loaded classes ("" if they can't be loaded), see forName() */
+	private static final Map<String, String> loadedClasses = new ConcurrentHashMap<>();
+
+	/** Number of nodes visited (deadline is checked periodically) */
+	private int noVisited = 0;
+
+	/** Thrown when processing exceeds the deadline */
+	public static class DeadlineExceededException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public DeadlineExceededException() {
+			super("API call visitor deadline exceeded");
+		}
+	}
+
+	/**
+	 * Abandon {@link #process()} and {@link #getAPINames(String)} with a
+	 * {@link DeadlineExceededException} once System.nanoTime() passes the
+	 * given deadline
+	 */
+	public void setDeadline(final long deadline) {
+		this.deadline = deadline;
+	}
+
+	private void checkDeadline() {
+		if (System.nanoTime() > deadline)
+			throw new DeadlineExceededException();
+	}
+
+	@Override
+	public void preVisit(final ASTNode node) {
+		if ((++noVisited & 0xFF) == 0)
+			checkDeadline();
+		super.preVisit(node);
+	}
+
 	@Override
 	public boolean visit(final ImportDeclaration node) {
 		final String qName = node.getName().getFullyQualifiedName();
@@ -198,31 +238,25 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 	@Override
 	public void process() {
 
+		final NamespaceIndex namespaces = NamespaceIndex.get(wildcardNameSpaceFolder);
+
 		for (final String wimport : wildcardImports) {
-			try {
-				final List<String> qNames = Files.readLines(new File(wildcardNameSpaceFolder + "class/" + wimport),
-						Charsets.UTF_8);
-				for (final String qName : qNames)
-					importedNames.put(qName.substring(qName.lastIndexOf('.') + 1), qName);
+			final Map<String, String> classNames = namespaces.getClasses(wimport);
+			if (classNames != null) {
+				importedNames.putAll(classNames);
 				System.out.println("+++++ INFO: Successfully resolved import " + wimport);
-			} catch (final IOException e) {
-				if (!wimport.matches("java.*")) // handled in getFQNameFor()
-					System.out.println("***** WARNING: Wildcard import '" + wimport
-							+ "' not resolved. Please supply class namespace file.");
+			} else if (!wimport.matches("java.*")) { // handled in getFQNameFor()
+				System.out.println("***** WARNING: Wildcard import '" + wimport
+						+ "' not resolved. Please supply class namespace file.");
 			}
 		}
 
 		for (final String wimport : wildcardMethodImports) {
-			try {
-				final List<String> qNames = Files.readLines(new File(wildcardNameSpaceFolder + "method/" + wimport),
-						Charsets.UTF_8);
-				for (final String qName : qNames) {
-					final String name = qName.substring(qName.lastIndexOf('.') + 1);
-					if (Character.isLowerCase(name.charAt(0)))
-						methodImports.put(name, qName.substring(0, qName.lastIndexOf('.')));
-					System.out.println("+++++ INFO: Successfully resolved static import " + wimport);
-				}
-			} catch (final IOException e) {
+			final Map<String, String> methodNames = namespaces.getMethods(wimport);
+			if (methodNames != null) {
+				methodImports.putAll(methodNames);
+				System.out.println("+++++ INFO: Successfully resolved static import " + wimport);
+			} else {
 				System.out.println("***** WARNING: Static wildcard import '" + wimport
 						+ "' not resolved. Please supply method namespace file.");
 			}
@@ -233,18 +267,18 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 
 	@Override
 	protected final String getFullyQualifiedNameFor(final String className) {
-		if (importedNames.containsKey(className))
-			return importedNames.get(className);
+		final String fqName = importedNames.get(className);
+		if (fqName != null)
+			return fqName;
+		final String binaryName = className.replace('.', '$');
 		for (final String wildcardImport : wildcardImports) { // java.util.* etc
-			try {
-				return Class.forName(wildcardImport + "." + className.replace(".", "$")).getName();
-			} catch (final ClassNotFoundException | NoClassDefFoundError | ExceptionInInitializerError e) {
-			}
-		}
-		try {
-			return Class.forName("java.lang." + className.replace(".", "$")).getName();
-		} catch (final ClassNotFoundException e) {
+			final String name = forName(wildcardImport + "." + binaryName);
+			if (name != null)
+				return name;
 		}
+		final String name = forName("java.lang." + binaryName);
+		if (name != null)
+			return name;
 		for (final String fqClassName : decClasses) { // Local classes
 			if (fqClassName.endsWith(className))
 				return fqClassName;
@@ -256,23 +290,76 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 		return "UNRESOLVED." + className;
 	}
 
+	/**
+	 * Get the name of the given class if it can be loaded, or null if it can't
+	 * (cached, as failed lookups are slow)
+	 */
+	private static String forName(final String className) {
+		String name = loadedClasses.get(className);
+		if (name == null) {
+			try {
+				name = Class.forName(className).getName();
+			} catch (final ClassNotFoundException | NoClassDefFoundError | ExceptionInInitializerError e) {
+				name = "";
+			}
+			loadedClasses.put(className, name);
+		}
+		return name.isEmpty() ? null : name;
+	}
+
+	/**
+	 * Get covering Block/Class node, returning the root node if there is none.
+	 * Same as {@link ASTVisitors#getCoveringBlock(CompilationUnit, ASTNode)}
+	 * but walks up the ancestors and memoizes them, rather than searching the
+	 * whole AST for each node. Package-private so that tests can check it
+	 * against the range search.
+	 */
+	ASTNode getCoveringBlock(final ASTNode node) {
+		// Local class declaration covers the same range as its statement
+		final ASTNode start = node.getNodeType() == ASTNode.TYPE_DECLARATION_STATEMENT
+				? ((TypeDeclarationStatement) node).getDeclaration() : node;
+
+		final List<ASTNode> path = new ArrayList<>();
+		ASTNode coveringBlock = null;
+		for (ASTNode current = start; current != null && coveringBlock == null; current = current.getParent()) {
+			coveringBlock = coveringBlocks.get(current);
+			if (coveringBlock == null) {
+				path.add(current);
+				final int type = current.getNodeType();
+				if (type == ASTNode.BLOCK || type == ASTNode.TYPE_DECLARATION || type == ASTNode.ENUM_DECLARATION)
+					coveringBlock = current;
+			}
+		}
+		if (coveringBlock == null)
+			coveringBlock = rootNode;
+		for (final ASTNode current : path)
+			coveringBlocks.put(current, coveringBlock);
+		return coveringBlock;
+	}
+
+	/** Get type of the given variable in the scope covering the given node */
+	private String getVariableType(final ASTNode node, final String name,
+			final Map<ASTNode, Map<String, String>> scopeVariableTypes) {
+		final Map<String, String> types = scopeVariableTypes.get(getCoveringBlock(node));
+		return types == null ? null : types.get(name);
+	}
+
 	private String getFQMethodClassFor(final Expression expression, final String parentClassName,
-			final Table<ASTNode, String, String> variableScopeNameTypes) {
+			final Map<ASTNode, Map<String, String>> scopeVariableTypes) {
 		if (expression.getNodeType() == ASTNode.QUALIFIED_NAME)
 			return ((QualifiedName) expression).getFullyQualifiedName();
 		if (expression.getNodeType() == ASTNode.SIMPLE_NAME) {
-			final String name = ((SimpleName) expression).toString();
-			final ASTNode scope = ASTVisitors.getCoveringBlock(rootNode, expression);
-			if (variableScopeNameTypes.contains(scope, name)) // variable
-																// name
-				return variableScopeNameTypes.get(scope, name);
+			final String name = ((SimpleName) expression).getIdentifier();
+			final String type = getVariableType(expression, name, scopeVariableTypes);
+			if (type != null) // variable name
+				return type;
 			return getFullyQualifiedNameFor(name); // class name
 		}
 		if (expression.getNodeType() == ASTNode.FIELD_ACCESS) {
-			final String name = ((FieldAccess) expression).getName().toString();
-			final ASTNode scope = ASTVisitors.getCoveringBlock(rootNode, expression);
-			if (variableScopeNameTypes.contains(scope, name))
-				return variableScopeNameTypes.get(scope, name);
+			final String name = ((FieldAccess) expression).getName().getIdentifier();
+			final String type = getVariableType(expression, name, scopeVariableTypes);
+			if (type != null)
+				return type;
 			return "UNRESOLVED";
 		}
 		if (expression.getNodeType() == ASTNode.SUPER_FIELD_ACCESS)
@@ -295,7 +382,7 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 			final MethodInvocation inv = (MethodInvocation) expression;
 			if (inv.getName().toString().equals("forName")) { // Class.forName()
 				final Expression reqClass = (Expression) inv.arguments().get(0);
-				return getFQMethodClassFor(reqClass, parentClassName, variableScopeNameTypes);
+				return getFQMethodClassFor(reqClass, parentClassName, scopeVariableTypes);
 			} else { // Handle nested method calls
 				if (inv.getExpression() == null) { // method1().method2()
 					final String name = ((MethodInvocation) expression).getName().toString();
@@ -320,19 +407,19 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 			return "UNRESOLVED";
 		if (expression.getNodeType() == ASTNode.PARENTHESIZED_EXPRESSION) {
 			final ParenthesizedExpression par = (ParenthesizedExpression) expression;
-			return getFQMethodClassFor(par.getExpression(), parentClassName, variableScopeNameTypes);
+			return getFQMethodClassFor(par.getExpression(), parentClassName, scopeVariableTypes);
 		}
 		if (expression.getNodeType() == ASTNode.ARRAY_ACCESS) {
 			final ArrayAccess array = (ArrayAccess) expression;
-			return getFQMethodClassFor(array.getArray(), parentClassName, variableScopeNameTypes).replace("[]", "");
+			return getFQMethodClassFor(array.getArray(), parentClassName, scopeVariableTypes).replace("[]", "");
 		}
 		if (expression.getNodeType() == ASTNode.PREFIX_EXPRESSION) {
 			final PrefixExpression prefix = (PrefixExpression) expression;
-			return getFQMethodClassFor(prefix.getOperand(), parentClassName, variableScopeNameTypes);
+			return getFQMethodClassFor(prefix.getOperand(), parentClassName, scopeVariableTypes);
 		}
 		if (expression.getNodeType() == ASTNode.POSTFIX_EXPRESSION) {
 			final PostfixExpression postfix = (PostfixExpression) expression;
-			return getFQMethodClassFor(postfix.getOperand(), parentClassName, variableScopeNameTypes);
+			return getFQMethodClassFor(postfix.getOperand(), parentClassName, scopeVariableTypes);
 		}
 		if (expression.getNodeType() == ASTNode.INFIX_EXPRESSION) {
 			final InfixExpression infix = (InfixExpression) expression;
@@ -341,9 +428,9 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 							|| infix.getRightOperand().toString().contains("toString()")))
 				return "java.lang.String"; // toString() String concat.
 			final String fqLeftName = getFQMethodClassFor(infix.getLeftOperand(), parentClassName,
-					variableScopeNameTypes);
+					scopeVariableTypes);
 			final String fqRightName = getFQMethodClassFor(infix.getRightOperand(), parentClassName,
-					variableScopeNameTypes);
+					scopeVariableTypes);
 			if (fqLeftName.equals(fqRightName))
 				return fqLeftName; // general case
 			if (infix.getOperator() == InfixExpression.Operator.PLUS
@@ -355,9 +442,9 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 		if (expression.getNodeType() == ASTNode.CONDITIONAL_EXPRESSION) {
 			final ConditionalExpression cond = (ConditionalExpression) expression;
 			final String fqThenName = getFQMethodClassFor(cond.getThenExpression(), parentClassName,
-					variableScopeNameTypes);
+					scopeVariableTypes);
 			final String fqElseName = getFQMethodClassFor(cond.getElseExpression(), parentClassName,
-					variableScopeNameTypes);
+					scopeVariableTypes);
 			if (fqThenName.equals("java.lang.String") || fqElseName.equals("java.lang.String"))
 				return "java.lang.String";
 			if (fqThenName.equals(fqElseName))
@@ -366,21 +453,32 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 		}
 		if (expression.getNodeType() == ASTNode.ASSIGNMENT) {
 			final Assignment ass = (Assignment) expression;
-			return getFQMethodClassFor(ass.getLeftHandSide(), parentClassName, variableScopeNameTypes);
+			return getFQMethodClassFor(ass.getLeftHandSide(), parentClassName, scopeVariableTypes);
 		}
 		throw new RuntimeException("Unhandled Expression ASTNode. Please implement.");
 	}
 
 	public String getFullyQualifiedMethodNameFor(final Expression exp, final String parentClassName,
-			final Table<ASTNode, String, String> variableScopeNameTypes) {
+			final Map<ASTNode, Map<String, String>> scopeVariableTypes) {
+		final String name = getMethodName(exp);
+		return getFQMethodClassFor(exp, name, parentClassName, scopeVariableTypes) + "." + name;
+	}
+
+	/** Get name of the called method ({@code <init>} for constructors) */
+	private static String getMethodName(final Expression exp) {
+		if (exp.getNodeType() == ASTNode.CLASS_INSTANCE_CREATION)
+			return "<init>";
+		return ((MethodInvocation) exp).getName().getIdentifier();
+	}
+
+	/** Get fqName of the class of the given method call */
+	private String getFQMethodClassFor(final Expression exp, final String name, final String parentClassName,
+			final Map<ASTNode, Map<String, String>> scopeVariableTypes) {
 		String fqName;
-		String name;
 		if (exp.getNodeType() == ASTNode.CLASS_INSTANCE_CREATION) {
-			name = "<init>";
 			fqName = getNameOfType(((ClassInstanceCreation) exp).getType());
 		} else { // MethodInvocation
 			final MethodInvocation node = (MethodInvocation) exp;
-			name = node.getName().toString();
 			if (node.getExpression() == null) {
 				if (methodImports.containsKey(name))
 					fqName = methodImports.get(name);
@@ -396,23 +494,38 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 				else // superclass method
 					fqName = "SUPER";
 			} else {
-				fqName = getFQMethodClassFor(node.getExpression(), parentClassName, variableScopeNameTypes);
+				fqName = getFQMethodClassFor(node.getExpression(), parentClassName, scopeVariableTypes);
 			}
 		}
 		if (fqName.equals("UNRESOLVED"))
 			unresMethods.add(name);
-		return fqName + "." + name;
+		return fqName;
+	}
+
+	/** Whether fqClassName.name starts with namespace (built only if needed) */
+	private static boolean isInNamespace(final String fqClassName, final String name, final String namespace) {
+		if (namespace.length() <= fqClassName.length())
+			return fqClassName.startsWith(namespace);
+		return (fqClassName + "." + name).startsWith(namespace);
 	}
 
 	/** Box primitive types, use java.lang.Number for numbers */
-	private String box(final String string) {
-		if (string.matches("byte|short|int|long|float|double"))
+	private static String box(final String string) {
+		switch (string) {
+		case "byte":
+		case "short":
+		case "int":
+		case "long":
+		case "float":
+		case "double":
 			return "java.lang.Number";
-		if (string.matches("boolean"))
+		case "boolean":
 			return "java.lang.Boolean";
-		if (string.matches("char"))
+		case "char":
 			return "java.lang.Character";
-		return string;
+		default:
+			return string;
+		}
 	}
 
 	/**
@@ -424,22 +537,33 @@ public class APICallVisitor extends JavaApproximateTypeInferencer {
 	public LinkedListMultimap<String, String> getAPINames(final String namespace) {
 		final LinkedListMultimap<String, String> fqAPICalls = LinkedListMultimap.create();
 
-		// Get scopes for variables
-		final Table<ASTNode, String, String> variableScopeNameTypes = HashBasedTable.create();
-		for (final ASTNode parent : variableNames.keySet()) {
-			final ASTNode scope = ASTVisitors.getCoveringBlock(rootNode, parent);
-			for (final Entry<String, Integer> entry : variableNames.get(parent).entrySet())
-				variableScopeNameTypes.put(scope, entry.getKey(), box(variableTypes.get(entry.getValue())));
+		// Get (boxed) types of variables in each scope
+		final Map<Integer, String> boxedTypes = new HashMap<>();
+		for (final Entry<Integer, String> entry : variableTypes.entrySet())
+			boxedTypes.put(entry.getKey(), box(entry.getValue()));
+		final Map<ASTNode, Map<String, String>> scopeVariableTypes = new IdentityHashMap<>();
+		for (final Entry<ASTNode, Map<String, Integer>> entry : variableNames.entrySet()) {
+			if (entry.getValue().isEmpty())
+				continue;
+			final ASTNode scope = getCoveringBlock(entry.getKey());
+			Map<String, String> scopeTypes = scopeVariableTypes.get(scope);
+			if (scopeTypes == null) {
+				scopeTypes = new HashMap<>();
+				scopeVariableTypes.put(scope, scopeTypes);
+			}
+			for (final Entry<String, Integer> variable : entry.getValue().entrySet())
+				scopeTypes.put(variable.getKey(), boxedTypes.get(variable.getValue()));
 		}
 
 		for (final MethodDeclaration method : apiCalls.keySet()) {
+			checkDeadline();
+			final String fqCallingMethod = methodNames.get(method);
+			final String parentClassName = fqCallingMethod.substring(0, fqCallingMethod.lastIndexOf("."));
 			for (final Expression exp : apiCalls.get(method)) {
-				final String fqCallingMethod = methodNames.get(method);
-				final String parentClassName = fqCallingMethod.substring(0, fqCallingMethod.lastIndexOf("."));
-				final String fqMethodCall = getFullyQualifiedMethodNameFor(exp, parentClassName,
-						variableScopeNameTypes);
-				if (fqMethodCall.startsWith(namespace))
-					fqAPICalls.put(fqCallingMethod, fqMethodCall);
+				final String name = getMethodName(exp);
+				final String fqClassName = getFQMethodClassFor(exp, name, parentClassName, scopeVariableTypes);
+				if (isInNamespace(fqClassName, name, namespace))
+					fqAPICalls.put(fqCallingMethod, fqClassName + "." + name);
 			}
 		}
 
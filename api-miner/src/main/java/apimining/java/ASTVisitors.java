@@ -1,23 +1,29 @@
 package apimining.java;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
 import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
+import apimining.java.JavaSources.Source;
 import codemining.java.codeutils.JavaASTExtractor;
+import codemining.languagetools.ParseType;
 
 /**
  * Container class for AST Visitors
@@ -238,6 +244,9 @@ public class ASTVisitors {
 
 	}
 
+	/** Shared extractor (immutable, so safe across threads) */
+	private static final JavaASTExtractor astExtractor = new JavaASTExtractor(false, true);
+
 	/**
 	 * Get AST for source file
 	 *
@@ -246,15 +255,55 @@ public class ASTVisitors {
 	public static CompilationUnit getAST(final File fin) {
 
 		CompilationUnit cu = null;
-		final JavaASTExtractor ext = new JavaASTExtractor(false, true);
 		try {
-			cu = ext.getAST(fin);
+			cu = astExtractor.getAST(fin);
 		} catch (final Exception exc) {
 			System.out.println("=+=+=+=+= AST Parse " + exc);
 		}
 		return cu;
 	}
 
+	/**
+	 * Get AST for in-memory source (e.g. an archive entry)
+	 */
+	public static CompilationUnit getAST(final char[] source) {
+
+		CompilationUnit cu = null;
+		try {
+			cu = (CompilationUnit) astExtractor.getASTNode(source, ParseType.COMPILATION_UNIT);
+		} catch (final Exception exc) {
+			System.out.println("=+=+=+=+= AST Parse " + exc);
+		}
+		return cu;
+	}
+
+	/**
+	 * Get AST for source file or archive entry
+	 */
+	public static CompilationUnit getAST(final Source source) throws IOException {
+		return getAST(source, source.getBytes());
+	}
+
+	/**
+	 * Get AST for source file or archive entry from its already read contents
+	 */
+	public static CompilationUnit getAST(final Source source, final byte[] contents) {
+		return getAST(Source.getChars(contents));
+	}
+
+	/**
+	 * Parse source files in a batch through a single parser, passing each
+	 * file's AST to the visitor as soon as it is parsed (ASTs are not kept)
+	 */
+	public static void getASTs(final Collection<File> files, final BiConsumer<File, CompilationUnit> visitor) {
+		astExtractor.getASTs(files, new HashSet<String>(), new FileASTRequestor() {
+			@Override
+			public void acceptAST(final String sourceFilePath, final CompilationUnit ast) {
+				visitor.accept(new File(sourceFilePath), ast);
+			}
+		});
+	}
+
 	private ASTVisitors() {
 	}
 
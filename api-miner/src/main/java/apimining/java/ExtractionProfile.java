@@ -0,0 +1,163 @@
+package apimining.java;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Per-file extraction timings (parse, process and output) for finding the
+ * pathological files that dominate extraction time. Keeps the slowest files,
+ * the files abandoned for exceeding the time budget and log-scale histograms
+ * of the time per file, and prints them as a report. Thread safe.
+ */
+public class ExtractionProfile {
+
+	/** Extraction stages */
+	public enum Stage {
+		PARSE, PROCESS, OUTPUT
+	}
+
+	/** Histogram buckets: < 1 ms, < 2 ms, < 4 ms, ..., >= 2^16 ms */
+	private static final int noBuckets = 18;
+
+	private static final Comparator<FileTiming> byTotal = Comparator.comparingLong(FileTiming::getTotal);
+
+	private final int noSlowest;
+
+	/** Slowest files (min-heap of at most noSlowest) */
+	private final PriorityQueue<FileTiming> slowest = new PriorityQueue<>(byTotal);
+
+	private final List<FileTiming> abandoned = new ArrayList<>();
+
+	/** Histograms of time per file for each stage and (last) in total */
+	private final long[][] histograms = new long[Stage.values().length + 1][noBuckets];
+
+	/** Total time for each stage */
+	private final long[] totalNanos = new long[Stage.values().length];
+
+	private int noFiles = 0;
+
+	/**
+	 * @param noSlowest
+	 *            number of slowest files to report
+	 */
+	public ExtractionProfile(final int noSlowest) {
+		this.noSlowest = noSlowest;
+	}
+
+	/** Timings of a single file */
+	public static class FileTiming {
+
+		private final String name;
+		private final long[] nanos = new long[Stage.values().length];
+		private Stage abandonedAt;
+
+		public FileTiming(final String name) {
+			this.name = name;
+		}
+
+		public void add(final Stage stage, final long nanos) {
+			this.nanos[stage.ordinal()] += nanos;
+		}
+
+		/** Record that the file was abandoned at the given stage */
+		public void abandon(final Stage stage) {
+			abandonedAt = stage;
+		}
+
+		/** Stage the file was abandoned at, or null if it wasn't */
+		public Stage getAbandonedAt() {
+			return abandonedAt;
+		}
+
+		public long getTotal() {
+			long total = 0;
+			for (final long n : nanos)
+				total += n;
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			String str = String.format("%10.1f ms (parse %.1f, process %.1f, output %.1f)  %s", millis(getTotal()),
+					millis(nanos[Stage.PARSE.ordinal()]), millis(nanos[Stage.PROCESS.ordinal()]),
+					millis(nanos[Stage.OUTPUT.ordinal()]), name);
+			if (abandonedAt != null)
+				str += "  [abandoned at " + abandonedAt + "]";
+			return str;
+		}
+	}
+
+	/** Add the timings of an extracted file */
+	public synchronized void add(final FileTiming timing) {
+		noFiles++;
+		for (final Stage stage : Stage.values()) {
+			totalNanos[stage.ordinal()] += timing.nanos[stage.ordinal()];
+			histograms[stage.ordinal()][getBucket(timing.nanos[stage.ordinal()])]++;
+		}
+		histograms[Stage.values().length][getBucket(timing.getTotal())]++;
+
+		if (timing.abandonedAt != null)
+			abandoned.add(timing);
+		if (noSlowest > 0) {
+			slowest.add(timing);
+			if (slowest.size() > noSlowest)
+				slowest.remove();
+		}
+	}
+
+	public synchronized void printReport(final PrintStream out) {
+		out.println("\n===== Extraction profile: " + noFiles + " files parsed, " + abandoned.size() + " abandoned");
+		out.println(String.format("Total time: parse %.1f s, process %.1f s, output %.1f s",
+				millis(totalNanos[Stage.PARSE.ordinal()]) / 1000, millis(totalNanos[Stage.PROCESS.ordinal()]) / 1000,
+				millis(totalNanos[Stage.OUTPUT.ordinal()]) / 1000));
+
+		final List<FileTiming> slowestFiles = new ArrayList<>(slowest);
+		Collections.sort(slowestFiles, byTotal.reversed());
+		out.println("Slowest files:");
+		for (final FileTiming timing : slowestFiles)
+			out.println(timing);
+
+		if (!abandoned.isEmpty()) {
+			out.println("Abandoned files (over time budget):");
+			for (final FileTiming timing : abandoned)
+				out.println(timing);
+		}
+
+		int lastBucket = 0;
+		for (final long[] histogram : histograms) {
+			for (int b = 0; b < noBuckets; b++) {
+				if (histogram[b] > 0)
+					lastBucket = Math.max(lastBucket, b);
+			}
+		}
+		out.println("Files per time bucket:");
+		out.println(String.format("%12s %10s %10s %10s %10s", "time", "parse", "process", "output", "total"));
+		for (int b = 0; b <= lastBucket; b++) {
+			out.print(String.format("%12s", getBucketLabel(b)));
+			for (final long[] histogram : histograms)
+				out.print(String.format(" %10d", histogram[b]));
+			out.println();
+		}
+	}
+
+	/** Log-scale histogram bucket for the given time */
+	static int getBucket(final long nanos) {
+		final long ms = nanos / 1_000_000;
+		return Math.min(noBuckets - 1, 64 - Long.numberOfLeadingZeros(ms));
+	}
+
+	static String getBucketLabel(final int bucket) {
+		if (bucket == noBuckets - 1)
+			return ">= " + (1 << (bucket - 1)) + " ms";
+		return "< " + (1 << bucket) + " ms";
+	}
+
+	private static double millis(final long nanos) {
+		return nanos / 1e6;
+	}
+
+}
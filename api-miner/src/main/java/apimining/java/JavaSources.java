@@ -0,0 +1,160 @@
+package apimining.java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Java source files in folders and zip/jar archives (e.g. source jars or
+ * repository snapshots). Archive entries are read straight from the archive
+ * into memory, without unpacking them to disk.
+ * <p>
+ * Sources are sorted by name, where an archive entry is named
+ * {@code archive.zip!/path/to/File.java}, so folders list in the same order as
+ * a sorted {@link FileUtils#listFiles}. Archives are kept open (reads are
+ * thread safe) until the set is closed.
+ */
+public class JavaSources implements Closeable {
+
+	/** Archive extensions */
+	private static final String[] archiveExtensions = new String[] { "zip", "jar" };
+
+	private final List<ZipFile> archives = new ArrayList<>();
+	private final List<Source> sources = new ArrayList<>();
+
+	/**
+	 * Open all java sources in the given folder (recursively, including
+	 * archives in it) or archive. If the given file does not exist but a .zip
+	 * or .jar archive of the same name does, the archive is opened.
+	 */
+	public static JavaSources open(final File folderOrArchive) throws IOException {
+		final JavaSources sources = new JavaSources();
+		try {
+			final File root = resolve(folderOrArchive);
+			if (root.isDirectory()) {
+				for (final File file : FileUtils.listFiles(root, new String[] { "java" }, true))
+					sources.sources.add(new Source(file));
+				for (final File archive : FileUtils.listFiles(root, archiveExtensions, true))
+					sources.addArchive(archive);
+			} else {
+				sources.addArchive(root);
+			}
+		} catch (final IOException | RuntimeException e) {
+			sources.close();
+			throw e;
+		}
+		Collections.sort(sources.sources);
+		return sources;
+	}
+
+	/** Get the given folder or its .zip/.jar archive if only that exists */
+	public static File resolve(final File folder) {
+		if (folder.exists())
+			return folder;
+		for (final String extension : archiveExtensions) {
+			final File archive = new File(folder.getPath() + "." + extension);
+			if (archive.exists())
+				return archive;
+		}
+		return folder;
+	}
+
+	private void addArchive(final File file) throws IOException {
+		final ZipFile archive = new ZipFile(file);
+		archives.add(archive);
+		final Enumeration<? extends ZipEntry> entries = archive.entries();
+		while (entries.hasMoreElements()) {
+			final ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && entry.getName().endsWith(".java"))
+				sources.add(new Source(archive, entry));
+		}
+	}
+
+	/** Sources sorted by name */
+	public List<Source> getSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (final ZipFile archive : archives)
+			archive.close();
+	}
+
+	/** A java source file or archive entry */
+	public static class Source implements Comparable<Source> {
+
+		private final String name;
+		private final File file;
+		private final ZipFile archive;
+		private final ZipEntry entry;
+
+		Source(final File file) {
+			this.name = file.getPath();
+			this.file = file;
+			this.archive = null;
+			this.entry = null;
+		}
+
+		Source(final ZipFile archive, final ZipEntry entry) {
+			this.name = archive.getName() + "!/" + entry.getName();
+			this.file = null;
+			this.archive = archive;
+			this.entry = entry;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/** The source file on disk, or null if it is in an archive */
+		public File getFile() {
+			return file;
+		}
+
+		/** Size in bytes (-1 if unknown) */
+		public long length() {
+			return file != null ? file.length() : entry.getSize();
+		}
+
+		public byte[] getBytes() throws IOException {
+			if (file != null)
+				return Files.readAllBytes(file.toPath());
+			try (final InputStream in = archive.getInputStream(entry)) {
+				return ByteStreams.toByteArray(in);
+			}
+		}
+
+		/**
+		 * Decode source contents (using the platform encoding, as for files
+		 * parsed from disk)
+		 */
+		public static char[] getChars(final byte[] contents) {
+			return new String(contents, Charset.defaultCharset()).toCharArray();
+		}
+
+		@Override
+		public int compareTo(final Source other) {
+			return name.compareTo(other.name);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package apimining.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Byte-level prefilter deciding whether a source file can contain API calls in
+ * the given namespaces, i.e. whether any namespace (e.g. org.apache.hadoop)
+ * occurs anywhere in the file. Calls are only resolved to a namespace via an
+ * import, a fully qualified name or the package declaration, all of which
+ * mention it, so files without a match need not be parsed.
+ * <p>
+ * Matching is a single pass of an Aho-Corasick automaton (compiled to a full
+ * byte transition table) over the raw file bytes. Thread safe.
+ */
+public class LexicalPrefilter {
+
+	/** Transition table: next state for (state << 8 | byte) */
+	private final int[] transitions;
+
+	/** Whether a namespace ends at each state */
+	private final boolean[] accepting;
+
+	/** Whether all files match (some namespace is empty) */
+	private final boolean matchAll;
+
+	public LexicalPrefilter(final String... namespaces) {
+		final List<byte[]> patterns = new ArrayList<>();
+		boolean matchAll = namespaces.length == 0;
+		for (final String namespace : namespaces) {
+			if (namespace.isEmpty())
+				matchAll = true;
+			patterns.add(namespace.getBytes(StandardCharsets.UTF_8));
+		}
+		this.matchAll = matchAll;
+
+		// Build trie
+		int noStates = 1;
+		for (final byte[] pattern : patterns)
+			noStates += pattern.length;
+		final int[] trie = new int[noStates << 8];
+		Arrays.fill(trie, -1);
+		final boolean[] accepting = new boolean[noStates];
+		int nextState = 1;
+		for (final byte[] pattern : patterns) {
+			int state = 0;
+			for (final byte b : pattern) {
+				final int t = state << 8 | b & 0xFF;
+				if (trie[t] < 0)
+					trie[t] = nextState++;
+				state = trie[t];
+			}
+			accepting[state] = true;
+		}
+
+		// Complete transitions with failure links (BFS from root)
+		final int[] fail = new int[nextState];
+		final Queue<Integer> queue = new ArrayDeque<>();
+		for (int b = 0; b < 256; b++) {
+			if (trie[b] < 0) {
+				trie[b] = 0;
+			} else {
+				fail[trie[b]] = 0;
+				queue.add(trie[b]);
+			}
+		}
+		while (!queue.isEmpty()) {
+			final int state = queue.remove();
+			accepting[state] |= accepting[fail[state]];
+			for (int b = 0; b < 256; b++) {
+				final int t = state << 8 | b;
+				if (trie[t] < 0) {
+					trie[t] = trie[fail[state] << 8 | b];
+				} else {
+					fail[trie[t]] = trie[fail[state] << 8 | b];
+					queue.add(trie[t]);
+				}
+			}
+		}
+
+		this.transitions = Arrays.copyOf(trie, nextState << 8);
+		this.accepting = Arrays.copyOf(accepting, nextState);
+	}
+
+	/** Whether the given file mentions any of the namespaces */
+	public boolean matches(final File file) throws IOException {
+		if (matchAll)
+			return true;
+		return matches(Files.readAllBytes(file.toPath()));
+	}
+
+	/** Whether the given bytes contain any of the namespaces */
+	public boolean matches(final byte[] contents) {
+		if (matchAll)
+			return true;
+		int state = 0;
+		for (final byte b : contents) {
+			state = transitions[state << 8 | b & 0xFF];
+			if (accepting[state])
+				return true;
+		}
+		return false;
+	}
+
+}
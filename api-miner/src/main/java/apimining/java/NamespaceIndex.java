@@ -0,0 +1,124 @@
+package apimining.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.io.Files;
+
+/**
+ * Process-wide index of the wildcard import namespaces in a namespace folder
+ * (as written by {@link WildcardNamespaceCollector}), shared across threads.
+ * <p>
+ * The class/ and method/ folders are listed once and each namespace file is
+ * read on first lookup (outside any lock, so a file may rarely be read twice
+ * by racing threads) into an immutable map from simple name to fully
+ * qualified name. Names are interned across namespaces so repeated
+ * packages and classes are only stored once.
+ */
+public class NamespaceIndex {
+
+	private static final Map<String, NamespaceIndex> indices = new ConcurrentHashMap<>();
+	private static final NamespaceIndex EMPTY = new NamespaceIndex(null);
+
+	private final Interner<String> interner = Interners.newStrongInterner();
+
+	/** Namespace files by wildcard import */
+	private final Map<String, File> classFiles;
+	private final Map<String, File> methodFiles;
+
+	/** Loaded namespaces by wildcard import */
+	private final Map<String, Map<String, String>> classes = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, String>> methods = new ConcurrentHashMap<>();
+
+	private NamespaceIndex(final String namespaceFolder) {
+		classFiles = listNamespaces(namespaceFolder, "class");
+		methodFiles = listNamespaces(namespaceFolder, "method");
+	}
+
+	/**
+	 * Get the shared index for the given namespace folder (an empty index if
+	 * null)
+	 */
+	public static NamespaceIndex get(final String namespaceFolder) {
+		if (namespaceFolder == null)
+			return EMPTY;
+		return indices.computeIfAbsent(new File(namespaceFolder).getAbsolutePath(), NamespaceIndex::new);
+	}
+
+	/**
+	 * Get map between simple class names and their fqNames for the given
+	 * wildcard import, or null if there is no namespace file for it
+	 */
+	public Map<String, String> getClasses(final String wildcardImport) {
+		final File file = classFiles.get(wildcardImport);
+		if (file == null)
+			return null;
+		final Map<String, String> loaded = classes.get(wildcardImport);
+		if (loaded != null)
+			return loaded;
+		final Map<String, String> names = new HashMap<>();
+		for (final String qName : readLines(file))
+			names.put(interner.intern(qName.substring(qName.lastIndexOf('.') + 1)), interner.intern(qName));
+		return putIfAbsent(classes, wildcardImport, ImmutableMap.copyOf(names));
+	}
+
+	/**
+	 * Get map between statically imported method names and their class
+	 * fqNames for the given static wildcard import, or null if there is no
+	 * namespace file for it
+	 */
+	public Map<String, String> getMethods(final String wildcardImport) {
+		final File file = methodFiles.get(wildcardImport);
+		if (file == null)
+			return null;
+		final Map<String, String> loaded = methods.get(wildcardImport);
+		if (loaded != null)
+			return loaded;
+		final Map<String, String> names = new HashMap<>();
+		for (final String qName : readLines(file)) {
+			final String name = qName.substring(qName.lastIndexOf('.') + 1);
+			if (Character.isLowerCase(name.charAt(0)))
+				names.put(interner.intern(name), interner.intern(qName.substring(0, qName.lastIndexOf('.'))));
+		}
+		return putIfAbsent(methods, wildcardImport, ImmutableMap.copyOf(names));
+	}
+
+	/** Cache the namespace unless a racing thread already did, returning the cached one */
+	private static Map<String, String> putIfAbsent(final Map<String, Map<String, String>> loaded,
+			final String wildcardImport, final Map<String, String> names) {
+		final Map<String, String> previous = loaded.putIfAbsent(wildcardImport, names);
+		return previous == null ? names : previous;
+	}
+
+	private static Map<String, File> listNamespaces(final String namespaceFolder, final String type) {
+		final Map<String, File> namespaces = new HashMap<>();
+		if (namespaceFolder != null) {
+			final File[] files = new File(namespaceFolder, type).listFiles();
+			if (files != null) {
+				for (final File file : files) {
+					if (file.isFile())
+						namespaces.put(file.getName(), file);
+				}
+			}
+		}
+		return namespaces;
+	}
+
+	private static Iterable<String> readLines(final File file) {
+		try {
+			return Files.readLines(file, Charsets.UTF_8);
+		} catch (final IOException e) {
+			System.out.println("***** WARNING: Unable to read namespace file " + file + ": " + e);
+			return Collections.emptyList();
+		}
+	}
+
+}
@@ -3,18 +3,25 @@ package apimining.java;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 
 import apimining.java.ASTVisitors.FQImportVisitor;
 import apimining.java.ASTVisitors.WildcardImportVisitor;
+import apimining.java.JavaSources.Source;
 
 /**
  * Collector for wildcard namespaces
+ * <p>
+ * Each file is parsed once (in parallel) for both its wildcard and fq imports,
+ * and the namespace files are written sorted.
  *
  * @author Jaroslav Fowkes <jaroslav.fowkes@ed.ac.uk>
  */
@@ -45,72 +52,118 @@ public class WildcardNamespaceCollector {
 		for (int i = 0; i < packageNames.length; i++) {
 			System.out.println("===== Package " + projFolders[i] + ", namespace " + packageNames[i]);
 
-			final List<File> files = (List<File>) FileUtils.listFiles(new File(libFolder + projFolders[i]),
-					new String[] { "java" }, true);
-			final List<File> filesEx = (List<File>) FileUtils.listFiles(new File(exampleFolder + projFolders[i]),
-					new String[] { "java" }, true);
-			files.addAll(filesEx);
-			Collections.sort(files);
-
-			final WildcardImportVisitor wiv = getWildcardImports(packageNames[i], files);
-			final List<File> filesSrc = new ArrayList<>();
-			for (final String srcDir : srcFolders[i])
-				filesSrc.addAll((List<File>) FileUtils.listFiles(new File(corpusFolder + srcDir),
-						new String[] { "java" }, true));
-			files.addAll(filesSrc);
-			writeNamespaces("class", wiv.wildcardImports, files);
-			writeNamespaces("method", wiv.wildcardMethodImports, files);
+			// Source folders or archives
+			final List<JavaSources> sources = new ArrayList<>();
+			try {
+				// Wildcard imports are taken from library and example files,
+				// fq imports from these and the corpus
+				sources.add(JavaSources.open(new File(libFolder + projFolders[i])));
+				sources.add(JavaSources.open(new File(exampleFolder + projFolders[i])));
+				final List<Source> files = new ArrayList<>();
+				for (final JavaSources source : sources)
+					files.addAll(source.getSources());
+				final List<Source> filesSrc = new ArrayList<>();
+				for (final String srcDir : srcFolders[i]) {
+					final JavaSources corpusSources = JavaSources.open(new File(corpusFolder + srcDir));
+					sources.add(corpusSources);
+					filesSrc.addAll(corpusSources.getSources());
+				}
+
+				final Imports imports = collectImports(packageNames[i], files, true)
+						.merge(collectImports(packageNames[i], filesSrc, false));
+				writeNamespaces("class", imports.wildcardImports, imports.fqImports);
+				writeNamespaces("method", imports.wildcardMethodImports, imports.fqMethodImports);
+			} finally {
+				for (final JavaSources source : sources)
+					source.close();
+			}
 		}
 
 	}
 
-	public static WildcardImportVisitor getWildcardImports(final String packageName, final List<File> files) {
-
-		final WildcardImportVisitor wiv = new WildcardImportVisitor(packageName.replaceAll("\\.", "\\\\.") + ".*");
-
-		for (final File file : files) {
-
-			if (file.length() == 0)
-				continue; // Ignore empty files
-
-			wiv.process(ASTVisitors.getAST(file));
-		}
-
-		return wiv;
+	/**
+	 * Collect imports from the given package in a single parallel pass over
+	 * the given files: each worker accumulates a partial set of imports and
+	 * the partial sets are merged
+	 *
+	 * @param wildcards
+	 *            whether to collect wildcard imports (as well as fq imports)
+	 */
+	public static Imports collectImports(final String packageName, final List<Source> files,
+			final boolean wildcards) {
+		final String pattern = packageName.replaceAll("\\.", "\\\\.") + ".*";
+		return files.parallelStream().filter(file -> file.length() != 0) // Ignore empty files
+				.collect(Imports::new, (imports, file) -> imports.add(file, pattern, wildcards), Imports::merge);
 	}
 
-	public static void writeNamespaces(final String type, final Set<String> namespaces, final List<File> files)
+	/**
+	 * Write the fq imports matching each wildcard import namespace to a
+	 * namespace file (sorted)
+	 */
+	public static void writeNamespaces(final String type, final Set<String> namespaces, final Set<String> fqImports)
 			throws IOException {
 		if (!namespaces.isEmpty())
 			System.out.println("Looking for " + type + " namespaces for: ");
 
-		// Class namespaces
-		for (final String namespace : namespaces) {
+		for (final String namespace : new TreeSet<>(namespaces)) {
 			System.out.println("      " + namespace);
 
-			final FQImportVisitor fqiv = new FQImportVisitor(namespace.replaceAll("\\.", "\\\\.") + ".*");
-			for (final File file : files) {
-
-				if (file.length() == 0)
-					continue; // Ignore empty files
-
-				fqiv.process(ASTVisitors.getAST(file));
+			final Pattern pattern = Pattern.compile(namespace.replaceAll("\\.", "\\\\.") + ".*");
+			final Set<String> namespaceImports = new TreeSet<>();
+			for (final String fqImport : fqImports) {
+				if (pattern.matcher(fqImport).matches())
+					namespaceImports.add(fqImport);
 			}
 
-			Set<String> fqImports;
-			if (type.equals("class"))
-				fqImports = fqiv.fqImports;
-			else
-				fqImports = fqiv.fqMethodImports;
-
-			if (!fqImports.isEmpty()) {
+			if (!namespaceImports.isEmpty()) {
 				final PrintWriter out = new PrintWriter(new File(namespaceFolder + "/" + type + "/" + namespace),
 						"UTF-8");
-				for (final String fqName : fqImports)
+				for (final String fqName : namespaceImports)
 					out.println(fqName);
 				out.close();
 			}
 		}
 	}
 
+	/** Mergeable (partial) sets of wildcard and fq imports */
+	public static class Imports {
+
+		public final Set<String> wildcardImports = new HashSet<>();
+		public final Set<String> wildcardMethodImports = new HashSet<>();
+		public final Set<String> fqImports = new HashSet<>();
+		public final Set<String> fqMethodImports = new HashSet<>();
+
+		/** Add imports matching the given pattern in the given file */
+		void add(final Source file, final String pattern, final boolean wildcards) {
+			final CompilationUnit cu;
+			try {
+				cu = ASTVisitors.getAST(file);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (cu == null)
+				return;
+
+			if (wildcards) {
+				final WildcardImportVisitor wiv = new WildcardImportVisitor(pattern);
+				wiv.process(cu);
+				wildcardImports.addAll(wiv.wildcardImports);
+				wildcardMethodImports.addAll(wiv.wildcardMethodImports);
+			}
+			final FQImportVisitor fqiv = new FQImportVisitor(pattern);
+			fqiv.process(cu);
+			fqImports.addAll(fqiv.fqImports);
+			fqMethodImports.addAll(fqiv.fqMethodImports);
+		}
+
+		/** Merge the given imports into these */
+		public Imports merge(final Imports other) {
+			wildcardImports.addAll(other.wildcardImports);
+			wildcardMethodImports.addAll(other.wildcardMethodImports);
+			fqImports.addAll(other.fqImports);
+			fqMethodImports.addAll(other.fqMethodImports);
+			return this;
+		}
+	}
+
 }
@@ -2,9 +2,10 @@ package apimining.mapo;
 
 import java.awt.Container;
 import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -15,13 +16,12 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
-import apimining.upminer.NewickTreeParser;
-import weka.clusterers.HierarchicalClusterer;
-import weka.core.DistanceFunction;
-import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.converters.ConverterUtils.DataSource;
-import weka.core.neighboursearch.PerformanceStats;
+import apimining.clustering.CompleteLinkage;
+import apimining.clustering.Dendrogram;
+import apimining.clustering.DendrogramCache;
+import apimining.clustering.DistanceMatrix;
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
 import weka.gui.hierarchyvisualizer.HierarchyVisualizer;
 
 public class APICallClustererMAPO {
@@ -46,173 +46,122 @@ public class APICallClustererMAPO {
 	 */
 	public static Multimap<Integer, String> clusterAPICallSeqs(final String arffFile, final double threshold)
 			throws Exception {
+		return clusterAPICallSeqs(arffFile, threshold, null);
+	}
 
-		// Clusterer settings
-		final HierarchicalClusterer clusterer = new HierarchicalClusterer();
-		clusterer.setOptions(new String[] { "-L", "COMPLETE" }); // link type
-		clusterer.setDebug(true);
-		clusterer.setNumClusters(1);
-		clusterer.setDistanceFunction(MAPOSimilarity);
-		clusterer.setDistanceIsBranchLength(false);
+	/**
+	 * Cluster API call sequences as described in MAPO, reusing the cached
+	 * dendrogram of the dataset if there is one
+	 *
+	 * @param cache
+	 *            cache of dendrograms, or null to always cluster
+	 * @return Multimap of cluster IDs to API call sequences
+	 */
+	public static Multimap<Integer, String> clusterAPICallSeqs(final String arffFile, final double threshold,
+			final DendrogramCache cache) throws Exception {
 
 		// Read in API call seqs
-		final DataSource source = new DataSource(arffFile);
-		final Instances data = source.getDataSet();
+		final CallDataset dataset = ArffCallReader.read(new File(arffFile));
+		if (dataset.size() == 0) // Handle no clusters
+			return HashMultimap.create();
 
-		// Cluster API call seqs
-		clusterer.buildClusterer(data);
+		// Cluster API call seqs (complete linkage)
+		final Dendrogram dendrogram = cache == null ? cluster(dataset)
+				: cache.get(dataset, "MAPO complete linkage", () -> cluster(dataset));
 
 		// Assign seqs to clusters based on dendrogram
-		final String newick = clusterer.graph().replace("Newick:", "") + ":0";
-		if (newick.equals("(no,clusters):0")) // Handle no clusters
-			return HashMultimap.create();
-		final Multimap<Integer, String> clusters = NewickTreeParser.getClusters(newick, threshold);
-		System.out.println("No. clusters: " + clusters.keySet().size());
-		final Multimap<Integer, String> assignments = HashMultimap.create();
-		for (int i = 0; i < data.numInstances(); i++) {
-			for (final int id : clusters.keySet()) {
-				if (clusters.get(id).contains(data.instance(i).stringValue(0)))
-					assignments.put(id, data.instance(i).stringValue(1));
-			}
-		}
+		final int[] clusters = dendrogram.cut(threshold);
+		return getAssignments(dataset, clusters);
+	}
+
+	/** Complete linkage dendrogram of the given API call seqs */
+	public static Dendrogram cluster(final CallDataset dataset) throws IOException {
+		return CompleteLinkage.cluster(DistanceMatrix.compute(dataset.size(), new MAPOFeatures(dataset), System.out));
+	}
+
+	/**
+	 * Assign seqs to clusters as done from the Newick dendrogram, i.e. seqs go
+	 * to all clusters containing their caller
+	 */
+	private static Multimap<Integer, String> getAssignments(final CallDataset dataset, final int[] clusters) {
 
-		// showDendrogram(clusterer);
+		// Cut clusters containing each caller
+		final Multimap<Integer, Integer> callerClusters = HashMultimap.create();
+		for (int i = 0; i < dataset.size(); i++)
+			callerClusters.put(dataset.getCaller(i), clusters[i]);
+		System.out.println("No. clusters: " + new HashSet<>(callerClusters.values()).size());
 
+		// Emit each seq to the clusters of its caller
+		final Multimap<Integer, String> assignments = HashMultimap.create();
+		for (int i = 0; i < dataset.size(); i++) {
+			final String callSeq = String.join(" ", dataset.getCallNames(i));
+			for (final int id : callerClusters.get(dataset.getCaller(i)))
+				assignments.put(id, callSeq);
+		}
 		return assignments;
 	}
 
-	public static void showDendrogram(final HierarchicalClusterer clusterer) throws Exception {
+	/**
+	 * Show the given dendrogram in Weka's HierarchyVisualizer, with the
+	 * callers as leaf names
+	 */
+	public static void showDendrogram(final Dendrogram dendrogram, final CallDataset dataset) {
+		final String[] names = new String[dataset.size()];
+		for (int i = 0; i < dataset.size(); i++)
+			names[i] = dataset.getCallerName(i);
+
 		final JFrame mainFrame = new JFrame("Dendrogram");
 		mainFrame.setSize(1024, 768);
 		mainFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 		final Container content = mainFrame.getContentPane();
 		content.setLayout(new GridLayout(1, 1));
 
-		final HierarchyVisualizer visualizer = new HierarchyVisualizer(clusterer.graph());
+		final HierarchyVisualizer visualizer = new HierarchyVisualizer("Newick:" + dendrogram.toNewick(names));
 		content.add(visualizer);
 
 		mainFrame.setVisible(true);
 	}
 
-	private static final DistanceFunction MAPOSimilarity = new DistanceFunction() {
-
-		@SuppressWarnings("rawtypes")
-		@Override
-		public Enumeration listOptions() {
-			// we have no distance options
-			return null;
-		}
-
-		@Override
-		public void setOptions(final String[] options) throws Exception {
-			// we have no distance options
-		}
-
-		@Override
-		public String[] getOptions() {
-			// we have no distance options
-			return null;
-		}
-
-		@Override
-		public void setInstances(final Instances insts) {
-			// we don't use internal instances
-		}
-
-		@Override
-		public Instances getInstances() {
-			// we don't use internal instances
-			return null;
-		}
-
-		@Override
-		public void setAttributeIndices(final String value) {
-			// we use all attributes
-		}
-
-		@Override
-		public String getAttributeIndices() {
-			// we use all attributes
-			return null;
-		}
-
-		@Override
-		public void setInvertSelection(final boolean value) {
-			// we use all attributes
-		}
-
-		@Override
-		public boolean getInvertSelection() {
-			// we use all attributes
-			return false;
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second) {
-			return distance(first, second, null);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final PerformanceStats stats) {
-			return distance(first, second, Double.POSITIVE_INFINITY, stats);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final double cutOffValue) {
-			return distance(first, second, cutOffValue, null);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final double cutOffValue,
-				final PerformanceStats stats) {
-
-			final String[] fqCaller1 = first.stringValue(0).split("\\.");
-			final String[] fqCaller2 = second.stringValue(0).split("\\.");
-			final double methodDist = getNameDistance(fqCaller1[fqCaller1.length - 1], fqCaller2[fqCaller2.length - 1]);
-			final double classDist = getNameDistance(fqCaller1[fqCaller1.length - 2], fqCaller2[fqCaller2.length - 2]);
+	/**
+	 * MAPO distance between two (fqCaller, fqCalls) instances
+	 *
+	 * @see MAPOFeatures
+	 */
+	public static double getDistance(final String fqCaller1, final String fqCalls1, final String fqCaller2,
+			final String fqCalls2) {
 
-			final String[] fqCalls1 = first.stringValue(1).split(" ");
-			final String[] fqCalls2 = second.stringValue(1).split(" ");
-			final double seqDist = getSeqDistance(new HashSet<>(Arrays.asList(fqCalls1)),
-					new HashSet<>(Arrays.asList(fqCalls2)));
+		final String[] fqCallerParts1 = fqCaller1.split("\\.");
+		final String[] fqCallerParts2 = fqCaller2.split("\\.");
+		final double methodDist = getNameDistance(fqCallerParts1[fqCallerParts1.length - 1],
+				fqCallerParts2[fqCallerParts2.length - 1]);
+		final double classDist = getNameDistance(fqCallerParts1[fqCallerParts1.length - 2],
+				fqCallerParts2[fqCallerParts2.length - 2]);
 
-			if (stats != null)
-				stats.incrCoordCount();
+		final double seqDist = getSeqDistance(new HashSet<>(Arrays.asList(fqCalls1.split(" "))),
+				new HashSet<>(Arrays.asList(fqCalls2.split(" "))));
 
-			return (methodDist + classDist + seqDist) / 3.;
-		}
+		return (methodDist + classDist + seqDist) / 3.;
+	}
 
-		private double getNameDistance(final String string1, final String string2) {
-			final List<String> words1 = new ArrayList<>();
-			final List<String> words2 = new ArrayList<>();
-			putTokenParts(words1, string1);
-			putTokenParts(words2, string2);
-			double distance = 0;
-			for (final String word1 : words1) {
-				for (final String word2 : words2) {
-					distance += editDistance(word1, word2);
-				}
+	private static double getNameDistance(final String string1, final String string2) {
+		final List<String> words1 = new ArrayList<>();
+		final List<String> words2 = new ArrayList<>();
+		putTokenParts(words1, string1);
+		putTokenParts(words2, string2);
+		double distance = 0;
+		for (final String word1 : words1) {
+			for (final String word2 : words2) {
+				distance += editDistance(word1, word2);
 			}
-			return distance / (words1.size() * words2.size());
-		}
-
-		private double getSeqDistance(final Set<String> set1, final Set<String> set2) {
-			final double sizeIntersection = Sets.intersection(set1, set2).size();
-			final double sizeUnion = Sets.union(set1, set2).size();
-			return sizeIntersection / sizeUnion;
-		}
-
-		@Override
-		public void postProcessDistances(final double[] distances) {
-			// no need to post process distances
-		}
-
-		@Override
-		public void update(final Instance ins) {
-			// we use all attributes
 		}
+		return distance / (words1.size() * words2.size());
+	}
 
-	};
+	private static double getSeqDistance(final Set<String> set1, final Set<String> set2) {
+		final double sizeIntersection = Sets.intersection(set1, set2).size();
+		final double sizeUnion = Sets.union(set1, set2).size();
+		return sizeIntersection / sizeUnion;
+	}
 
 	/**
 	 * Calculate the Levenshtein distance between two strings using the
@@ -220,7 +169,7 @@ public class APICallClustererMAPO {
 	 *
 	 * @see http://en.wikipedia.org/wiki/Levenshtein_distance
 	 */
-	private static int editDistance(final String s, final String t) {
+	static int editDistance(final String s, final String t) {
 		final int m = s.length();
 		final int n = t.length();
 
@@ -5,7 +5,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
@@ -14,12 +17,16 @@ import org.apache.commons.io.FilenameUtils;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Multimap;
 
+import apimining.clustering.DendrogramCache;
+import apimining.fsminer.CallSequenceDatabase;
 import apimining.fsminer.FrequentSequenceMiner;
 import apimining.fsminer.Sequence;
+import apimining.io.CompressedFiles;
+import apimining.io.CompressedFiles.Compression;
+import apimining.io.PatternSet;
+import apimining.io.PatternSet.Miner;
 
 public class MAPO {
 
@@ -35,6 +42,18 @@ public class MAPO {
 		@Parameter(names = { "-s", "--support" }, description = "Minimum support threshold")
 		double minSupp = 0.1;
 
+		@Parameter(names = { "-c", "--compress" }, description = "Compress output files (gz or zst)")
+		String compress = "";
+
+		@Parameter(names = { "-x", "--text" }, description = "Write text output (binary .pat output is always written)", arity = 1)
+		boolean textOutput = true;
+
+		@Parameter(names = { "-S", "--supports" }, description = "Comma separated minimum support thresholds to mine without prompting, each into its own subfolder of the output folder")
+		String supports = "";
+
+		@Parameter(names = { "-k", "--cache" }, description = "Folder caching clustering dendrograms, keyed by the ARFF data records (no caching if empty)")
+		String cacheFolder = "";
+
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -48,7 +67,15 @@ public class MAPO {
 
 			// Mine project
 			System.out.println("Processing " + FilenameUtils.getBaseName(params.arffFile) + "...");
-			mineAPICallSequences(params.arffFile, params.outFolder, 0.4, params.minSupp);
+			final String outExtension = ".txt" + Compression.forName(params.compress).getExtension();
+			final DendrogramCache cache = params.cacheFolder.isEmpty() ? null
+					: new DendrogramCache(new File(params.cacheFolder));
+			if (params.supports.isEmpty())
+				mineAPICallSequences(params.arffFile, params.outFolder, 0.4, params.minSupp, outExtension,
+						params.textOutput, cache);
+			else
+				mineAPICallSequences(params.arffFile, params.outFolder, 0.4,
+						CallSequenceDatabase.parseSupports(params.supports), outExtension, params.textOutput, cache);
 
 		} catch (final ParameterException e) {
 			System.out.println(e.getMessage());
@@ -58,21 +85,28 @@ public class MAPO {
 	}
 
 	/**
-	 * Mine API call sequences using MAPO
+	 * Mine API call sequences using MAPO, prompting for minimum support
+	 * thresholds until a non-positive one is entered
 	 *
 	 * @param arffFile
 	 *            API calls in ARF Format. Attributes are fqCaller and fqCalls
-	 *            as space separated string of API calls.
+	 *            as space separated string of API calls. May be gzip (.gz) or
+	 *            zstd (.zst) compressed.
+	 * @param outExtension
+	 *            extension of the output files, compressed if it ends in .gz or
+	 *            .zst
+	 * @param textOutput
+	 *            whether to write the per-cluster text output files in
+	 *            addition to the binary pattern file
+	 * @param cache
+	 *            cache of clustering dendrograms, or null to always cluster
 	 */
 	public static void mineAPICallSequences(final String arffFile, final String outFolder, final double threshold,
-			double minSupp) throws Exception {
+			double minSupp, final String outExtension, final boolean textOutput, final DendrogramCache cache)
+			throws Exception {
 
 		new File(outFolder).mkdirs();
-
-		System.out.print("===== Clustering call sequences... ");
-		final Multimap<Integer, String> clusteredCallSeqs = APICallClustererMAPO.clusterAPICallSeqs(arffFile,
-				threshold);
-		System.out.println("done. Number of clusters: " + clusteredCallSeqs.keySet().size());
+		final List<CallSequenceDatabase> databases = clusterAPICallSequences(arffFile, threshold, cache);
 
 		final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 		while (true) {
@@ -86,70 +120,93 @@ public class MAPO {
 			if (minSupp <= 0)
 				break;
 
-			int count = 0;
-			for (final Collection<String> callSeqs : clusteredCallSeqs.asMap().values()) {
+			mineFrequentSequences(databases, Collections.singletonList(minSupp),
+					Collections.singletonList(new File(outFolder)), outExtension, textOutput);
+		}
+	}
 
-				System.out.println("+++++ Processing cluster #" + count);
+	/**
+	 * Mine API call sequences using MAPO at each of the given minimum support
+	 * thresholds, clustering only once and mining all clusters at all
+	 * thresholds in parallel. The output for each threshold is written to the
+	 * subfolder minSupp{threshold} of the output folder.
+	 *
+	 * @see #mineAPICallSequences(String, String, double, double, String,
+	 *      boolean, DendrogramCache)
+	 */
+	public static void mineAPICallSequences(final String arffFile, final String outFolder, final double threshold,
+			final List<Double> supports, final String outExtension, final boolean textOutput,
+			final DendrogramCache cache) throws Exception {
 
-				System.out.print("  Creating temporary transaction DB... ");
-				final File transactionDB = File.createTempFile("APICallDB", ".txt");
-				final BiMap<String, Integer> dictionary = HashBiMap.create();
-				generateTransactionDatabase(callSeqs, dictionary, transactionDB);
-				System.out.println("done.");
+		final List<File> outFolders = new ArrayList<>();
+		for (final double minSupp : supports) {
+			outFolders.add(new File(outFolder, "minSupp" + minSupp));
+			outFolders.get(outFolders.size() - 1).mkdirs();
+		}
+		final List<CallSequenceDatabase> databases = clusterAPICallSequences(arffFile, threshold, cache);
 
-				System.out.print("  Mining frequent sequences... ");
-				final File freqSeqs = File.createTempFile("APICallSeqs", ".txt");
-				FrequentSequenceMiner.mineFrequentSequencesSPAM(transactionDB.getAbsolutePath(),
-						freqSeqs.getAbsolutePath(), minSupp);
-				transactionDB.delete();
-				System.out.println("done.");
+		mineFrequentSequences(databases, supports, outFolders, outExtension, textOutput);
+	}
 
-				final File outFile = new File(outFolder + "/Cluster" + count + "FreqCallSeqs.txt");
-				decodeFrequentSequences(freqSeqs, dictionary, outFile);
-				freqSeqs.delete();
+	/** Cluster API call sequences, returning the sequence database of each cluster */
+	private static List<CallSequenceDatabase> clusterAPICallSequences(final String arffFile, final double threshold,
+			final DendrogramCache cache) throws Exception {
 
-				count++;
-			}
+		System.out.print("===== Clustering call sequences... ");
+		final Multimap<Integer, String> clusteredCallSeqs = APICallClustererMAPO.clusterAPICallSeqs(arffFile,
+				threshold, cache);
+		System.out.println("done. Number of clusters: " + clusteredCallSeqs.keySet().size());
 
-		}
+		final List<CallSequenceDatabase> databases = new ArrayList<>();
+		for (final Collection<String> callSeqs : clusteredCallSeqs.asMap().values())
+			databases.add(new CallSequenceDatabase(callSeqs));
+		return databases;
 	}
 
-	private static void generateTransactionDatabase(final Collection<String> callSeqs,
-			final BiMap<String, Integer> dictionary, final File transactionDB) throws IOException {
-
-		final PrintWriter out = new PrintWriter(transactionDB);
-
-		int mID = 0;
-		for (final String callSeq : callSeqs) {
-			for (final String call : callSeq.split(" ")) {
-				if (dictionary.containsKey(call)) {
-					final int ID = dictionary.get(call);
-					out.print(ID + " -1 ");
-				} else {
-					out.print(mID + " -1 ");
-					dictionary.put(call, mID);
-					mID++;
-				}
+	/**
+	 * Mine the frequent sequences of all clusters at all the given minimum
+	 * support thresholds, writing the output for each to its folder
+	 */
+	private static void mineFrequentSequences(final List<CallSequenceDatabase> databases,
+			final List<Double> supports, final List<File> outFolders, final String outExtension,
+			final boolean textOutput) throws IOException {
+
+		System.out.print("===== Mining frequent sequences of " + databases.size() + " clusters at minSupp "
+				+ supports + "... ");
+		final List<List<SortedMap<Sequence, Integer>>> freqSeqs = CallSequenceDatabase.mine(databases, supports,
+				FrequentSequenceMiner::mineFrequentSequencesPrefixSpan);
+		System.out.println("done.");
+
+		for (int s = 0; s < supports.size(); s++) {
+			final String outFolder = outFolders.get(s).getPath();
+			final PatternSet.Builder patterns = new PatternSet.Builder(Miner.MAPO);
+			for (int count = 0; count < databases.size(); count++) {
+				final File outFile = new File(outFolder + "/Cluster" + count + "FreqCallSeqs" + outExtension);
+				decodeFrequentSequences(freqSeqs.get(s).get(count), databases.get(count), count, patterns,
+						textOutput ? outFile : null);
 			}
-			out.println("-2");
+			patterns.write(PatternSet.getBinaryFile(new File(outFolder + "/FreqCallSeqs" + outExtension)));
 		}
-		out.close();
 	}
 
-	private static void decodeFrequentSequences(final File seqFile, final BiMap<String, Integer> dictionary,
+	private static void decodeFrequentSequences(final SortedMap<Sequence, Integer> freqSeqs,
+			final CallSequenceDatabase database, final int cluster, final PatternSet.Builder patterns,
 			final File outFile) throws IOException {
 
-		final SortedMap<Sequence, Integer> freqSeqs = FrequentSequenceMiner.readFrequentSequences(seqFile);
-
-		final PrintWriter out = new PrintWriter(outFile);
-		for (final Entry<Sequence, Integer> entry : freqSeqs.entrySet()) {
-			out.println("supp: " + entry.getValue());
-			for (final int item : entry.getKey())
-				out.print(dictionary.inverse().get(item) + " ");
-			out.println();
-			out.println();
+		for (final Entry<Sequence, Integer> entry : freqSeqs.entrySet())
+			patterns.add(cluster, database.decode(entry.getKey()), Double.NaN, Double.NaN, entry.getValue());
+
+		if (outFile != null) {
+			final PrintWriter out = CompressedFiles.newWriter(outFile);
+			for (final Entry<Sequence, Integer> entry : freqSeqs.entrySet()) {
+				out.println("supp: " + entry.getValue());
+				for (final int item : entry.getKey())
+					out.print(database.getCall(item) + " ");
+				out.println();
+				out.println();
+			}
+			out.close();
 		}
-		out.close();
 
 	}
 
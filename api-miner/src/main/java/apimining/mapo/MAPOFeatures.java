@@ -0,0 +1,261 @@
+package apimining.mapo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import apimining.clustering.DistanceMatrix;
+import apimining.io.CallDataset;
+
+/**
+ * Per-instance features for the MAPO distance, computed once per dataset
+ * rather than once per pair of instances: the camel case word parts of the
+ * caller's method and class names as interned word IDs and the set of calls
+ * as a sorted array of call IDs.
+ * <p>
+ * The edit distance between two words is computed once per pair of word IDs
+ * (as the vocabulary of word parts is small and repeats constantly) with the
+ * bit-parallel algorithm of Myers and cached.
+ * <p>
+ * Gives exactly the same distance as the MAPO Weka distance function.
+ */
+public class MAPOFeatures implements DistanceMatrix.Distance {
+
+	/** Call ID standing for the empty call of a record without calls */
+	private static final int EMPTY_CALL = -1;
+
+	/** Maximum number of words for which to cache word pair distances */
+	private static final int MAX_CACHED_WORDS = 5792;
+
+	private final List<String> words = new ArrayList<>();
+
+	/** Distinct characters of each word and their positions as bit masks */
+	private final char[][] wordChars;
+	private final long[][] wordMasks;
+
+	/**
+	 * Edit distance of each pair of distinct word IDs (as a condensed
+	 * triangle) once computed, -1 before, or null if there are too many words
+	 */
+	private final short[] wordDistances;
+
+	/** Word IDs of the method and class name of each caller ID */
+	private final int[][] methodWords;
+	private final int[][] classWords;
+
+	private final int[] callers;
+
+	/** Sorted distinct call IDs of each record */
+	private final int[][] calls;
+
+	public MAPOFeatures(final CallDataset dataset) {
+		final Map<String, Integer> wordIDs = new HashMap<>();
+		final int noCallers = dataset.getCallerDictionary().size();
+		methodWords = new int[noCallers][];
+		classWords = new int[noCallers][];
+		for (int caller = 0; caller < noCallers; caller++) {
+			final String[] fqCaller = dataset.getCallerDictionary().get(caller).split("\\.");
+			methodWords[caller] = getWordIDs(fqCaller[fqCaller.length - 1], wordIDs);
+			classWords[caller] = getWordIDs(fqCaller[fqCaller.length - 2], wordIDs);
+		}
+
+		wordChars = new char[words.size()][];
+		wordMasks = new long[words.size()][];
+		for (int word = 0; word < words.size(); word++) {
+			if (words.get(word).length() <= 64) {
+				wordChars[word] = getDistinctChars(words.get(word));
+				wordMasks[word] = getMasks(words.get(word), wordChars[word]);
+			}
+		}
+		if (words.size() <= MAX_CACHED_WORDS) {
+			wordDistances = new short[words.size() * (words.size() - 1) / 2];
+			Arrays.fill(wordDistances, (short) -1);
+		} else {
+			wordDistances = null;
+		}
+
+		callers = new int[dataset.size()];
+		calls = new int[dataset.size()][];
+		for (int i = 0; i < dataset.size(); i++) {
+			callers[i] = dataset.getCaller(i);
+			calls[i] = getDistinctCalls(dataset, i);
+		}
+	}
+
+	private int[] getWordIDs(final String name, final Map<String, Integer> wordIDs) {
+		final List<String> nameWords = new ArrayList<>();
+		APICallClustererMAPO.putTokenParts(nameWords, name);
+		final int[] ids = new int[nameWords.size()];
+		for (int k = 0; k < ids.length; k++) {
+			Integer id = wordIDs.get(nameWords.get(k));
+			if (id == null) {
+				id = words.size();
+				wordIDs.put(nameWords.get(k), id);
+				words.add(nameWords.get(k));
+			}
+			ids[k] = id;
+		}
+		return ids;
+	}
+
+	/**
+	 * Sorted distinct call IDs of the given record (as the record's calls
+	 * split on spaces, so a record without calls has the empty call)
+	 */
+	static int[] getDistinctCalls(final CallDataset dataset, final int record) {
+		if (dataset.getNoCalls(record) == 0)
+			return new int[] { EMPTY_CALL };
+		final int[] calls = dataset.getCalls(record);
+		Arrays.sort(calls);
+		int size = 1;
+		for (int k = 1; k < calls.length; k++) {
+			if (calls[k] != calls[size - 1])
+				calls[size++] = calls[k];
+		}
+		return Arrays.copyOf(calls, size);
+	}
+
+	@Override
+	public double distance(final int i, final int j) {
+		final double methodDist = getNameDistance(methodWords[callers[i]], methodWords[callers[j]]);
+		final double classDist = getNameDistance(classWords[callers[i]], classWords[callers[j]]);
+		final double seqDist = getSeqDistance(calls[i], calls[j]);
+		return (methodDist + classDist + seqDist) / 3.;
+	}
+
+	private double getNameDistance(final int[] words1, final int[] words2) {
+		double distance = 0;
+		for (final int word1 : words1) {
+			for (final int word2 : words2)
+				distance += getWordDistance(word1, word2);
+		}
+		return distance / (words1.length * words2.length);
+	}
+
+	/**
+	 * Edit distance between the given word IDs, cached (concurrent callers may
+	 * both compute a missing distance, which is harmless)
+	 */
+	private int getWordDistance(final int word1, final int word2) {
+		if (word1 == word2)
+			return 0;
+		if (wordDistances == null)
+			return computeWordDistance(word1, word2);
+		final int index = word1 < word2 ? word2 * (word2 - 1) / 2 + word1 : word1 * (word1 - 1) / 2 + word2;
+		int distance = wordDistances[index];
+		if (distance < 0) {
+			distance = computeWordDistance(word1, word2);
+			wordDistances[index] = (short) Math.min(distance, Short.MAX_VALUE);
+		}
+		return distance;
+	}
+
+	private int computeWordDistance(final int word1, final int word2) {
+		if (wordChars[word1] == null)
+			return APICallClustererMAPO.editDistance(words.get(word1), words.get(word2));
+		return editDistance(words.get(word1).length(), wordChars[word1], wordMasks[word1], words.get(word2));
+	}
+
+	/**
+	 * Levenshtein distance between two strings, using the bit-parallel
+	 * algorithm of Myers if the first has at most 64 characters
+	 *
+	 * @see APICallClustererMAPO#editDistance(String, String)
+	 */
+	static int editDistance(final String s, final String t) {
+		if (s.length() > 64)
+			return APICallClustererMAPO.editDistance(s, t);
+		final char[] chars = getDistinctChars(s);
+		return editDistance(s.length(), chars, getMasks(s, chars), t);
+	}
+
+	/**
+	 * Levenshtein distance between a pattern of m <= 64 characters, given as
+	 * its distinct characters and their position masks, and a text. Keeps the
+	 * vertical differences of a Wagner-Fischer column as bit vectors and
+	 * computes each next column in a few word operations.
+	 *
+	 * @see <a href="https://doi.org/10.1145/316542.316550">Myers, A fast
+	 *      bit-vector algorithm for approximate string matching based on
+	 *      dynamic programming</a>
+	 * @see <a href="http://www.cs.uta.fi/~helmu/pubs/psc02.pdf">Hyyro, A
+	 *      bit-vector algorithm for computing Levenshtein and Damerau edit
+	 *      distances</a>
+	 */
+	private static int editDistance(final int m, final char[] chars, final long[] masks, final String t) {
+		if (m == 0)
+			return t.length();
+		final long last = 1L << (m - 1);
+		long pv = -1L; // positive vertical differences
+		long mv = 0L; // negative vertical differences
+		int distance = m;
+		for (int j = 0; j < t.length(); j++) {
+			final long eq = getMask(chars, masks, t.charAt(j));
+			final long xv = eq | mv;
+			final long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0)
+				distance++;
+			else if ((mh & last) != 0)
+				distance--;
+			ph = ph << 1 | 1L; // the first row increases by one
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return distance;
+	}
+
+	private static char[] getDistinctChars(final String s) {
+		final char[] chars = new char[s.length()];
+		int size = 0;
+		for (int k = 0; k < s.length(); k++) {
+			if (indexOf(chars, size, s.charAt(k)) < 0)
+				chars[size++] = s.charAt(k);
+		}
+		return Arrays.copyOf(chars, size);
+	}
+
+	/** Bit mask of the positions of each of the given characters in s */
+	private static long[] getMasks(final String s, final char[] chars) {
+		final long[] masks = new long[chars.length];
+		for (int k = 0; k < s.length(); k++)
+			masks[indexOf(chars, chars.length, s.charAt(k))] |= 1L << k;
+		return masks;
+	}
+
+	private static long getMask(final char[] chars, final long[] masks, final char c) {
+		final int k = indexOf(chars, chars.length, c);
+		return k < 0 ? 0L : masks[k];
+	}
+
+	private static int indexOf(final char[] chars, final int size, final char c) {
+		for (int k = 0; k < size; k++) {
+			if (chars[k] == c)
+				return k;
+		}
+		return -1;
+	}
+
+	/** Size of intersection over size of union of sorted distinct IDs */
+	static double getSeqDistance(final int[] set1, final int[] set2) {
+		int sizeIntersection = 0;
+		for (int k1 = 0, k2 = 0; k1 < set1.length && k2 < set2.length;) {
+			if (set1[k1] < set2[k2]) {
+				k1++;
+			} else if (set1[k1] > set2[k2]) {
+				k2++;
+			} else {
+				sizeIntersection++;
+				k1++;
+				k2++;
+			}
+		}
+		final double sizeUnion = set1.length + set2.length - sizeIntersection;
+		return sizeIntersection / sizeUnion;
+	}
+
+}
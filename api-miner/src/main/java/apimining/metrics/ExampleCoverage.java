@@ -2,24 +2,19 @@ package apimining.metrics;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -34,8 +29,13 @@ import com.google.common.collect.Table;
 import com.google.common.collect.TreeBasedTable;
 import com.google.common.math.DoubleMath;
 
-import apimining.java.APICallVisitor;
-import apimining.java.ASTVisitors;
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+import apimining.io.CompressedFiles;
+import apimining.io.PatternSet;
+import apimining.java.APICallCache;
+import apimining.java.JavaSources;
+import apimining.java.JavaSources.Source;
 
 /** Check coverage of API call methods on provided examples */
 public class ExampleCoverage {
@@ -47,8 +47,9 @@ public class ExampleCoverage {
 	// private static final String exampleFolder =
 	// "/disk/data2/jfowkes/example_dataset/test_train_split/test/";
 	private static final String namespaceFolder = "/disk/data2/jfowkes/example_dataset/namespaces/";
+	private static final String exampleCacheFolder = "/disk/data2/jfowkes/example_dataset/cache/";
 
-	public static void main(final String[] args) throws IOException, ClassNotFoundException {
+	public static void main(final String[] args) throws IOException {
 
 		final String[] projects = new String[] { "netty", "hadoop", "twitter4j", "mahout", "neo4j", "drools",
 				"andengine", "spring-data-neo4j", "camel", "weld", "resteasy", "webobjects", "wicket",
@@ -298,37 +299,53 @@ public class ExampleCoverage {
 
 	static LinkedHashSet<List<String>> getClusteredCalls(final String project, final String miner, final int topN,
 			final List<List<String>> datasetCalls) throws IOException {
-		final List<File> files = (List<File>) FileUtils.listFiles(new File(baseFolder + project + "/" + miner), null,
-				false);
-		final HashMap<BufferedReader, Boolean> brs = new LinkedHashMap<>();
-		for (final File file : files)
-			brs.put(new BufferedReader(new FileReader(file)), true);
 
+		// Candidate sequences of each cluster in order
+		final List<Iterator<List<String>>> clusters = new ArrayList<>();
+		final File patternsFile = CompressedFiles
+				.resolve(new File(baseFolder + project + "/" + miner + "/FreqCallSeqs" + PatternSet.EXTENSION));
+		if (patternsFile.exists()) {
+			final PatternSet patterns = PatternSet.read(patternsFile);
+			final Map<Integer, List<List<String>>> clusterSeqs = new LinkedHashMap<>();
+			for (int i = 0; i < patterns.size(); i++)
+				clusterSeqs.computeIfAbsent(patterns.getCluster(i), k -> new ArrayList<>()).add(patterns.getCalls(i));
+			for (final List<List<String>> seqs : clusterSeqs.values())
+				clusters.add(seqs.iterator());
+		} else {
+			final List<File> files = (List<File>) FileUtils.listFiles(new File(baseFolder + project + "/" + miner),
+					null, false);
+			for (final File file : files) {
+				if (!file.getName().startsWith("Cluster"))
+					continue;
+				final List<List<String>> seqs = new ArrayList<>();
+				try (final BufferedReader br = CompressedFiles.newReader(file)) {
+					for (String line; (line = br.readLine()) != null;) {
+						if (!line.trim().isEmpty() && !line.matches("^supp:.*"))
+							seqs.add(Arrays.asList(line.split(" ")));
+					}
+				}
+				clusters.add(seqs.iterator());
+			}
+		}
+
+		// Take the next sequence from each cluster in turn
 		final Set<List<String>> topCalls = new HashSet<>();
 		while (true) {
-			for (final BufferedReader br : brs.keySet()) {
-				while (brs.get(br)) {
-					final String line = br.readLine();
-					if (line == null) {
-						brs.put(br, false);
+			boolean remaining = false;
+			for (final Iterator<List<String>> it : clusters) {
+				while (it.hasNext()) {
+					final List<String> call = it.next();
+					if (call.size() > 1) {
+						topCalls.add(call);
 						break;
 					}
-					if (!line.trim().isEmpty() && !line.matches("^supp:.*")) {
-						final List<String> call = Arrays.asList(line.split(" "));
-						if (call.size() > 1) {
-							topCalls.add(call);
-							break;
-						}
-					}
 				}
+				remaining |= it.hasNext();
 			}
-			if ((topCalls.size() > topN) || !brs.values().contains(true))
+			if ((topCalls.size() > topN) || !remaining)
 				break;
 		}
 
-		for (final BufferedReader br : brs.keySet())
-			br.close();
-
 		if (topCalls.size() < topN)
 			System.out.println("WARNING: Not enough " + miner + " calls:" + topCalls.size());
 		return orderBySupport(topCalls, datasetCalls, topN);
@@ -337,46 +354,47 @@ public class ExampleCoverage {
 	static LinkedHashSet<List<String>> getPAMCalls(final String project, final String itemsetsFile, final int topN)
 			throws IOException {
 		final LinkedHashSet<List<String>> topCalls = new LinkedHashSet<>();
-		final BufferedReader br = new BufferedReader(
-				new FileReader(new File(baseFolder + project + "/" + itemsetsFile)));
-		for (String line; (line = br.readLine()) != null;) {
-			if (line.contains("[")) {
-				final List<String> call = Arrays.asList(line.replaceAll("\\[|\\]|\'", "").split(", "));
-				if (call.size() > 1) {
+		final File textFile = new File(baseFolder + project + "/" + itemsetsFile);
+		final File patternsFile = CompressedFiles.resolve(PatternSet.getBinaryFile(textFile));
+		if (patternsFile.exists()) {
+			final PatternSet patterns = PatternSet.read(patternsFile);
+			for (int i = 0; i < patterns.size() && topCalls.size() < topN; i++) {
+				final List<String> call = patterns.getCalls(i);
+				if (call.size() > 1)
 					topCalls.add(call);
-					if (topCalls.size() == topN)
-						break;
+			}
+		} else {
+			final BufferedReader br = CompressedFiles.newReader(CompressedFiles.resolve(textFile));
+			for (String line; (line = br.readLine()) != null;) {
+				if (line.contains("[")) {
+					final List<String> call = Arrays.asList(line.replaceAll("\\[|\\]|\'", "").split(", "));
+					if (call.size() > 1) {
+						topCalls.add(call);
+						if (topCalls.size() == topN)
+							break;
+					}
 				}
 			}
+			br.close();
 		}
-		br.close();
 		if (topCalls.size() < topN)
 			System.out.println("WARNING: Not enough interesting sequences:" + topCalls.size());
 		return topCalls;
 	}
 
-	@SuppressWarnings("unchecked")
 	public static Set<List<String>> getExampleAPICalls(final String project, final String projFQName)
-			throws IOException, ClassNotFoundException {
-		Set<List<String>> allCalls;
-
-		// Read serialized example calls if they exist
-		final File exampleCallsFile = new File(baseFolder + project + "/" + project + "_examplecalls.ser");
-		if (exampleCallsFile.exists()) {
-			final ObjectInputStream reader = new ObjectInputStream(new FileInputStream(exampleCallsFile));
-			allCalls = (Set<List<String>>) reader.readObject();
-			reader.close();
-			return allCalls;
-		} else { // otherwise create
-
-			// Get all java files in source folder
-			allCalls = new HashSet<>();
-			final List<File> files = (List<File>) FileUtils.listFiles(new File(exampleFolder + project),
-					new String[] { "java" }, true);
-			Collections.sort(files);
+			throws IOException {
+
+		// Only parse example files not in the extraction cache
+		final APICallCache cache = new APICallCache(new File(exampleCacheFolder), namespaceFolder);
+
+		// Get all java files in source folder or archive
+		final Set<List<String>> allCalls = new HashSet<>();
+		try (final JavaSources sources = JavaSources.open(new File(exampleFolder + project))) {
+			final List<Source> files = sources.getSources();
 
 			int count = 0;
-			for (final File file : files) {
+			for (final Source file : files) {
 				System.out.println("\nFile: " + file);
 
 				// Ignore empty files
@@ -387,23 +405,16 @@ public class ExampleCoverage {
 					System.out.println("At file " + count + " of " + files.size());
 				count++;
 
-				final APICallVisitor acv = new APICallVisitor(ASTVisitors.getAST(file), namespaceFolder);
-				acv.process();
-				final LinkedListMultimap<String, String> fqAPICalls = acv.getAPINames(projFQName);
+				final LinkedListMultimap<String, String> fqAPICalls = cache.getAPINames(file, projFQName);
 				for (final String fqCaller : fqAPICalls.keySet()) {
 					final List<String> call = new ArrayList<>(fqAPICalls.get(fqCaller));
 					if (call.size() > 1)
 						allCalls.add(call);
 				}
 			}
-
-			// Serialize calls
-			final ObjectOutputStream writer = new ObjectOutputStream(new FileOutputStream(exampleCallsFile));
-			writer.writeObject(allCalls);
-			writer.close();
-
-			return allCalls;
 		}
+
+		return allCalls;
 	}
 
 	private static LinkedHashSet<List<String>> orderBySupport(final Set<List<String>> calls,
@@ -434,19 +445,12 @@ public class ExampleCoverage {
 
 	static List<List<String>> getDatasetAPICalls(final String project) throws IOException {
 		final List<List<String>> calls = new ArrayList<>();
-		final BufferedReader br = new BufferedReader(
-				new FileReader(new File(baseFolder + "calls/" + project + ".arff")));
-		boolean found = false;
-		for (String line; (line = br.readLine()) != null;) {
-			if (line.startsWith("@data"))
-				found = true;
-			else if (found) {
-				final List<String> call = Arrays.asList(line.split(",")[1].replaceAll("\'", "").split(" "));
-				if (call.size() > 1)
-					calls.add(call);
-			}
+		final CallDataset dataset = ArffCallReader
+				.read(CompressedFiles.resolve(new File(baseFolder + "calls/" + project + ".arff")));
+		for (int i = 0; i < dataset.size(); i++) {
+			if (dataset.getNoCalls(i) > 1)
+				calls.add(dataset.getCallNames(i));
 		}
-		br.close();
 		return calls;
 	}
 
@@ -0,0 +1,73 @@
+package apimining.pam.completion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+import apimining.pam.completion.PatternIndex.Completion;
+
+/**
+ * Interactive API call completion: reads partial call sequences (space
+ * separated fully qualified calls) from stdin and prints the top-k mined PAM
+ * patterns containing them.
+ */
+public class PatternCompletion {
+
+	/** Main function parameters */
+	public static class Parameters {
+
+		@Parameter(names = { "-f", "--file" }, description = "PAM output file (text or binary .pat) with mined sequences")
+		String patternsFile = "/afs/inf.ed.ac.uk/user/j/jfowkes/Code/Sequences/Datasets/API/examples/all/hadoop/PAM_seqs.txt";
+
+		@Parameter(names = { "-k", "--topK" }, description = "Number of completions to return")
+		int topK = 10;
+
+	}
+
+	public static void main(final String[] args) throws Exception {
+
+		// Runtime parameters
+		final Parameters params = new Parameters();
+		final JCommander jc = new JCommander(params);
+
+		try {
+			jc.parse(args);
+
+			System.out.print("Loading patterns... ");
+			final long startLoad = System.nanoTime();
+			final PatternIndex index = PatternIndex.load(new File(params.patternsFile));
+			System.out.printf("done. %d patterns in %.1f ms%n", index.size(), (System.nanoTime() - startLoad) / 1e6);
+
+			final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+			while (true) {
+				System.out.print("Enter calls:");
+				final String line = br.readLine();
+				if (line == null)
+					break;
+				final List<String> partialSeq = line.trim().isEmpty() ? Collections.emptyList()
+						: Arrays.asList(line.trim().split("\\s+"));
+
+				final long startQuery = System.nanoTime();
+				final List<Completion> completions = index.complete(partialSeq, params.topK);
+				final long queryTime = System.nanoTime() - startQuery;
+
+				for (final Completion completion : completions)
+					System.out.println(completion);
+				System.out.printf("%d completions in %.1f us%n", completions.size(), queryTime / 1e3);
+			}
+
+		} catch (final ParameterException e) {
+			System.out.println(e.getMessage());
+			jc.usage();
+		}
+
+	}
+
+}
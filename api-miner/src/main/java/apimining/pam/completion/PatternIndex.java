@@ -0,0 +1,267 @@
+package apimining.pam.completion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import apimining.io.CompressedFiles;
+import apimining.io.PatternSet;
+
+/**
+ * Immutable in-memory index of mined API call patterns for completion
+ * queries. Patterns are ranked as output by PAM (decreasing probability, then
+ * decreasing interestingness) and each API call is mapped to the rank-sorted
+ * list of patterns containing it. A query is answered by walking the shortest
+ * such list in rank order, verifying the gapped subsequence match and stopping
+ * as soon as the top k patterns are found.
+ * <p>
+ * Thread safe once loaded.
+ */
+public class PatternIndex {
+
+	/** API call names and their IDs */
+	private final String[] calls;
+	private final HashMap<String, Integer> callIDs;
+
+	/** Patterns (as call IDs) in rank order */
+	private final int[][] patterns;
+	private final double[] probabilities;
+	private final double[] interestingness;
+
+	/** Rank-sorted pattern IDs containing each call ID */
+	private final int[][] postings;
+
+	private PatternIndex(final List<String> calls, final HashMap<String, Integer> callIDs,
+			final List<int[]> patterns, final List<double[]> scores) {
+		this.calls = calls.toArray(new String[calls.size()]);
+		this.callIDs = callIDs;
+
+		// Rank patterns by decreasing probability then interestingness
+		// (stable, so ties keep file order)
+		final Integer[] order = new Integer[patterns.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (p1, p2) -> {
+			final int cmp = Double.compare(scores.get(p2)[0], scores.get(p1)[0]);
+			return cmp != 0 ? cmp : Double.compare(scores.get(p2)[1], scores.get(p1)[1]);
+		});
+		this.patterns = new int[order.length][];
+		this.probabilities = new double[order.length];
+		this.interestingness = new double[order.length];
+		for (int rank = 0; rank < order.length; rank++) {
+			this.patterns[rank] = patterns.get(order[rank]);
+			this.probabilities[rank] = scores.get(order[rank])[0];
+			this.interestingness[rank] = scores.get(order[rank])[1];
+		}
+
+		// Build postings (patterns are visited in rank order so lists are
+		// sorted, a call repeated in a pattern is only posted once)
+		final int[] noPostings = new int[this.calls.length];
+		final int[] lastPosted = new int[this.calls.length];
+		Arrays.fill(lastPosted, -1);
+		for (int rank = 0; rank < this.patterns.length; rank++) {
+			for (final int call : this.patterns[rank]) {
+				if (lastPosted[call] != rank) {
+					noPostings[call]++;
+					lastPosted[call] = rank;
+				}
+			}
+		}
+		this.postings = new int[this.calls.length][];
+		for (int call = 0; call < this.calls.length; call++)
+			this.postings[call] = new int[noPostings[call]];
+		Arrays.fill(noPostings, 0);
+		for (int rank = 0; rank < this.patterns.length; rank++) {
+			for (final int call : this.patterns[rank]) {
+				final int[] list = this.postings[call];
+				if (noPostings[call] == 0 || list[noPostings[call] - 1] != rank)
+					list[noPostings[call]++] = rank;
+			}
+		}
+	}
+
+	/**
+	 * Load patterns as output by PAM, i.e. a "prob: " line (optionally
+	 * followed by "int: " interestingness) followed by a line with the
+	 * bracketed comma separated calls, or a binary pattern file. The file may
+	 * be compressed.
+	 */
+	public static PatternIndex load(final File patternsFile) throws IOException {
+		if (PatternSet.isBinaryFile(patternsFile))
+			return load(PatternSet.read(patternsFile));
+
+		final List<String> calls = new ArrayList<>();
+		final HashMap<String, Integer> callIDs = new HashMap<>();
+		final List<int[]> patterns = new ArrayList<>();
+		final List<double[]> scores = new ArrayList<>();
+
+		double prob = Double.NaN;
+		double intr = Double.NaN;
+		try (final BufferedReader br = CompressedFiles.newReader(patternsFile)) {
+			for (String line; (line = br.readLine()) != null;) {
+				if (line.startsWith("prob:")) {
+					final int intStart = line.indexOf("int:");
+					prob = Double.parseDouble(line.substring(5, intStart < 0 ? line.length() : intStart).trim());
+					intr = intStart < 0 ? Double.NaN : Double.parseDouble(line.substring(intStart + 4).trim());
+				} else if (line.startsWith("[")) {
+					final int end = line.lastIndexOf(']');
+					final List<Integer> pattern = new ArrayList<>();
+					int start = 1;
+					while (start < end) {
+						int next = line.indexOf(", ", start);
+						if (next < 0 || next > end)
+							next = end;
+						final String call = line.substring(start, next);
+						Integer id = callIDs.get(call);
+						if (id == null) {
+							id = calls.size();
+							callIDs.put(call, id);
+							calls.add(call);
+						}
+						pattern.add(id);
+						start = next + 2;
+					}
+					final int[] items = new int[pattern.size()];
+					for (int i = 0; i < items.length; i++)
+						items[i] = pattern.get(i);
+					patterns.add(items);
+					scores.add(new double[] { prob, Double.isNaN(intr) ? 0 : intr });
+				}
+			}
+		}
+
+		return new PatternIndex(calls, callIDs, patterns, scores);
+	}
+
+	/** Index the given binary patterns */
+	public static PatternIndex load(final PatternSet patternSet) {
+		final List<String> calls = new ArrayList<>(patternSet.getNoCalls());
+		final HashMap<String, Integer> callIDs = new HashMap<>();
+		for (int id = 0; id < patternSet.getNoCalls(); id++) {
+			calls.add(patternSet.getCall(id));
+			callIDs.put(patternSet.getCall(id), id);
+		}
+		final List<int[]> patterns = new ArrayList<>(patternSet.size());
+		final List<double[]> scores = new ArrayList<>(patternSet.size());
+		for (int i = 0; i < patternSet.size(); i++) {
+			patterns.add(patternSet.getItems(i));
+			final double intr = patternSet.getInterestingness(i);
+			scores.add(new double[] { patternSet.getProbability(i), Double.isNaN(intr) ? 0 : intr });
+		}
+		return new PatternIndex(calls, callIDs, patterns, scores);
+	}
+
+	/**
+	 * Get the top k patterns containing the given (partial) call sequence as
+	 * a gapped subsequence. The empty sequence matches all patterns.
+	 */
+	public List<Completion> complete(final List<String> partialSeq, final int k) {
+		final int[] query = new int[partialSeq.size()];
+		for (int i = 0; i < query.length; i++) {
+			final Integer id = callIDs.get(partialSeq.get(i));
+			if (id == null) // unknown call
+				return Collections.emptyList();
+			query[i] = id;
+		}
+
+		final int[] ranks = query(query, k);
+		final List<Completion> completions = new ArrayList<>(ranks.length);
+		for (final int rank : ranks)
+			completions.add(new Completion(getPattern(rank), probabilities[rank], interestingness[rank]));
+		return completions;
+	}
+
+	/**
+	 * Get the ranks of the top k patterns containing the given call IDs as a
+	 * gapped subsequence
+	 */
+	public int[] query(final int[] query, final int k) {
+		final int[] results = new int[Math.min(k, patterns.length)];
+		int noResults = 0;
+
+		if (query.length == 0) {
+			for (; noResults < results.length; noResults++)
+				results[noResults] = noResults;
+			return results;
+		}
+
+		// Walk the shortest postings list in rank order
+		int[] candidates = postings[query[0]];
+		for (final int call : query) {
+			if (postings[call].length < candidates.length)
+				candidates = postings[call];
+		}
+		for (int i = 0; i < candidates.length && noResults < results.length; i++) {
+			if (isSubsequence(query, patterns[candidates[i]]))
+				results[noResults++] = candidates[i];
+		}
+
+		return noResults == results.length ? results : Arrays.copyOf(results, noResults);
+	}
+
+	/** Whether seq is a (gapped) subsequence of pattern */
+	private static boolean isSubsequence(final int[] seq, final int[] pattern) {
+		int pos = 0;
+		for (int i = 0; i < pattern.length && pos < seq.length; i++) {
+			if (pattern[i] == seq[pos])
+				pos++;
+		}
+		return pos == seq.length;
+	}
+
+	/** Get the calls of the pattern with the given rank */
+	public List<String> getPattern(final int rank) {
+		final List<String> pattern = new ArrayList<>(patterns[rank].length);
+		for (final int call : patterns[rank])
+			pattern.add(calls[call]);
+		return pattern;
+	}
+
+	/** Get the ID of the given call or -1 if not in any pattern */
+	public int getCallID(final String call) {
+		final Integer id = callIDs.get(call);
+		return id == null ? -1 : id;
+	}
+
+	/** Number of patterns in the index */
+	public int size() {
+		return patterns.length;
+	}
+
+	/** A pattern matching a completion query */
+	public static class Completion {
+
+		private final List<String> pattern;
+		private final double probability;
+		private final double interestingness;
+
+		Completion(final List<String> pattern, final double probability, final double interestingness) {
+			this.pattern = pattern;
+			this.probability = probability;
+			this.interestingness = interestingness;
+		}
+
+		public List<String> getPattern() {
+			return pattern;
+		}
+
+		public double getProbability() {
+			return probability;
+		}
+
+		public double getInterestingness() {
+			return interestingness;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s\tprob: %1.5f \tint: %1.5f", pattern, probability, interestingness);
+		}
+	}
+
+}
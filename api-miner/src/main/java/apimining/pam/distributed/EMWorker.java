@@ -0,0 +1,147 @@
+package apimining.pam.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.collect.Multiset;
+
+import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
+import apimining.pam.sequence.Sequence;
+import apimining.pam.transaction.Transaction;
+import apimining.pam.transaction.TransactionList;
+
+/**
+ * EM worker holding a shard of the transaction database. Runs the shard-level
+ * E-steps and cost evaluations requested by the coordinator (see
+ * {@link RemoteTransactionDatabase}) and returns the covering counts and
+ * partial costs.
+ * <p>
+ * Serves one coordinator at a time until asked to shut down.
+ */
+public class EMWorker {
+
+	/** Line printed to stdout once the worker is listening */
+	static final String READY_MESSAGE = "EMWorker listening on port ";
+
+	/** Main function parameters */
+	public static class Parameters {
+
+		@Parameter(names = { "-p", "--port" }, description = "Port to listen on (0 for any free port)")
+		int port = 0;
+
+	}
+
+	public static void main(final String[] args) throws IOException {
+
+		// Runtime parameters
+		final Parameters params = new Parameters();
+		final JCommander jc = new JCommander(params);
+
+		try {
+			jc.parse(args);
+
+			try (final ServerSocket server = new ServerSocket(params.port)) {
+				System.out.println(READY_MESSAGE + server.getLocalPort());
+				System.out.flush();
+
+				boolean shutdown = false;
+				while (!shutdown) {
+					try (final Socket socket = server.accept()) {
+						shutdown = serve(socket);
+					}
+				}
+			}
+
+		} catch (final ParameterException e) {
+			System.out.println(e.getMessage());
+			jc.usage();
+		}
+
+	}
+
+	/**
+	 * Serve requests from the given coordinator connection
+	 *
+	 * @return whether the worker was asked to shut down
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean serve(final Socket socket) throws IOException {
+		socket.setTcpNoDelay(true);
+		final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		out.flush();
+		final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+
+		TransactionList shard = null;
+		while (true) {
+			final Request request;
+			try {
+				request = (Request) in.readObject();
+			} catch (final EOFException e) { // coordinator disconnected
+				return false;
+			} catch (final ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+
+			Object result = Boolean.TRUE;
+			try {
+				final Object[] args = request.args;
+				switch (request.op) {
+				case LOAD:
+					shard = new TransactionList((List<Transaction>) args[0]);
+					break;
+				case INITIALIZE_CACHE:
+					shard.initializeCachedItemsets((Multiset<Sequence>) args[0], (Long) args[1]);
+					break;
+				case HARD_E_STEP:
+					result = shard.hardEStep((InferenceAlgorithm) args[0]);
+					break;
+				case UPDATE_CACHE:
+					shard.updateCachedSequences((Map<Sequence, Double>) args[0]);
+					break;
+				case CACHED_COST:
+					result = shard.getTotalCachedCost();
+					break;
+				case CANDIDATE_E_STEP:
+					result = shard.candidateEStep((InferenceAlgorithm) args[0], (Sequence) args[1]);
+					break;
+				case CANDIDATE_COST:
+					result = shard.getCandidateCost((Sequence) args[0], (Map<Sequence, Double>) args[1]);
+					break;
+				case ACCEPT_CANDIDATE:
+					result = shard.acceptedCandidateEStep((Sequence) args[0], (Double) args[1]);
+					break;
+				case SUPPORTS:
+					result = shard.getSupportsOfSequences((Set<Sequence>) args[0]);
+					break;
+				case SHUTDOWN:
+					break;
+				}
+			} catch (final RuntimeException e) {
+				result = e;
+			}
+
+			out.writeObject(result);
+			out.reset(); // don't keep references to sent objects
+			out.flush();
+
+			if (request.op == Request.Op.SHUTDOWN)
+				return true;
+		}
+	}
+
+	private EMWorker() {
+	}
+
+}
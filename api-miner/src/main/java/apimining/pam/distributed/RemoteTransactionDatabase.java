@@ -0,0 +1,277 @@
+package apimining.pam.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import apimining.pam.distributed.Request.Op;
+import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
+import apimining.pam.sequence.Sequence;
+import apimining.pam.transaction.Transaction;
+import apimining.pam.transaction.TransactionDatabase;
+import apimining.pam.transaction.TransactionList;
+
+/**
+ * Transaction database sharded across {@link EMWorker} processes. Each
+ * shard-level step is sent to all workers in parallel and the returned
+ * covering counts and partial costs are merged here, so the coordinator only
+ * runs the M-step and the candidate accept decision (see EMStep).
+ * <p>
+ * Workers are either launched as local JVMs or already running on the given
+ * hosts. Requests are plain Java serialization over TCP, so workers should
+ * only be reachable from a trusted network.
+ */
+public class RemoteTransactionDatabase extends TransactionDatabase implements Closeable {
+
+	private final List<WorkerConnection> workers = new ArrayList<>();
+	private final List<Process> processes = new ArrayList<>();
+	private final ExecutorService pool;
+	private final long noTransactions;
+
+	private RemoteTransactionDatabase(final List<InetSocketAddress> addresses, final List<Process> processes,
+			final TransactionList transactions) throws IOException {
+		this.processes.addAll(processes);
+		this.noTransactions = transactions.size();
+		this.pool = Executors.newFixedThreadPool(addresses.size());
+		try {
+			for (final InetSocketAddress address : addresses)
+				workers.add(new WorkerConnection(address));
+
+			// Send each worker a contiguous shard
+			final List<Transaction> transactionList = transactions.getTransactionList();
+			final int noWorkers = workers.size();
+			final List<Future<Object>> futures = new ArrayList<>();
+			for (int i = 0; i < noWorkers; i++) {
+				final ArrayList<Transaction> shard = new ArrayList<>(transactionList.subList(
+						(int) (noTransactions * i / noWorkers), (int) (noTransactions * (i + 1) / noWorkers)));
+				final WorkerConnection worker = workers.get(i);
+				futures.add(pool.submit(() -> worker.call(new Request(Op.LOAD, shard))));
+			}
+			getAll(futures);
+		} catch (final IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Shard the given transactions across EM workers running on the given
+	 * host:port addresses
+	 */
+	public static RemoteTransactionDatabase connect(final List<String> workers, final TransactionList transactions)
+			throws IOException {
+		final List<InetSocketAddress> addresses = new ArrayList<>();
+		for (final String worker : workers) {
+			final int sep = worker.lastIndexOf(':');
+			if (sep < 0)
+				throw new IllegalArgumentException("Worker address must be host:port, got " + worker);
+			addresses.add(new InetSocketAddress(worker.substring(0, sep), Integer.parseInt(worker.substring(sep + 1))));
+		}
+		return new RemoteTransactionDatabase(addresses, new ArrayList<>(), transactions);
+	}
+
+	/**
+	 * Launch the given number of EM worker JVMs on this machine (with the
+	 * current classpath) and shard the given transactions across them
+	 */
+	public static RemoteTransactionDatabase launchLocal(final int noWorkers, final TransactionList transactions)
+			throws IOException {
+		final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		final List<Process> processes = new ArrayList<>();
+		final List<InetSocketAddress> addresses = new ArrayList<>();
+		try {
+			for (int i = 0; i < noWorkers; i++) {
+				final Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						EMWorker.class.getName()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+				processes.add(process);
+				final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				final String line = reader.readLine();
+				if (line == null || !line.startsWith(EMWorker.READY_MESSAGE))
+					throw new IOException("EM worker failed to start: " + line);
+				addresses.add(new InetSocketAddress("localhost",
+						Integer.parseInt(line.substring(EMWorker.READY_MESSAGE.length()).trim())));
+			}
+		} catch (final IOException e) {
+			for (final Process process : processes)
+				process.destroy();
+			throw e;
+		}
+		return new RemoteTransactionDatabase(addresses, processes, transactions);
+	}
+
+	@Override
+	public long size() {
+		return noTransactions;
+	}
+
+	public int getNoWorkers() {
+		return workers.size();
+	}
+
+	/** Initialize cached itemsets on all shards */
+	@Override
+	public void initializeCachedItemsets(final Multiset<Sequence> singletons, final long noTransactions) {
+		broadcast(new Request(Op.INITIALIZE_CACHE, HashMultiset.create(singletons), noTransactions));
+	}
+
+	/** Hard E-step on all shards, returning merged covering counts */
+	@Override
+	public Map<Sequence, Long> hardEStep(final InferenceAlgorithm inferenceAlgorithm) {
+		return mergeCounts(broadcast(new Request(Op.HARD_E_STEP, inferenceAlgorithm)));
+	}
+
+	/** Update cached itemsets on all shards */
+	@Override
+	public void updateCachedSequences(final Map<Sequence, Double> newSequences) {
+		broadcast(new Request(Op.UPDATE_CACHE, new HashMap<>(newSequences)));
+	}
+
+	/** Total cost of the cached coverings across all shards */
+	@Override
+	public double getTotalCachedCost() {
+		return sumCosts(broadcast(new Request(Op.CACHED_COST)));
+	}
+
+	/** Structural E-step on all shards, returning merged covering counts */
+	@Override
+	public Map<Sequence, Long> candidateEStep(final InferenceAlgorithm inferenceAlgorithm,
+			final Sequence candidate) {
+		return mergeCounts(broadcast(new Request(Op.CANDIDATE_E_STEP, inferenceAlgorithm, candidate)));
+	}
+
+	/** Total candidate cost across all shards */
+	@Override
+	public double getCandidateCost(final Sequence candidate, final Map<Sequence, Double> newSequences) {
+		return sumCosts(broadcast(new Request(Op.CANDIDATE_COST, candidate, new HashMap<>(newSequences))));
+	}
+
+	/** Cached E-step for an accepted candidate, returning merged counts */
+	@Override
+	public Map<Sequence, Long> acceptedCandidateEStep(final Sequence candidate, final double prob) {
+		return mergeCounts(broadcast(new Request(Op.ACCEPT_CANDIDATE, candidate, prob)));
+	}
+
+	/** Supports of the given sequences across all shards */
+	@Override
+	public Map<Sequence, Long> getSupportsOfSequences(final Set<Sequence> sequences) {
+		return mergeCounts(broadcast(new Request(Op.SUPPORTS, new HashSet<>(sequences))));
+	}
+
+	/** Shut down launched workers and disconnect from all others */
+	@Override
+	public void close() {
+		for (final WorkerConnection worker : workers) {
+			try {
+				if (!processes.isEmpty())
+					worker.call(new Request(Op.SHUTDOWN));
+				worker.close();
+			} catch (final IOException | RuntimeException e) {
+				// worker already gone
+			}
+		}
+		for (final Process process : processes)
+			process.destroy();
+		pool.shutdownNow();
+	}
+
+	/** Send the request to all workers in parallel and collect the results */
+	private List<Object> broadcast(final Request request) {
+		final List<Future<Object>> futures = new ArrayList<>();
+		for (final WorkerConnection worker : workers)
+			futures.add(pool.submit(() -> worker.call(request)));
+		return getAll(futures);
+	}
+
+	private static List<Object> getAll(final List<Future<Object>> futures) {
+		final List<Object> results = new ArrayList<>();
+		try {
+			for (final Future<Object> future : futures)
+				results.add(future.get());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for EM workers.", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw new UncheckedIOException((IOException) e.getCause());
+			throw new RuntimeException("EM worker failed.", e.getCause());
+		}
+		return results;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Sequence, Long> mergeCounts(final List<Object> results) {
+		final Map<Sequence, Long> counts = new HashMap<>();
+		for (final Object result : results) {
+			for (final Map.Entry<Sequence, Long> entry : ((Map<Sequence, Long>) result).entrySet())
+				counts.merge(entry.getKey(), entry.getValue(), Long::sum);
+		}
+		return counts;
+	}
+
+	private static double sumCosts(final List<Object> results) {
+		double totalCost = 0;
+		for (final Object result : results)
+			totalCost += (Double) result;
+		return totalCost;
+	}
+
+	/** Blocking request/response connection to a single worker */
+	private static class WorkerConnection implements Closeable {
+
+		private final Socket socket;
+		private final ObjectOutputStream out;
+		private final ObjectInputStream in;
+
+		WorkerConnection(final InetSocketAddress address) throws IOException {
+			socket = new Socket(address.getHostString(), address.getPort());
+			socket.setTcpNoDelay(true);
+			out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.flush();
+			in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+		}
+
+		synchronized Object call(final Request request) throws IOException {
+			out.writeObject(request);
+			out.reset(); // don't keep references to sent objects
+			out.flush();
+			final Object result;
+			try {
+				result = in.readObject();
+			} catch (final ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+			if (result instanceof RuntimeException)
+				throw new RuntimeException("EM worker " + socket.getRemoteSocketAddress() + " failed.",
+						(RuntimeException) result);
+			return result;
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package apimining.pam.distributed;
+
+import java.io.Serializable;
+
+/** Request sent from the coordinator to an EM worker */
+class Request implements Serializable {
+	private static final long serialVersionUID = 4184380372934518265L;
+
+	/** Shard-level operations (see EMStep) */
+	enum Op {
+		LOAD, INITIALIZE_CACHE, HARD_E_STEP, UPDATE_CACHE, CACHED_COST, CANDIDATE_E_STEP, CANDIDATE_COST, ACCEPT_CANDIDATE, SUPPORTS, SHUTDOWN
+	}
+
+	final Op op;
+	final Object[] args;
+
+	Request(final Op op, final Object... args) {
+		this.op = op;
+		this.args = args;
+	}
+
+}
@@ -1,11 +1,5 @@
 package apimining.pam.main;
 
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -14,38 +8,36 @@ import com.google.common.collect.Multiset;
 
 import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
 import apimining.pam.sequence.Sequence;
-import apimining.pam.transaction.Transaction;
 import apimining.pam.transaction.TransactionDatabase;
 import apimining.pam.util.Tuple2;
 
-/** Class to hold the various transaction EM Steps */
+/**
+ * Class to hold the various transaction EM Steps
+ * <p>
+ * Each step is split into the shard-level E-steps of the transaction
+ * database, returning covering counts or partial costs, and an M-step on the
+ * merged counts.
+ */
 public class EMStep {
 
 	/** Initialize cached itemsets */
 	static void initializeCachedItemsets(final TransactionDatabase transactions, final Multiset<Sequence> singletons) {
-		final long noTransactions = transactions.size();
-		transactions.getTransactionList().parallelStream()
-				.forEach(t -> t.initializeCachedSequences(singletons, noTransactions));
+		transactions.initializeCachedItemsets(singletons, transactions.size());
 	}
 
 	/** EM-step for hard EM */
-	static Map<Sequence, Double> hardEMStep(final List<Transaction> transactions,
+	static Map<Sequence, Double> hardEMStep(final TransactionDatabase transactions,
 			final InferenceAlgorithm inferenceAlgorithm) {
 		final double noTransactions = transactions.size();
 
 		// E-step
-		final Map<Sequence, Long> coveringWithCounts = transactions.parallelStream().map(t -> {
-			final HashSet<Sequence> covering = inferenceAlgorithm.infer(t);
-			t.setCachedCovering(covering);
-			return covering;
-		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+		final Map<Sequence, Long> coveringWithCounts = transactions.hardEStep(inferenceAlgorithm);
 
 		// M-step
-		final Map<Sequence, Double> newSequences = coveringWithCounts.entrySet().parallelStream()
-				.collect(Collectors.toMap(Map.Entry::getKey, v -> v.getValue() / noTransactions));
+		final Map<Sequence, Double> newSequences = mStep(coveringWithCounts, noTransactions);
 
 		// Update cached itemsets
-		transactions.parallelStream().forEach(t -> t.updateCachedSequences(newSequences));
+		transactions.updateCachedSequences(newSequences);
 
 		return newSequences;
 	}
@@ -53,9 +45,7 @@ public class EMStep {
 	/** Get average cost of last EM-step */
 	static void calculateAndSetAverageCost(final TransactionDatabase transactions) {
 		final double noTransactions = transactions.size();
-		final double averageCost = transactions.getTransactionList().parallelStream()
-				.mapToDouble(Transaction::getCachedCost).sum() / noTransactions;
-		transactions.setAverageCost(averageCost);
+		transactions.setAverageCost(transactions.getTotalCachedCost() / noTransactions);
 	}
 
 	/** EM-step for structural EM */
@@ -64,30 +54,13 @@ public class EMStep {
 		final double noTransactions = transactions.size();
 
 		// E-step (adding candidate to transactions that support it)
-		final Map<Sequence, Long> coveringWithCounts = transactions.getTransactionList().parallelStream().map(t -> {
-			if (t.contains(candidate)) {
-				t.addSequenceCache(candidate, 1.0);
-				final HashSet<Sequence> covering = inferenceAlgorithm.infer(t);
-				t.setTempCachedCovering(covering);
-				return covering;
-			}
-			return t.getCachedCovering();
-		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+		final Map<Sequence, Long> coveringWithCounts = transactions.candidateEStep(inferenceAlgorithm, candidate);
 
 		// M-step
-		final Map<Sequence, Double> newSequences = coveringWithCounts.entrySet().parallelStream()
-				.collect(Collectors.toMap(Map.Entry::getKey, v -> v.getValue() / noTransactions));
+		final Map<Sequence, Double> newSequences = mStep(coveringWithCounts, noTransactions);
 
 		// Get average cost (removing candidate from supported transactions)
-		final double averageCost = transactions.getTransactionList().parallelStream().mapToDouble(t -> {
-			double cost;
-			if (t.contains(candidate))
-				cost = t.getTempCachedCost(newSequences);
-			else
-				cost = t.getCachedCost(newSequences);
-			t.removeSequenceCache(candidate);
-			return cost;
-		}).sum() / noTransactions;
+		final double averageCost = transactions.getCandidateCost(candidate, newSequences) / noTransactions;
 
 		// Get candidate prob
 		Double prob = newSequences.get(candidate);
@@ -103,22 +76,13 @@ public class EMStep {
 		final double noTransactions = transactions.size();
 
 		// Cached E-step (adding candidate to transactions that support it)
-		final Map<Sequence, Long> coveringWithCounts = transactions.getTransactionList().parallelStream().map(t -> {
-			if (t.contains(candidate)) {
-				t.addSequenceCache(candidate, prob);
-				final HashSet<Sequence> covering = t.getTempCachedCovering();
-				t.setCachedCovering(covering);
-				return covering;
-			}
-			return t.getCachedCovering();
-		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+		final Map<Sequence, Long> coveringWithCounts = transactions.acceptedCandidateEStep(candidate, prob);
 
 		// M-step
-		final Map<Sequence, Double> newSequences = coveringWithCounts.entrySet().parallelStream()
-				.collect(Collectors.toMap(Map.Entry::getKey, v -> v.getValue() / noTransactions));
+		final Map<Sequence, Double> newSequences = mStep(coveringWithCounts, noTransactions);
 
 		// Update cached itemsets
-		transactions.getTransactionList().parallelStream().forEach(t -> t.updateCachedSequences(newSequences));
+		transactions.updateCachedSequences(newSequences);
 
 		return newSequences;
 	}
@@ -126,14 +90,14 @@ public class EMStep {
 	/** Get the support of given sequences */
 	static Map<Sequence, Long> getSupportsOfSequences(final TransactionDatabase transactions,
 			final Set<Sequence> sequences) {
-		return transactions.getTransactionList().parallelStream().map(t -> {
-			final HashSet<Sequence> supportedSeqs = new HashSet<>();
-			for (final Sequence seq : sequences) {
-				if (t.contains(seq))
-					supportedSeqs.add(seq);
-			}
-			return supportedSeqs;
-		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+		return transactions.getSupportsOfSequences(sequences);
+	}
+
+	/** M-step: sequence probabilities from (merged) covering counts */
+	private static Map<Sequence, Double> mStep(final Map<Sequence, Long> coveringWithCounts,
+			final double noTransactions) {
+		return coveringWithCounts.entrySet().parallelStream()
+				.collect(Collectors.toMap(Map.Entry::getKey, v -> v.getValue() / noTransactions));
 	}
 
 	private EMStep() {
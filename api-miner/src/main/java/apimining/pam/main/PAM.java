@@ -3,24 +3,33 @@ package apimining.pam.main;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.LineIterator;
 
 import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-
+import com.google.common.collect.Multiset;
+
+import apimining.io.ArffCallReader;
+import apimining.io.ByteDictionary;
+import apimining.io.CallDataset;
+import apimining.io.CompressedFiles;
+import apimining.io.PatternSet;
+import apimining.io.PatternSet.Miner;
+import apimining.pam.distributed.RemoteTransactionDatabase;
 import apimining.pam.main.InferenceAlgorithms.InferGreedy;
 import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
 import apimining.pam.sequence.Sequence;
+import apimining.pam.transaction.Transaction;
+import apimining.pam.transaction.TransactionList;
 import apimining.pam.util.Logging;
 
 public class PAM extends PAMCore {
@@ -34,6 +43,9 @@ public class PAM extends PAMCore {
 		@Parameter(names = { "-o", "--outFile" }, description = "Output File")
 		String outFile = "/afs/inf.ed.ac.uk/user/j/jfowkes/Code/Sequences/Datasets/API/examples/all/hadoop/PAM_seqs.txt";
 
+		@Parameter(names = { "-x", "--text" }, description = "Write text output (binary .pat output is always written)", arity = 1)
+		boolean textOutput = true;
+
 		@Parameter(names = { "-s", "--maxSteps" }, description = "Max structure steps")
 		int maxStructureSteps = 100_000;
 
@@ -51,6 +63,12 @@ public class PAM extends PAMCore {
 
 		@Parameter(names = { "-v", "--verbose" }, description = "Log to console instead of logfile")
 		boolean verbose = false;
+
+		@Parameter(names = { "-w", "--workers" }, description = "Distribute EM across running workers (host:port list)")
+		List<String> workers = new ArrayList<>();
+
+		@Parameter(names = { "-n", "--localWorkers" }, description = "Distribute EM across this many local worker JVMs")
+		int localWorkers = 0;
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -75,7 +93,7 @@ public class PAM extends PAMCore {
 			// Mine interesting API call sequences
 			System.out.println("Processing " + FilenameUtils.getBaseName(params.arffFile) + "...");
 			mineAPICallSequences(params.arffFile, params.outFile, inferenceAlg, params.maxStructureSteps,
-					params.maxEMIterations, logFile);
+					params.maxEMIterations, logFile, params.textOutput, params.workers, params.localWorkers);
 
 		} catch (final ParameterException e) {
 			System.out.println(e.getMessage());
@@ -89,76 +107,93 @@ public class PAM extends PAMCore {
 	 *
 	 * @param arffFile
 	 *            API calls in ARF Format. Attributes are fqCaller and fqCalls
-	 *            as space separated string of API calls.
+	 *            as space separated string of API calls. May be gzip (.gz) or
+	 *            zstd (.zst) compressed, as may the output file.
+	 * @param textOutput
+	 *            whether to write the text output file in addition to the
+	 *            binary pattern file (see {@link PatternSet#getBinaryFile})
+	 * @param workers
+	 *            host:port addresses of running EM workers to distribute EM
+	 *            across (may be empty)
+	 * @param localWorkers
+	 *            number of local EM worker JVMs to launch and distribute EM
+	 *            across if no workers are given (0 to run EM in process)
 	 */
 	public static void mineAPICallSequences(final String arffFile, final String outFile,
 			final InferenceAlgorithm inferenceAlgorithm, final int maxStructureSteps, final int maxEMIterations,
-			final File logFile) throws Exception {
+			final File logFile, final boolean textOutput, final List<String> workers, final int localWorkers)
+			throws Exception {
 
 		final File fout = new File(outFile);
 		if (fout.getParentFile() != null)
 			fout.getParentFile().mkdirs();
 
-		System.out.print("  Creating temporary transaction DB... ");
-		final File transactionDB = File.createTempFile("APICallDB", ".txt");
-		final BiMap<String, Integer> dictionary = HashBiMap.create();
-		generateTransactionDatabase(arffFile, dictionary, transactionDB);
+		System.out.print("  Reading transaction DB... ");
+		final CallDataset calls = ArffCallReader.read(new File(arffFile));
+		final TransactionList transactions = getTransactions(calls);
 		System.out.println("done.");
 
 		System.out.print("  Mining interesting sequences... ");
-		final Map<Sequence, Double> sequences = PAMCore.mineInterestingSequences(transactionDB, inferenceAlgorithm,
-				maxStructureSteps, maxEMIterations, logFile);
-		transactionDB.delete();
+		final Map<Sequence, Double> sequences;
+		final Map<Sequence, Long> supports = new HashMap<>();
+		if (workers.isEmpty() && localWorkers <= 0) {
+			sequences = PAMCore.mineInterestingSequences(transactions, inferenceAlgorithm, maxStructureSteps,
+					maxEMIterations, logFile, supports);
+		} else {
+			final Multiset<Sequence> singletons = scanTransactionsToDetermineFrequencyOfSingleItems(transactions);
+			try (final RemoteTransactionDatabase database = workers.isEmpty()
+					? RemoteTransactionDatabase.launchLocal(localWorkers, transactions)
+					: RemoteTransactionDatabase.connect(workers, transactions)) {
+				sequences = PAMCore.mineInterestingSequences(database, singletons, inferenceAlgorithm,
+						maxStructureSteps, maxEMIterations, logFile, supports);
+			}
+		}
 		System.out.println("done.");
 
-		decodeInterestingSequences(sequences, dictionary, outFile);
+		// Calculate interestingness for binary output
+		final Map<Sequence, Double> intMap = calculateInterestingness(sequences, supports, transactions.size());
+		writePatternSet(sequences, intMap, supports, calls.getCallDictionary(), PatternSet.getBinaryFile(fout));
+
+		if (textOutput)
+			decodeInterestingSequences(sequences, calls.getCallDictionary(), fout);
 	}
 
-	private static void generateTransactionDatabase(final String arffFile, final BiMap<String, Integer> dictionary,
-			final File transactionDB) throws IOException {
-
-		int mID = 0;
-		boolean found = false;
-		final PrintWriter out = new PrintWriter(transactionDB);
-		final LineIterator it = FileUtils.lineIterator(new File(arffFile));
-		while (it.hasNext()) {
-			final String line = it.nextLine();
-
-			if (found) {
-				for (final String raw_call : line.split(",")[1].replace("\'", "").split(" ")) {
-					final String call = raw_call.trim();
-					if (call.isEmpty()) // skip empty strings
-						continue;
-					if (dictionary.containsKey(call)) {
-						final int ID = dictionary.get(call);
-						out.print(ID + " -1 ");
-					} else {
-						out.print(mID + " -1 ");
-						dictionary.put(call, mID);
-						mID++;
-					}
-				}
-				out.println("-2");
-			}
+	/** Convert API calls to transactions of call IDs */
+	private static TransactionList getTransactions(final CallDataset calls) {
+		final List<Transaction> transactions = new ArrayList<>(calls.size());
+		for (int i = 0; i < calls.size(); i++) {
+			final Transaction transaction = new Transaction();
+			for (int j = 0; j < calls.getNoCalls(i); j++)
+				transaction.add(calls.getCall(i, j));
+			transactions.add(transaction);
+		}
+		return new TransactionList(transactions);
+	}
 
-			if (line.contains("@data"))
-				found = true;
+	private static void writePatternSet(final Map<Sequence, Double> sequences, final Map<Sequence, Double> intMap,
+			final Map<Sequence, Long> supports, final ByteDictionary dictionary, final File outFile)
+			throws IOException {
 
+		final PatternSet.Builder patterns = new PatternSet.Builder(Miner.PAM);
+		for (final Entry<Sequence, Double> entry : sequences.entrySet()) {
+			final List<String> calls = new ArrayList<>(entry.getKey().size());
+			for (final int item : entry.getKey())
+				calls.add(dictionary.get(item));
+			patterns.add(0, calls, entry.getValue(), intMap.get(entry.getKey()), supports.get(entry.getKey()));
 		}
-		it.close();
-		out.close();
+		patterns.write(outFile);
 	}
 
 	private static void decodeInterestingSequences(final Map<Sequence, Double> sequences,
-			final BiMap<String, Integer> dictionary, final String outFile) throws IOException {
+			final ByteDictionary dictionary, final File outFile) throws IOException {
 
-		final PrintWriter out = new PrintWriter(outFile);
+		final PrintWriter out = CompressedFiles.newWriter(outFile);
 		for (final Entry<Sequence, Double> entry : sequences.entrySet()) {
 			out.println(String.format("prob: %1.5f", entry.getValue()));
 			out.print("[");
 			String prefix = "";
 			for (final int item : entry.getKey()) {
-				out.print(prefix + dictionary.inverse().get(item));
+				out.print(prefix + dictionary.get(item));
 				prefix = ", ";
 			}
 			out.print("]");
@@ -1,5 +1,6 @@
 package apimining.pam.main;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -16,17 +17,16 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Functions;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Ordering;
-import com.google.common.io.Files;
 
+import apimining.io.CompressedFiles;
 import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
 import apimining.pam.sequence.Sequence;
 import apimining.pam.transaction.Transaction;
@@ -54,10 +54,7 @@ public abstract class PAMCore {
 			final File logFile) throws IOException {
 
 		// Set up logging
-		if (logFile != null)
-			Logging.setUpFileLogger(logger, LOG_LEVEL, logFile);
-		else
-			Logging.setUpConsoleLogger(logger, LOG_LEVEL);
+		setUpLogging(logFile);
 
 		// Echo input parameters
 		logger.info("========== INTERESTING SEQUENCE MINING ============");
@@ -71,16 +68,85 @@ public abstract class PAMCore {
 		// Determine most frequent singletons
 		final Multiset<Sequence> singletons = scanDatabaseToDetermineFrequencyOfSingleItems(inputFile);
 
+		// Run inference to find interesting sequences
+		final Map<Sequence, Double> sortedSequences = mineInterestingSequences(transactions, singletons,
+				inferenceAlgorithm, maxStructureSteps, maxEMIterations, null);
+		if (LOG_LEVEL.equals(Level.FINEST)) {
+			try (final BufferedReader reader = CompressedFiles.newReader(inputFile)) {
+				logger.finest("\n======= Transaction Database =======\n" + IOUtils.toString(reader) + "\n");
+			}
+		}
+
+		return sortedSequences;
+	}
+
+	/**
+	 * Mine interesting sequences from an in-memory transaction database
+	 *
+	 * @param supports
+	 *            filled with the support of each interesting sequence (may be
+	 *            null)
+	 */
+	public static Map<Sequence, Double> mineInterestingSequences(final TransactionList transactions,
+			final InferenceAlgorithm inferenceAlgorithm, final int maxStructureSteps, final int maxEMIterations,
+			final File logFile, final Map<Sequence, Long> supports) throws IOException {
+
+		// Determine most frequent singletons
+		final Multiset<Sequence> singletons = scanTransactionsToDetermineFrequencyOfSingleItems(transactions);
+
+		return mineInterestingSequences(transactions, singletons, inferenceAlgorithm, maxStructureSteps,
+				maxEMIterations, logFile, supports);
+	}
+
+	/**
+	 * Mine interesting sequences from a (possibly distributed) transaction
+	 * database with the given singleton supports
+	 *
+	 * @param supports
+	 *            filled with the support of each interesting sequence (may be
+	 *            null)
+	 */
+	public static Map<Sequence, Double> mineInterestingSequences(final TransactionDatabase transactions,
+			final Multiset<Sequence> singletons, final InferenceAlgorithm inferenceAlgorithm,
+			final int maxStructureSteps, final int maxEMIterations, final File logFile,
+			final Map<Sequence, Long> supports) throws IOException {
+
+		// Set up logging
+		setUpLogging(logFile);
+
+		// Echo input parameters
+		logger.info("========== INTERESTING SEQUENCE MINING ============");
+		logger.info("\n Time: " + new SimpleDateFormat("dd.MM.yyyy-HH:mm:ss").format(new Date()));
+		logger.info("\n Inputs: " + transactions.size() + " transactions -s " + maxStructureSteps + " -i "
+				+ maxEMIterations + " -r " + MAX_RUNTIME / 60_000);
+
+		// Run inference to find interesting sequences
+		return mineInterestingSequences(transactions, singletons, inferenceAlgorithm, maxStructureSteps,
+				maxEMIterations, supports);
+	}
+
+	private static void setUpLogging(final File logFile) {
+		if (logFile != null)
+			Logging.setUpFileLogger(logger, LOG_LEVEL, logFile);
+		else
+			Logging.setUpConsoleLogger(logger, LOG_LEVEL);
+	}
+
+	private static Map<Sequence, Double> mineInterestingSequences(final TransactionDatabase transactions,
+			final Multiset<Sequence> singletons, final InferenceAlgorithm inferenceAlgorithm,
+			final int maxStructureSteps, final int maxEMIterations, final Map<Sequence, Long> supports) {
+
 		// Run inference to find interesting sequences
 		logger.fine("\n============= SEQUENCE INFERENCE =============\n");
 		final HashMap<Sequence, Double> sequences = structuralEM(transactions, singletons, inferenceAlgorithm,
 				maxStructureSteps, maxEMIterations);
-		if (LOG_LEVEL.equals(Level.FINEST))
-			logger.finest(
-					"\n======= Transaction Database =======\n" + Files.toString(inputFile, Charsets.UTF_8) + "\n");
 
 		// Sort sequences by probability
-		final HashMap<Sequence, Double> intMap = calculateInterestingness(sequences, transactions);
+		final Map<Sequence, Long> seqSupports = EMStep.getSupportsOfSequences(transactions, sequences.keySet());
+		if (supports != null)
+			supports.putAll(seqSupports);
+		final HashMap<Sequence, Double> intMap = calculateInterestingness(sequences, seqSupports,
+				transactions.size());
 		final Map<Sequence, Double> sortedSequences = sortSequences(sequences, intMap);
 
 		logger.info("\n============= INTERESTING SEQUENCES =============\n");
@@ -197,7 +263,7 @@ public abstract class PAMCore {
 			// Set up storage
 			final Map<Sequence, Double> newSequences;
 
-			newSequences = EMStep.hardEMStep(transactions.getTransactionList(), inferenceAlgorithm);
+			newSequences = EMStep.hardEMStep(transactions, inferenceAlgorithm);
 
 			// If set has stabilised calculate norm(p_prev - p_new)
 			if (prevSequences.keySet().equals(newSequences.keySet())) {
@@ -389,13 +455,19 @@ public abstract class PAMCore {
 	public static HashMap<Sequence, Double> calculateInterestingness(final HashMap<Sequence, Double> sequences,
 			final TransactionDatabase transactions) {
 
-		final HashMap<Sequence, Double> interestingnessMap = new HashMap<>();
-
 		// Calculate supports
 		final Map<Sequence, Long> supports = EMStep.getSupportsOfSequences(transactions, sequences.keySet());
 
+		return calculateInterestingness(sequences, supports, transactions.size());
+	}
+
+	/** Calculate interestingness given the supports of the sequences */
+	public static HashMap<Sequence, Double> calculateInterestingness(final Map<Sequence, Double> sequences,
+			final Map<Sequence, Long> supports, final long noTransactions) {
+
+		final HashMap<Sequence, Double> interestingnessMap = new HashMap<>();
+
 		// Calculate interestingness
-		final long noTransactions = transactions.size();
 		for (final Sequence seq : sequences.keySet()) {
 			final double interestingness = sequences.get(seq) * noTransactions / (double) supports.get(seq);
 			interestingnessMap.put(seq, Math.round(interestingness * 1E10) / 1E10);
@@ -409,7 +481,7 @@ public abstract class PAMCore {
 		final List<Transaction> transactions = new ArrayList<>();
 
 		// for each line (transaction) until the end of file
-		final LineIterator it = FileUtils.lineIterator(inputFile, "UTF-8");
+		final LineIterator it = new LineIterator(CompressedFiles.newReader(inputFile));
 		while (it.hasNext()) {
 
 			final String line = it.nextLine();
@@ -466,7 +538,7 @@ public abstract class PAMCore {
 		final Multiset<Sequence> singletons = HashMultiset.create();
 
 		// for each line (transaction) until the end of file
-		final LineIterator it = FileUtils.lineIterator(inputFile, "UTF-8");
+		final LineIterator it = new LineIterator(CompressedFiles.newReader(inputFile));
 		while (it.hasNext()) {
 
 			final String line = it.nextLine();
@@ -498,6 +570,29 @@ public abstract class PAMCore {
 		return singletons;
 	}
 
+	/**
+	 * Calculate the support of single items in the given in-memory transaction
+	 * database.
+	 *
+	 * @return a multiset for storing the support of each singleton
+	 */
+	public static Multiset<Sequence> scanTransactionsToDetermineFrequencyOfSingleItems(
+			final TransactionList transactions) {
+
+		final Multiset<Sequence> singletons = HashMultiset.create();
+		for (final Transaction transaction : transactions.getTransactionList()) {
+			final HashSet<Sequence> seenItems = new HashSet<>();
+			for (final int item : transaction) {
+				final Sequence seq = new Sequence(item);
+				PAMCore.recursiveSetOccurrence(seq, seenItems); // set occurrence
+				seenItems.add(seq); // add item to seen
+			}
+			singletons.addAll(seenItems); // increase the support of the items
+		}
+
+		return singletons;
+	}
+
 	private static void recursiveSetOccurrence(final Sequence seq, final HashSet<Sequence> seenItems) {
 		if (seenItems.contains(seq)) {
 			seq.incrementOccurence();
@@ -510,7 +605,10 @@ public abstract class PAMCore {
 		final HashMap<Sequence, Double> sequences = new HashMap<>();
 		final HashMap<Sequence, Double> intMap = new HashMap<>();
 
-		final String[] lines = FileUtils.readFileToString(output).split("\n");
+		final String[] lines;
+		try (final BufferedReader reader = CompressedFiles.newReader(output)) {
+			lines = IOUtils.toString(reader).split("\n");
+		}
 
 		boolean found = false;
 		for (final String line : lines) {
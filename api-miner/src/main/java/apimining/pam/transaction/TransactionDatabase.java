@@ -1,8 +1,19 @@
 package apimining.pam.transaction;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-/** Wrapper class for storing a database of transactions */
+import com.google.common.collect.Multiset;
+
+import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
+import apimining.pam.sequence.Sequence;
+
+/**
+ * Wrapper class for storing a database of transactions
+ * <p>
+ * The shard-level EM steps run where the transactions are held and return
+ * covering counts or partial costs, merged over all shards (see EMStep).
+ */
 public abstract class TransactionDatabase {
 
 	/** Set to true if candidate generation iteration limit exceeded */
@@ -29,10 +40,44 @@ public abstract class TransactionDatabase {
 		return iterationLimitExceeded;
 	}
 
-	/** Get a list of transactions */
-	public abstract List<Transaction> getTransactionList();
-
 	/** Get the number of transactions in this database */
 	public abstract long size();
 
+	/**
+	 * Initialize cached itemsets with the singletons' relative supports in a
+	 * database of the given number of transactions
+	 */
+	public abstract void initializeCachedItemsets(final Multiset<Sequence> singletons, final long noTransactions);
+
+	/** Hard E-step, returning covering counts */
+	public abstract Map<Sequence, Long> hardEStep(final InferenceAlgorithm inferenceAlgorithm);
+
+	/** Update cached itemsets with new sequence probabilities */
+	public abstract void updateCachedSequences(final Map<Sequence, Double> newSequences);
+
+	/** Total cost of the cached coverings */
+	public abstract double getTotalCachedCost();
+
+	/**
+	 * Structural E-step (adding candidate to transactions that support it),
+	 * returning covering counts
+	 */
+	public abstract Map<Sequence, Long> candidateEStep(final InferenceAlgorithm inferenceAlgorithm,
+			final Sequence candidate);
+
+	/**
+	 * Total cost given the new sequence probabilities of a structural E-step
+	 * (removing candidate from supported transactions)
+	 */
+	public abstract double getCandidateCost(final Sequence candidate, final Map<Sequence, Double> newSequences);
+
+	/**
+	 * Cached E-step adding the accepted candidate to transactions that
+	 * support it, returning covering counts
+	 */
+	public abstract Map<Sequence, Long> acceptedCandidateEStep(final Sequence candidate, final double prob);
+
+	/** Get the support of given sequences */
+	public abstract Map<Sequence, Long> getSupportsOfSequences(final Set<Sequence> sequences);
+
 }
@@ -1,6 +1,18 @@
 package apimining.pam.transaction;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Multiset;
+
+import apimining.pam.main.InferenceAlgorithms.InferenceAlgorithm;
+import apimining.pam.sequence.Sequence;
 
 /** Wrapper class for storing transaction database as a list of transactions */
 public class TransactionList extends TransactionDatabase {
@@ -11,7 +23,7 @@ public class TransactionList extends TransactionDatabase {
 		this.transactions = transactions;
 	}
 
-	@Override
+	/** Get a list of transactions */
 	public List<Transaction> getTransactionList() {
 		return transactions;
 	}
@@ -21,4 +33,80 @@ public class TransactionList extends TransactionDatabase {
 		return transactions.size();
 	}
 
+	@Override
+	public void initializeCachedItemsets(final Multiset<Sequence> singletons, final long noTransactions) {
+		transactions.parallelStream().forEach(t -> t.initializeCachedSequences(singletons, noTransactions));
+	}
+
+	@Override
+	public Map<Sequence, Long> hardEStep(final InferenceAlgorithm inferenceAlgorithm) {
+		return transactions.parallelStream().map(t -> {
+			final HashSet<Sequence> covering = inferenceAlgorithm.infer(t);
+			t.setCachedCovering(covering);
+			return covering;
+		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+	}
+
+	@Override
+	public void updateCachedSequences(final Map<Sequence, Double> newSequences) {
+		transactions.parallelStream().forEach(t -> t.updateCachedSequences(newSequences));
+	}
+
+	@Override
+	public double getTotalCachedCost() {
+		return transactions.parallelStream().mapToDouble(Transaction::getCachedCost).sum();
+	}
+
+	@Override
+	public Map<Sequence, Long> candidateEStep(final InferenceAlgorithm inferenceAlgorithm,
+			final Sequence candidate) {
+		return transactions.parallelStream().map(t -> {
+			if (t.contains(candidate)) {
+				t.addSequenceCache(candidate, 1.0);
+				final HashSet<Sequence> covering = inferenceAlgorithm.infer(t);
+				t.setTempCachedCovering(covering);
+				return covering;
+			}
+			return t.getCachedCovering();
+		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+	}
+
+	@Override
+	public double getCandidateCost(final Sequence candidate, final Map<Sequence, Double> newSequences) {
+		return transactions.parallelStream().mapToDouble(t -> {
+			double cost;
+			if (t.contains(candidate))
+				cost = t.getTempCachedCost(newSequences);
+			else
+				cost = t.getCachedCost(newSequences);
+			t.removeSequenceCache(candidate);
+			return cost;
+		}).sum();
+	}
+
+	@Override
+	public Map<Sequence, Long> acceptedCandidateEStep(final Sequence candidate, final double prob) {
+		return transactions.parallelStream().map(t -> {
+			if (t.contains(candidate)) {
+				t.addSequenceCache(candidate, prob);
+				final HashSet<Sequence> covering = t.getTempCachedCovering();
+				t.setCachedCovering(covering);
+				return covering;
+			}
+			return t.getCachedCovering();
+		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+	}
+
+	@Override
+	public Map<Sequence, Long> getSupportsOfSequences(final Set<Sequence> sequences) {
+		return transactions.parallelStream().map(t -> {
+			final HashSet<Sequence> supportedSeqs = new HashSet<>();
+			for (final Sequence seq : sequences) {
+				if (t.contains(seq))
+					supportedSeqs.add(seq);
+			}
+			return supportedSeqs;
+		}).flatMap(Set::stream).collect(groupingBy(identity(), counting()));
+	}
+
 }
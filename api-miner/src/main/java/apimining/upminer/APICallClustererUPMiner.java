@@ -2,10 +2,11 @@ package apimining.upminer;
 
 import java.awt.Container;
 import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -16,12 +17,12 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
-import weka.clusterers.HierarchicalClusterer;
-import weka.core.DistanceFunction;
-import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.converters.ConverterUtils.DataSource;
-import weka.core.neighboursearch.PerformanceStats;
+import apimining.clustering.CompleteLinkage;
+import apimining.clustering.Dendrogram;
+import apimining.clustering.DendrogramCache;
+import apimining.clustering.DistanceMatrix;
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
 import weka.gui.hierarchyvisualizer.HierarchyVisualizer;
 
 public class APICallClustererUPMiner {
@@ -46,42 +47,88 @@ public class APICallClustererUPMiner {
 	 */
 	public static Multimap<Integer, String> clusterAPICallSeqs(final String arffFile, final double threshold)
 			throws Exception {
+		return clusterAPICallSeqs(arffFile, threshold, null);
+	}
 
-		// Clusterer settings
-		final HierarchicalClusterer clusterer = new HierarchicalClusterer();
-		clusterer.setOptions(new String[] { "-L", "COMPLETE" }); // link type
-		clusterer.setDebug(true);
-		clusterer.setNumClusters(1);
-		clusterer.setDistanceFunction(SeqSimilarity);
-		clusterer.setDistanceIsBranchLength(false);
+	/**
+	 * Cluster API call sequences as described in UPMiner, reusing the cached
+	 * dendrogram of the dataset if there is one
+	 *
+	 * @param cache
+	 *            cache of dendrograms, or null to always cluster
+	 * @return Multimap of cluster IDs to API call sequences
+	 */
+	public static Multimap<Integer, String> clusterAPICallSeqs(final String arffFile, final double threshold,
+			final DendrogramCache cache) throws Exception {
 
 		// Read in API call seqs
-		final DataSource source = new DataSource(arffFile);
-		final Instances data = source.getDataSet();
+		final CallDataset dataset = ArffCallReader.read(new File(arffFile));
+		if (cache == null || dataset.size() == 0)
+			return clusterAPICallSeqs(dataset, threshold);
 
-		// Cluster API call seqs
-		clusterer.buildClusterer(data);
+		// Cluster API call seqs (complete linkage)
+		final Dendrogram dendrogram = cache.get(dataset, "UPMiner complete linkage", () -> cluster(dataset));
 
 		// Assign seqs to clusters based on dendrogram
-		final String newick = clusterer.graph().replace("Newick:", "") + ":0";
-		if (newick.equals("(no,clusters):0")) // Handle no clusters
+		final int[] clusters = dendrogram.cut(threshold);
+		return getAssignments(dataset, clusters);
+	}
+
+	/**
+	 * Cluster the given API call sequences as described in UPMiner
+	 *
+	 * @return Multimap of cluster IDs to API call sequences
+	 */
+	public static Multimap<Integer, String> clusterAPICallSeqs(final CallDataset dataset, final double threshold)
+			throws IOException {
+
+		if (dataset.size() == 0) // Handle no clusters
 			return HashMultimap.create();
-		final Multimap<Integer, String> clusters = NewickTreeParser.getClusters(newick, threshold);
-		System.out.println("No. clusters: " + clusters.keySet().size());
-		final Multimap<Integer, String> assignments = HashMultimap.create();
-		for (int i = 0; i < data.numInstances(); i++) {
-			for (final int id : clusters.keySet()) {
-				if (clusters.get(id).contains(data.instance(i).stringValue(0)))
-					assignments.put(id, data.instance(i).stringValue(1));
-			}
-		}
 
-		// showDendrogram(clusterer);
+		// Cluster API call seqs (complete linkage)
+		final Dendrogram dendrogram = cluster(dataset);
+
+		// Assign seqs to clusters based on dendrogram
+		final int[] clusters = dendrogram.cut(threshold);
+		return getAssignments(dataset, clusters);
+	}
 
+	/** Complete linkage dendrogram of the given API call seqs */
+	public static Dendrogram cluster(final CallDataset dataset) throws IOException {
+		return CompleteLinkage.cluster(DistanceMatrix.compute(dataset.size(), new UPMinerFeatures(dataset), System.out));
+	}
+
+	/**
+	 * Assign seqs to clusters as done from the Newick dendrogram, i.e. seqs go
+	 * to all clusters containing their caller
+	 */
+	private static Multimap<Integer, String> getAssignments(final CallDataset dataset, final int[] clusters) {
+
+		// Cut clusters containing each caller
+		final Multimap<Integer, Integer> callerClusters = HashMultimap.create();
+		for (int i = 0; i < dataset.size(); i++)
+			callerClusters.put(dataset.getCaller(i), clusters[i]);
+		System.out.println("No. clusters: " + new HashSet<>(callerClusters.values()).size());
+
+		// Emit each seq to the clusters of its caller
+		final Multimap<Integer, String> assignments = HashMultimap.create();
+		for (int i = 0; i < dataset.size(); i++) {
+			final String callSeq = String.join(" ", dataset.getCallNames(i));
+			for (final int id : callerClusters.get(dataset.getCaller(i)))
+				assignments.put(id, callSeq);
+		}
 		return assignments;
 	}
 
-	public static void showDendrogram(final HierarchicalClusterer clusterer) throws Exception {
+	/**
+	 * Show the given dendrogram in Weka's HierarchyVisualizer, with the
+	 * callers as leaf names
+	 */
+	public static void showDendrogram(final Dendrogram dendrogram, final CallDataset dataset) {
+		final String[] names = new String[dataset.size()];
+		for (int i = 0; i < dataset.size(); i++)
+			names[i] = dataset.getCallerName(i);
+
 		final String timeStamp = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date());
 		final JFrame mainFrame = new JFrame("Dendrogram " + timeStamp);
 		mainFrame.setSize(1024, 768);
@@ -89,122 +136,33 @@ public class APICallClustererUPMiner {
 		final Container content = mainFrame.getContentPane();
 		content.setLayout(new GridLayout(1, 1));
 
-		final HierarchyVisualizer visualizer = new HierarchyVisualizer(clusterer.graph());
+		final HierarchyVisualizer visualizer = new HierarchyVisualizer("Newick:" + dendrogram.toNewick(names));
 		content.add(visualizer);
 
 		mainFrame.setVisible(true);
 	}
 
-	private static final DistanceFunction SeqSimilarity = new DistanceFunction() {
-
-		@SuppressWarnings("rawtypes")
-		@Override
-		public Enumeration listOptions() {
-			// we have no distance options
-			return null;
-		}
-
-		@Override
-		public void setOptions(final String[] options) throws Exception {
-			// we have no distance options
-		}
-
-		@Override
-		public String[] getOptions() {
-			// we have no distance options
-			return null;
-		}
-
-		@Override
-		public void setInstances(final Instances insts) {
-			// we don't use internal instances
-		}
-
-		@Override
-		public Instances getInstances() {
-			// we don't use internal instances
-			return null;
-		}
-
-		@Override
-		public void setAttributeIndices(final String value) {
-			// we use all attributes
-		}
-
-		@Override
-		public String getAttributeIndices() {
-			// we use all attributes
-			return null;
-		}
-
-		@Override
-		public void setInvertSelection(final boolean value) {
-			// we use all attributes
-		}
-
-		@Override
-		public boolean getInvertSelection() {
-			// we use all attributes
-			return false;
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second) {
-			return distance(first, second, null);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final PerformanceStats stats) {
-			return distance(first, second, Double.POSITIVE_INFINITY, stats);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final double cutOffValue) {
-			return distance(first, second, cutOffValue, null);
-		}
-
-		@Override
-		public double distance(final Instance first, final Instance second, final double cutOffValue,
-				final PerformanceStats stats) {
-
-			final String[] fqCalls1 = first.stringValue(1).split(" ");
-			final String[] fqCalls2 = second.stringValue(1).split(" ");
-			final double seqDist = getSeqDistance(fqCalls1, fqCalls2);
-
-			if (stats != null)
-				stats.incrCoordCount();
-
-			return seqDist;
-		}
-
-		private double getSeqDistance(final String[] set1, final String[] set2) {
-
-			final Set<List<String>> nSet1 = getNgramSet(set1);
-			final Set<List<String>> nSet2 = getNgramSet(set2);
-			final Set<List<String>> intSet = Sets.intersection(nSet1, nSet2);
-			final Set<List<String>> uniSet = Sets.union(nSet1, nSet2);
-
-			double sizeIntersection = 0;
-			for (final List<String> seq : intSet)
-				sizeIntersection += seq.size();
-			double sizeUnion = 0;
-			for (final List<String> seq : uniSet)
-				sizeUnion += seq.size();
-
-			return sizeIntersection / sizeUnion;
-		}
+	/**
+	 * UPMiner distance between two space separated call sequences
+	 *
+	 * @see UPMinerFeatures
+	 */
+	static double getDistance(final String fqCalls1, final String fqCalls2) {
 
-		@Override
-		public void postProcessDistances(final double[] distances) {
-			// no need to post process distances
-		}
+		final Set<List<String>> nSet1 = getNgramSet(fqCalls1.split(" "));
+		final Set<List<String>> nSet2 = getNgramSet(fqCalls2.split(" "));
+		final Set<List<String>> intSet = Sets.intersection(nSet1, nSet2);
+		final Set<List<String>> uniSet = Sets.union(nSet1, nSet2);
 
-		@Override
-		public void update(final Instance ins) {
-			// we use all attributes
-		}
+		double sizeIntersection = 0;
+		for (final List<String> seq : intSet)
+			sizeIntersection += seq.size();
+		double sizeUnion = 0;
+		for (final List<String> seq : uniSet)
+			sizeUnion += seq.size();
 
-	};
+		return sizeIntersection / sizeUnion;
+	}
 
 	public static Set<List<String>> getNgramSet(final String[] seq) {
 		final Set<List<String>> ngramSet = new HashSet<>();
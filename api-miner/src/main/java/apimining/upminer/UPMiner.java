@@ -2,11 +2,17 @@ package apimining.upminer;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
@@ -15,12 +21,18 @@ import org.apache.commons.io.FilenameUtils;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Multimap;
 
+import apimining.clustering.DendrogramCache;
+import apimining.fsminer.CallSequenceDatabase;
 import apimining.fsminer.FrequentSequenceMiner;
 import apimining.fsminer.Sequence;
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+import apimining.io.CompressedFiles;
+import apimining.io.CompressedFiles.Compression;
+import apimining.io.PatternSet;
+import apimining.io.PatternSet.Miner;
 
 public class UPMiner {
 
@@ -36,6 +48,18 @@ public class UPMiner {
 		@Parameter(names = { "-s", "--support" }, description = "Minimum support threshold")
 		double minSupp = 0.3;
 
+		@Parameter(names = { "-c", "--compress" }, description = "Compress output files (gz or zst)")
+		String compress = "";
+
+		@Parameter(names = { "-x", "--text" }, description = "Write text output (binary .pat output is always written)", arity = 1)
+		boolean textOutput = true;
+
+		@Parameter(names = { "-S", "--supports" }, description = "Comma separated minimum support thresholds to mine without prompting, each into its own subfolder of the output folder")
+		String supports = "";
+
+		@Parameter(names = { "-k", "--cache" }, description = "Folder caching clustering dendrograms, keyed by the ARFF data records (no caching if empty)")
+		String cacheFolder = "";
+
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -49,7 +73,15 @@ public class UPMiner {
 
 			// Mine project
 			System.out.println("Processing " + FilenameUtils.getBaseName(params.arffFile) + "...");
-			mineAPICallSequences(params.arffFile, params.outFolder, 0.2, 0.2, params.minSupp);
+			final String outExtension = ".txt" + Compression.forName(params.compress).getExtension();
+			final DendrogramCache cache = params.cacheFolder.isEmpty() ? null
+					: new DendrogramCache(new File(params.cacheFolder));
+			if (params.supports.isEmpty())
+				mineAPICallSequences(params.arffFile, params.outFolder, 0.2, 0.2, params.minSupp, outExtension,
+						params.textOutput, cache);
+			else
+				mineAPICallSequences(params.arffFile, params.outFolder, 0.2, 0.2,
+						CallSequenceDatabase.parseSupports(params.supports), outExtension, params.textOutput, cache);
 
 		} catch (final ParameterException e) {
 			System.out.println(e.getMessage());
@@ -59,21 +91,28 @@ public class UPMiner {
 	}
 
 	/**
-	 * Mine API call sequences using UP-Miner
+	 * Mine API call sequences using UP-Miner, prompting for minimum support
+	 * thresholds until a non-positive one is entered
 	 *
 	 * @param arffFile
 	 *            API calls in ARF Format. Attributes are fqCaller and fqCalls
-	 *            as space separated string of API calls.
+	 *            as space separated string of API calls. May be gzip (.gz) or
+	 *            zstd (.zst) compressed.
+	 * @param outExtension
+	 *            extension of the output files, compressed if it ends in .gz or
+	 *            .zst
+	 * @param textOutput
+	 *            whether to write the per-cluster text output files in
+	 *            addition to the binary pattern file
+	 * @param cache
+	 *            cache of clustering dendrograms, or null to always cluster
 	 */
 	public static void mineAPICallSequences(final String arffFile, final String outFolder, final double threshold1,
-			final double threshold2, double minSupp) throws Exception {
+			final double threshold2, double minSupp, final String outExtension, final boolean textOutput,
+			final DendrogramCache cache) throws Exception {
 
 		new File(outFolder).mkdirs();
-
-		System.out.print("===== Clustering call sequences #1... ");
-		final Multimap<Integer, String> clusteredCallSeqs1 = APICallClustererUPMiner.clusterAPICallSeqs(arffFile,
-				threshold1);
-		System.out.println("done. Number of clusters: " + clusteredCallSeqs1.keySet().size());
+		final List<CallSequenceDatabase> databases = clusterAPICallSequences(arffFile, threshold1, cache);
 
 		final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 		while (true) {
@@ -87,106 +126,128 @@ public class UPMiner {
 			if (minSupp <= 0)
 				break;
 
-			final File arffFileFreq = File.createTempFile("FreqCalls", ".arff");
-			writeArffHeader(arffFileFreq);
+			mineFrequentSequences(databases, threshold2, Collections.singletonList(minSupp),
+					Collections.singletonList(new File(outFolder)), outExtension, textOutput);
+		}
 
-			int count = 0;
-			for (final Collection<String> callSeqs : clusteredCallSeqs1.asMap().values()) {
+	}
 
-				System.out.println("+++++ Processing cluster #" + count);
+	/**
+	 * Mine API call sequences using UP-Miner at each of the given minimum
+	 * support thresholds, clustering the call sequences only once and mining
+	 * all clusters at all thresholds in parallel. The output for each
+	 * threshold is written to the subfolder minSupp{threshold} of the output
+	 * folder.
+	 *
+	 * @see #mineAPICallSequences(String, String, double, double, double,
+	 *      String, boolean, DendrogramCache)
+	 */
+	public static void mineAPICallSequences(final String arffFile, final String outFolder, final double threshold1,
+			final double threshold2, final List<Double> supports, final String outExtension,
+			final boolean textOutput, final DendrogramCache cache) throws Exception {
 
-				System.out.print("  Creating temporary transaction DB... ");
-				final File transactionDB = File.createTempFile("APICallDB", ".txt");
-				final BiMap<String, Integer> dictionary = HashBiMap.create();
-				generateTransactionDatabase(callSeqs, dictionary, transactionDB);
-				System.out.println("done.");
+		final List<File> outFolders = new ArrayList<>();
+		for (final double minSupp : supports) {
+			outFolders.add(new File(outFolder, "minSupp" + minSupp));
+			outFolders.get(outFolders.size() - 1).mkdirs();
+		}
+		final List<CallSequenceDatabase> databases = clusterAPICallSequences(arffFile, threshold1, cache);
 
-				System.out.print("  Mining frequent sequences... ");
-				final File freqSeqs = File.createTempFile("APICallSeqs", ".txt");
-				FrequentSequenceMiner.mineFrequentClosedSequencesBIDE(transactionDB.getAbsolutePath(),
-						freqSeqs.getAbsolutePath(), minSupp);
-				transactionDB.delete();
-				System.out.println("done.");
+		mineFrequentSequences(databases, threshold2, supports, outFolders, outExtension, textOutput);
+	}
 
-				saveFrequentSequencesArffFile(freqSeqs, dictionary, arffFileFreq);
-				freqSeqs.delete();
+	/** Cluster API call sequences, returning the sequence database of each cluster */
+	private static List<CallSequenceDatabase> clusterAPICallSequences(final String arffFile, final double threshold,
+			final DendrogramCache cache) throws Exception {
 
-				count++;
-			}
+		System.out.print("===== Clustering call sequences #1... ");
+		final Multimap<Integer, String> clusteredCallSeqs1 = APICallClustererUPMiner.clusterAPICallSeqs(arffFile,
+				threshold, cache);
+		System.out.println("done. Number of clusters: " + clusteredCallSeqs1.keySet().size());
+
+		final List<CallSequenceDatabase> databases = new ArrayList<>();
+		for (final Collection<String> callSeqs : clusteredCallSeqs1.asMap().values())
+			databases.add(new CallSequenceDatabase(callSeqs));
+		return databases;
+	}
 
-			System.out.print("===== Clustering call sequences #2... ");
-			final Multimap<Integer, String> clusteredCallSeqs2 = APICallClustererUPMiner
-					.clusterAPICallSeqs(arffFileFreq.getAbsolutePath(), threshold2);
-			arffFileFreq.delete();
+	/**
+	 * Mine the frequent closed sequences of all clusters at all the given
+	 * minimum support thresholds and cluster them, writing the output for each
+	 * threshold to its folder
+	 */
+	private static void mineFrequentSequences(final List<CallSequenceDatabase> databases, final double threshold2,
+			final List<Double> supports, final List<File> outFolders, final String outExtension,
+			final boolean textOutput) throws Exception {
+
+		System.out.print("===== Mining frequent sequences of " + databases.size() + " clusters at minSupp "
+				+ supports + "... ");
+		final List<List<SortedMap<Sequence, Integer>>> freqSeqs = CallSequenceDatabase.mine(databases, supports,
+				FrequentSequenceMiner::mineFrequentClosedSequencesBIDE);
+		System.out.println("done.");
+
+		for (int s = 0; s < supports.size(); s++) {
+			final String outFolder = outFolders.get(s).getPath();
+
+			// Cluster the frequent sequences of all clusters via an in-memory ARFF
+			final StringWriter arffFreq = new StringWriter();
+			final PrintWriter out = new PrintWriter(arffFreq);
+			writeArffHeader(out);
+			for (int count = 0; count < databases.size(); count++)
+				saveFrequentSequencesArff(freqSeqs.get(s).get(count), databases.get(count), out);
+			out.close();
+			final CallDataset datasetFreq = ArffCallReader
+					.read(ByteBuffer.wrap(arffFreq.toString().getBytes(StandardCharsets.UTF_8)));
+
+			System.out.print("===== Clustering call sequences #2 (minSupp " + supports.get(s) + ")... ");
+			final Multimap<Integer, String> clusteredCallSeqs2 = APICallClustererUPMiner.clusterAPICallSeqs(datasetFreq,
+					threshold2);
 			System.out.println("done. Number of clusters: " + clusteredCallSeqs2.keySet().size());
 
-			count = 0;
+			final PatternSet.Builder patterns = new PatternSet.Builder(Miner.UPMINER);
+			int count = 0;
 			for (final Collection<String> callSeqs : clusteredCallSeqs2.asMap().values()) {
-				final File outFile = new File(outFolder + "/Cluster" + count + "FreqCallSeqs.txt");
-				writeClusteredSequences(callSeqs, outFile);
-				count++;
-			}
-		}
-
-	}
-
-	private static void generateTransactionDatabase(final Collection<String> callSeqs,
-			final BiMap<String, Integer> dictionary, final File transactionDB) throws IOException {
-
-		final PrintWriter out = new PrintWriter(transactionDB);
-
-		int mID = 0;
-		for (final String callSeq : callSeqs) {
-			for (final String call : callSeq.split(" ")) {
-				if (dictionary.containsKey(call)) {
-					final int ID = dictionary.get(call);
-					out.print(ID + " -1 ");
-				} else {
-					out.print(mID + " -1 ");
-					dictionary.put(call, mID);
-					mID++;
+				for (final String seq : callSeqs)
+					patterns.add(count, Arrays.asList(seq.split(" ")), Double.NaN, Double.NaN, -1);
+				if (textOutput) {
+					final File outFile = new File(outFolder + "/Cluster" + count + "FreqCallSeqs" + outExtension);
+					writeClusteredSequences(callSeqs, outFile);
 				}
+				count++;
 			}
-			out.println("-2");
+			patterns.write(PatternSet.getBinaryFile(new File(outFolder + "/FreqCallSeqs" + outExtension)));
 		}
-		out.close();
 	}
 
-	private static void writeArffHeader(final File arffFile) throws IOException {
-		final PrintWriter out = new PrintWriter(arffFile, "UTF-8");
+	private static void writeArffHeader(final PrintWriter out) {
 		out.println("@relation TEMP");
 		out.println();
 		out.println("@attribute fqCaller string");
 		out.println("@attribute fqCalls string");
 		out.println();
 		out.println("@data");
-		out.close();
 	}
 
-	private static void saveFrequentSequencesArffFile(final File seqFile, final BiMap<String, Integer> dictionary,
-			final File arffFile) throws IOException {
+	private static void saveFrequentSequencesArff(final SortedMap<Sequence, Integer> freqSeqs,
+			final CallSequenceDatabase database, final PrintWriter out) {
 
-		final SortedMap<Sequence, Integer> freqSeqs = FrequentSequenceMiner.readFrequentSequences(seqFile);
-
-		final PrintWriter out = new PrintWriter(new FileWriter(arffFile, true));
 		int count = 0;
 		for (final Entry<Sequence, Integer> entry : freqSeqs.entrySet()) {
 			out.print("'unknown" + count + "','");
 			String prefix = "";
 			for (final int item : entry.getKey()) {
-				out.print(prefix + dictionary.inverse().get(item));
+				out.print(prefix + database.getCall(item));
 				prefix = " ";
 			}
 			out.println("'");
 			count++;
 		}
-		out.close();
 
 	}
 
 	private static void writeClusteredSequences(final Collection<String> callSeqs, final File outFile)
 			throws IOException {
-		final PrintWriter out = new PrintWriter(outFile);
+		final PrintWriter out = CompressedFiles.newWriter(outFile);
 		for (final String seq : callSeqs)
 			out.println(seq);
 		out.close();
@@ -0,0 +1,129 @@
+package apimining.upminer;
+
+import java.util.Arrays;
+
+import apimining.clustering.DistanceMatrix;
+import apimining.io.CallDataset;
+
+/**
+ * Per-instance features for the UPMiner distance, computed once per dataset
+ * rather than once per pair of instances: the set of contiguous n-grams of
+ * each call sequence as 64-bit hashes, sorted and grouped by n-gram length.
+ * <p>
+ * The hash of each n-gram is extended from that of its prefix, so all n-grams
+ * of a sequence of length L are enumerated in O(L^2) without materialising
+ * them. The length-weighted intersection of two records is then computed by
+ * merging their hashes length by length, stopping at the first length with
+ * no common n-gram (as all longer n-grams then differ too).
+ * <p>
+ * Gives the same distance as the UPMiner Weka distance function, barring a
+ * 64-bit hash collision between two distinct n-grams of the same length.
+ */
+public class UPMinerFeatures implements DistanceMatrix.Distance {
+
+	/** Call ID standing for the empty call of a record without calls */
+	private static final int EMPTY_CALL = -1;
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+
+	/** Distinct n-gram hashes of each record, sorted within each length */
+	private final long[][] ngrams;
+
+	/**
+	 * Start of the n-grams of each length in ngrams, i.e. the n-grams of
+	 * length len are at [offsets[len-1], offsets[len])
+	 */
+	private final int[][] offsets;
+
+	/** Total length of the distinct n-grams of each record */
+	private final long[] weights;
+
+	public UPMinerFeatures(final CallDataset dataset) {
+		ngrams = new long[dataset.size()][];
+		offsets = new int[dataset.size()][];
+		weights = new long[dataset.size()];
+		for (int i = 0; i < dataset.size(); i++) {
+			final int[] seq = dataset.getNoCalls(i) == 0 ? new int[] { EMPTY_CALL } : dataset.getCalls(i);
+			offsets[i] = new int[seq.length + 1];
+			ngrams[i] = getNgramHashes(seq, offsets[i]);
+			for (int len = 1; len <= seq.length; len++)
+				weights[i] += (long) len * (offsets[i][len] - offsets[i][len - 1]);
+		}
+	}
+
+	/**
+	 * Distinct hashes of all contiguous n-grams of the given sequence, sorted
+	 * within each length, filling in the start of each length in offsets
+	 */
+	static long[] getNgramHashes(final int[] seq, final int[] offsets) {
+		final int n = seq.length;
+
+		// The n-grams of length len start at (len-1)(2n-len+2)/2
+		final long[] hashes = new long[n * (n + 1) / 2];
+		for (int start = 0; start < n; start++) {
+			long hash = SEED;
+			int index = start;
+			for (int len = 1; len <= n - start; len++) {
+				hash = mix(hash ^ (seq[start + len - 1] * SEED));
+				hashes[index] = hash;
+				index += n - len + 1;
+			}
+		}
+
+		int size = 0;
+		for (int len = 1, from = 0; len <= n; from += n - len + 1, len++) {
+			final int to = from + n - len + 1;
+			Arrays.sort(hashes, from, to);
+			offsets[len - 1] = size;
+			hashes[size++] = hashes[from];
+			for (int k = from + 1; k < to; k++) {
+				if (hashes[k] != hashes[size - 1])
+					hashes[size++] = hashes[k];
+			}
+		}
+		offsets[n] = size;
+		return Arrays.copyOf(hashes, size);
+	}
+
+	/** 64-bit finalizer of SplitMix64 (a bijection) */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public double distance(final int i, final int j) {
+		final long[] set1 = ngrams[i];
+		final long[] set2 = ngrams[j];
+		final int[] offsets1 = offsets[i];
+		final int[] offsets2 = offsets[j];
+
+		// Total n-gram length of the intersection
+		long sizeIntersection = 0;
+		final int maxLen = Math.min(offsets1.length, offsets2.length) - 1;
+		for (int len = 1; len <= maxLen; len++) {
+			int common = 0;
+			int k1 = offsets1[len - 1], k2 = offsets2[len - 1];
+			final int end1 = offsets1[len], end2 = offsets2[len];
+			while (k1 < end1 && k2 < end2) {
+				if (set1[k1] < set2[k2]) {
+					k1++;
+				} else if (set1[k1] > set2[k2]) {
+					k2++;
+				} else {
+					common++;
+					k1++;
+					k2++;
+				}
+			}
+			if (common == 0)
+				break;
+			sizeIntersection += (long) len * common;
+		}
+
+		final double sizeUnion = weights[i] + weights[j] - sizeIntersection;
+		return sizeIntersection / sizeUnion;
+	}
+
+}
@@ -0,0 +1,258 @@
+package apimining.clustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Multimap;
+
+import apimining.upminer.NewickTreeParser;
+import apimining.upminer.WekaCompleteLinkage;
+
+public class CompleteLinkageTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static final double[] thresholds = new double[] { 0, 0.1, 0.25, 0.4, 0.5, 0.6, 0.75, 0.9, 1 };
+
+	@Test
+	public void testMatchesNaiveClustering() {
+		final Random random = new Random(1);
+		for (final int n : new int[] { 2, 3, 10, 57 }) {
+			final double[][] distances = getRandomDistances(n, random);
+
+			final Dendrogram naive = naiveCompleteLinkage(distances);
+			final Dendrogram dendrogram = CompleteLinkage.cluster(toMatrix(distances));
+
+			assertEquals(naive.getNoMerges(), dendrogram.getNoMerges());
+			for (int m = 0; m < naive.getNoMerges(); m++) {
+				assertEquals(naive.getLeft(m), dendrogram.getLeft(m));
+				assertEquals(naive.getRight(m), dendrogram.getRight(m));
+				assertEquals(naive.getHeight(m), dendrogram.getHeight(m), 0);
+			}
+			for (final double threshold : thresholds)
+				assertArrayEquals(naive.cut(threshold), dendrogram.cut(threshold));
+		}
+	}
+
+	@Test
+	public void testTiesMatchNaiveClustering() {
+		final Random random = new Random(4);
+		for (final int n : new int[] { 3, 10, 57, 200 }) {
+			for (final int noValues : new int[] { 1, 2, 5, 20 }) {
+				final double[][] distances = getTiedDistances(n, noValues, random);
+
+				final Dendrogram naive = naiveCompleteLinkage(distances);
+				final Dendrogram dendrogram = CompleteLinkage.cluster(toMatrix(distances));
+
+				for (int m = 0; m < naive.getNoMerges(); m++) {
+					assertEquals(naive.getLeft(m), dendrogram.getLeft(m));
+					assertEquals(naive.getRight(m), dendrogram.getRight(m));
+					assertEquals(naive.getHeight(m), dendrogram.getHeight(m), 0);
+				}
+				for (final double threshold : thresholds)
+					assertArrayEquals(naive.cut(threshold * noValues / 32), dendrogram.cut(threshold * noValues / 32));
+			}
+		}
+	}
+
+	@Test
+	public void testTiesMatchWeka() throws Exception {
+		final Random random = new Random(5);
+		for (final int n : new int[] { 10, 57, 150 }) {
+			for (final int noValues : new int[] { 1, 2, 5 }) {
+				final double[][] distances = getTiedDistances(n, noValues, random);
+
+				// Callers are the instance indices, calls are unused
+				final File arffFile = folder.newFile();
+				try (final PrintWriter out = new PrintWriter(arffFile, "UTF-8")) {
+					out.println("@relation calls\n\n@attribute fqCaller string\n@attribute fqCalls string\n\n@data");
+					for (int i = 0; i < n; i++)
+						out.println("'" + i + "',''");
+				}
+				final String newick = WekaCompleteLinkage.getNewick(arffFile.getPath(),
+						(i, callsI, j, callsJ) -> distances[Integer.parseInt(i)][Integer.parseInt(j)]);
+
+				final Dendrogram dendrogram = CompleteLinkage.cluster(toMatrix(distances));
+				for (final double threshold : thresholds) {
+					final int[] expected = new int[n];
+					Arrays.fill(expected, -1);
+					final Multimap<Integer, String> wekaClusters = NewickTreeParser.getClusters(newick, threshold);
+					for (final Integer cluster : wekaClusters.keySet()) {
+						for (final String name : wekaClusters.get(cluster))
+							expected[Integer.parseInt(name)] = cluster;
+					}
+					assertArrayEquals(n + " instances, " + noValues + " distances at " + threshold, expected,
+							dendrogram.cut(threshold));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCutMatchesNewickCut() {
+		final Random random = new Random(2);
+		final int n = 40;
+		final Dendrogram dendrogram = CompleteLinkage.cluster(toMatrix(getRandomDistances(n, random)));
+
+		final String[] names = new String[n];
+		for (int i = 0; i < n; i++)
+			names[i] = "caller" + i;
+		final String newick = dendrogram.toNewick(names) + ":0";
+
+		for (final double threshold : thresholds) {
+			final Multimap<Integer, String> newickClusters = NewickTreeParser.getClusters(newick, threshold);
+			final int[] expected = new int[n];
+			for (final Integer cluster : newickClusters.keySet()) {
+				for (final String name : newickClusters.get(cluster))
+					expected[Integer.parseInt(name.substring("caller".length()))] = cluster;
+			}
+			assertArrayEquals(expected, dendrogram.cut(threshold));
+		}
+	}
+
+	@Test
+	public void testSmallDatasets() {
+		assertEquals(0, CompleteLinkage.cluster(new DistanceMatrix(0)).cut(0.5).length);
+		assertArrayEquals(new int[] { -1 }, CompleteLinkage.cluster(new DistanceMatrix(1)).cut(0.5));
+
+		final DistanceMatrix distances = new DistanceMatrix(2);
+		distances.set(0, 1, 2.);
+		final Dendrogram dendrogram = CompleteLinkage.cluster(distances);
+		assertEquals(2., dendrogram.getTreeHeight(), 0);
+		// The tree height is that of the leftmost leaf's parent, i.e. zero
+		assertArrayEquals(new int[] { 0, 1 }, dendrogram.cut(0.5));
+		assertArrayEquals(new int[] { 0, 1 }, dendrogram.cut(1));
+	}
+
+	@Test
+	public void testDistanceMatrixIndex() {
+		final int n = 7;
+		final DistanceMatrix distances = DistanceMatrix.compute(n, (i, j) -> 10 * i + j);
+		long index = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				assertEquals(index++, distances.getIndex(i, j));
+				assertEquals(distances.getIndex(i, j), distances.getIndex(j, i));
+				assertEquals(10 * i + j, distances.get(j, i), 0);
+			}
+		}
+		assertEquals(DistanceMatrix.getNoEntries(n), index);
+	}
+
+	@Test
+	public void testParallelAndMappedMatrix() throws IOException {
+		final Random random = new Random(3);
+		final int n = 700;
+		final double[][] distances = getRandomDistances(n, random);
+
+		final DistanceMatrix heap = new DistanceMatrix(n);
+		heap.computeAll((i, j) -> distances[i][j], 4, null);
+		final DistanceMatrix mapped = DistanceMatrix.createMapped(n);
+		mapped.computeAll((i, j) -> distances[i][j], 3, null);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i != j) {
+					assertEquals(distances[i][j], heap.get(i, j), 0);
+					assertEquals(distances[i][j], mapped.get(i, j), 0);
+				}
+			}
+		}
+
+		assertArrayEquals(CompleteLinkage.cluster(heap).cut(0.5), CompleteLinkage.cluster(mapped).cut(0.5));
+	}
+
+	/**
+	 * Distinct random distances that are multiples of 1/32, so that they (and
+	 * their sums) are exact as doubles and in Newick format
+	 */
+	private static double[][] getRandomDistances(final int n, final Random random) {
+		final List<Integer> values = new ArrayList<>();
+		for (int k = 1; k <= n * (n - 1) / 2; k++)
+			values.add(k);
+		Collections.shuffle(values, random);
+		final double[][] distances = new double[n][n];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				distances[i][j] = values.get(k++) / 32.;
+				distances[j][i] = distances[i][j];
+			}
+		}
+		return distances;
+	}
+
+	/** Random distances from only the given number of values, so many are tied */
+	private static double[][] getTiedDistances(final int n, final int noValues, final Random random) {
+		final double[][] distances = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				distances[i][j] = (1 + random.nextInt(noValues)) / 32.;
+				distances[j][i] = distances[i][j];
+			}
+		}
+		return distances;
+	}
+
+	private static DistanceMatrix toMatrix(final double[][] distances) {
+		return DistanceMatrix.compute(distances.length, (i, j) -> distances[i][j]);
+	}
+
+	/**
+	 * Complete linkage clustering merging the closest pair of clusters at each
+	 * step, as in Weka's HierarchicalClusterer
+	 */
+	private static Dendrogram naiveCompleteLinkage(final double[][] distances) {
+		final int n = distances.length;
+		final double[][] linkage = new double[n][];
+		for (int i = 0; i < n; i++)
+			linkage[i] = distances[i].clone();
+		final boolean[] active = new boolean[n];
+		final int[] nodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			active[i] = true;
+			nodes[i] = i;
+		}
+
+		final int[] left = new int[n - 1];
+		final int[] right = new int[n - 1];
+		final double[] heights = new double[n - 1];
+		for (int m = 0; m < n - 1; m++) {
+			int min1 = -1, min2 = -1;
+			double minDistance = Double.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (active[i] && active[j] && linkage[i][j] < minDistance) {
+						minDistance = linkage[i][j];
+						min1 = i;
+						min2 = j;
+					}
+				}
+			}
+			left[m] = nodes[min1];
+			right[m] = nodes[min2];
+			heights[m] = minDistance;
+			nodes[min1] = n + m;
+			active[min2] = false;
+			for (int k = 0; k < n; k++) {
+				linkage[min1][k] = Math.max(linkage[min1][k], linkage[min2][k]);
+				linkage[k][min1] = linkage[min1][k];
+			}
+		}
+		return new Dendrogram(n, left, right, heights);
+	}
+
+}
@@ -0,0 +1,128 @@
+package apimining.clustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+
+public class DendrogramCacheTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String RECORDS = "'a.A.m','x.X.a x.X.b'\n'a.A.n','x.X.b'\n'b.B.m','y.Y.c x.X.a'\n"
+			+ "'b.B.n','y.Y.c'\n'c.C.m',''\n";
+
+	private final AtomicInteger noClusterings = new AtomicInteger();
+
+	@Test
+	public void testCutsAcrossRuns() throws IOException {
+		final File cacheFolder = folder.newFolder("cache");
+		final CallDataset dataset = read("@data\n" + RECORDS);
+		final Dendrogram dendrogram = new DendrogramCache(cacheFolder).get(dataset, "complete linkage",
+				() -> cluster(dataset));
+		assertEquals(1, noClusterings.get());
+
+		// A later run cuts the cached dendrogram at any threshold
+		final Dendrogram cached = new DendrogramCache(cacheFolder).get(dataset, "complete linkage",
+				() -> cluster(dataset));
+		assertEquals(1, noClusterings.get());
+		for (final double threshold : new double[] { 0, 0.2, 0.4, 0.6, 0.8, 1 })
+			assertArrayEquals(dendrogram.cut(threshold), cached.cut(threshold));
+		assertEquals(dendrogram.toNewick(new String[] { "a", "b", "c", "d", "e" }),
+				cached.toNewick(new String[] { "a", "b", "c", "d", "e" }));
+		assertEquals(4 + 16 * (dataset.size() - 1), cacheFolder.listFiles()[0].length());
+	}
+
+	@Test
+	public void testDatasetKey() throws IOException {
+		final DendrogramCache cache = new DendrogramCache(folder.getRoot());
+		final CallDataset dataset = read("@data\n" + RECORDS);
+		cache.get(dataset, "MAPO complete linkage", () -> cluster(dataset));
+		assertEquals(1, noClusterings.get());
+
+		// The header is not part of the key
+		final CallDataset withHeader = read("@relation calls\n@attribute fqCaller string\n"
+				+ "@attribute fqCalls string\n@data\n" + RECORDS);
+		cache.get(withHeader, "MAPO complete linkage", () -> cluster(withHeader));
+		assertEquals(1, noClusterings.get());
+
+		// Other clusterings and changed records are
+		cache.get(dataset, "UPMiner complete linkage", () -> cluster(dataset));
+		assertEquals(2, noClusterings.get());
+		final CallDataset changed = read("@data\n" + RECORDS.replace("y.Y.c x.X.a", "x.X.a y.Y.c"));
+		cache.get(changed, "MAPO complete linkage", () -> cluster(changed));
+		assertEquals(3, noClusterings.get());
+	}
+
+	@Test
+	public void testLeafCountMismatch() throws IOException {
+		final DendrogramCache cache = new DendrogramCache(folder.getRoot());
+		final CallDataset dataset = read("@data\n" + RECORDS);
+		final File entry = cache.getEntry(dataset.hash(), "complete linkage");
+		DendrogramCache.write(new Dendrogram(2, new int[] { 0 }, new int[] { 1 }, new double[] { 1. }), entry);
+
+		final Dendrogram dendrogram = cache.get(dataset, "complete linkage", () -> cluster(dataset));
+		assertEquals(1, noClusterings.get());
+		assertEquals(dataset.size(), dendrogram.getNoLeaves());
+		assertEquals(dataset.size(), DendrogramCache.read(entry).getNoLeaves());
+	}
+
+	@Test
+	public void testInvalidMerges() throws IOException {
+		final File entry = folder.newFile("entry");
+
+		// Dendrograms without merges
+		DendrogramCache.write(new Dendrogram(0, new int[0], new int[0], new double[0]), entry);
+		assertEquals(0, DendrogramCache.read(entry).getNoLeaves());
+		DendrogramCache.write(new Dendrogram(1, new int[0], new int[0], new double[0]), entry);
+		assertEquals(1, DendrogramCache.read(entry).getNoLeaves());
+
+		// Missing last merge
+		DendrogramCache.write(new Dendrogram(3, new int[] { 0, 3 }, new int[] { 1, 2 }, new double[] { 1., 2. }),
+				entry);
+		try (final RandomAccessFile file = new RandomAccessFile(entry, "rw")) {
+			file.setLength(file.length() - 16);
+		}
+		assertNull(DendrogramCache.read(entry));
+
+		// Node merged before it is created
+		DendrogramCache.write(new Dendrogram(3, new int[] { 0, 2 }, new int[] { 4, 3 }, new double[] { 1., 2. }),
+				entry);
+		assertNull(DendrogramCache.read(entry));
+
+		// Node merged twice
+		DendrogramCache.write(new Dendrogram(3, new int[] { 0, 0 }, new int[] { 1, 2 }, new double[] { 1., 2. }),
+				entry);
+		assertNull(DendrogramCache.read(entry));
+
+		// Node merged with itself
+		DendrogramCache.write(new Dendrogram(2, new int[] { 1 }, new int[] { 1 }, new double[] { 1. }), entry);
+		assertNull(DendrogramCache.read(entry));
+	}
+
+	/** Complete linkage on the number of distinct calls of the records */
+	private Dendrogram cluster(final CallDataset dataset) {
+		noClusterings.incrementAndGet();
+		return CompleteLinkage.cluster(DistanceMatrix.compute(dataset.size(),
+				(i, j) -> Math.abs(dataset.getNoCalls(i) - dataset.getNoCalls(j)) + Math.abs(i - j) / 8.));
+	}
+
+	private static CallDataset read(final String arff) {
+		return ArffCallReader.read(ByteBuffer.wrap(arff.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
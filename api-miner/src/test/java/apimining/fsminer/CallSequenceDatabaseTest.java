@@ -0,0 +1,52 @@
+package apimining.fsminer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class CallSequenceDatabaseTest {
+
+	@Test
+	public void testEncode() {
+		final CallSequenceDatabase database = new CallSequenceDatabase(
+				Arrays.asList("a.B.c a.B.d", "a.B.d x.Y.z a.B.c"));
+		assertEquals(2, database.size());
+		assertArrayEquals(new int[] { 0, 1 }, database.getSequences().get(0));
+		assertArrayEquals(new int[] { 1, 2, 0 }, database.getSequences().get(1));
+		assertEquals(Arrays.asList("a.B.d", "x.Y.z"), database.decode(new Sequence(1, 2)));
+	}
+
+	@Test
+	public void testMineAllSupports() throws IOException {
+		final List<CallSequenceDatabase> databases = Arrays.asList(new CallSequenceDatabase(Arrays.asList("a", "b")),
+				new CallSequenceDatabase(Arrays.asList("a b", "a", "b c")),
+				new CallSequenceDatabase(Arrays.asList("c")));
+		final List<Double> supports = Arrays.asList(0.1, 0.5);
+
+		// Fake algorithm returning the database size and support
+		final List<List<SortedMap<Sequence, Integer>>> freqSeqs = CallSequenceDatabase.mine(databases, supports,
+				(sequences, minSupp) -> {
+					final SortedMap<Sequence, Integer> result = new TreeMap<>((s1, s2) -> 0);
+					result.put(new Sequence((int) (10 * minSupp)), sequences.size());
+					return result;
+				});
+
+		assertEquals(supports.size(), freqSeqs.size());
+		for (int s = 0; s < supports.size(); s++) {
+			assertEquals(databases.size(), freqSeqs.get(s).size());
+			for (int d = 0; d < databases.size(); d++) {
+				final SortedMap<Sequence, Integer> result = freqSeqs.get(s).get(d);
+				assertEquals(new Sequence((int) (10 * supports.get(s))), result.firstKey());
+				assertEquals(databases.get(d).size(), (int) result.get(result.firstKey()));
+			}
+		}
+	}
+
+}
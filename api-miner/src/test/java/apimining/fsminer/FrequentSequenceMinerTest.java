@@ -0,0 +1,79 @@
+package apimining.fsminer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
+
+public class FrequentSequenceMinerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	/** Small database of sequences with repeated items */
+	private static final List<int[]> SEQUENCES = Arrays.asList(new int[] { 1, 2, 3 }, new int[] { 1, 3, 2, 3 },
+			new int[] { 2, 1, 3 }, new int[] { 1, 2 }, new int[] { 4, 1, 2, 3 }, new int[] { 3, 4 });
+
+	@Test
+	public void testPrefixSpanInMemoryMatchesSPAMFile() throws IOException {
+		final File dataset = writeDatabase(SEQUENCES);
+		for (final double minSupp : new double[] { 0.5, 0.3 }) {
+			final File saveFile = folder.newFile();
+			FrequentSequenceMiner.mineFrequentSequencesSPAM(dataset.getPath(), saveFile.getPath(), minSupp);
+			final SortedMap<Sequence, Integer> expected = FrequentSequenceMiner.readFrequentSequences(saveFile);
+			assertEquals(expected, FrequentSequenceMiner.mineFrequentSequencesPrefixSpan(SEQUENCES, minSupp));
+		}
+	}
+
+	@Test
+	public void testBIDEInMemoryMatchesBIDEFile() throws IOException {
+		final File dataset = writeDatabase(SEQUENCES);
+		for (final double minSupp : new double[] { 0.5, 0.3 }) {
+			final File saveFile = folder.newFile();
+			FrequentSequenceMiner.mineFrequentClosedSequencesBIDE(dataset.getPath(), saveFile.getPath(), minSupp);
+			final SortedMap<Sequence, Integer> expected = FrequentSequenceMiner.readFrequentSequences(saveFile);
+			assertEquals(expected, FrequentSequenceMiner.mineFrequentClosedSequencesBIDE(SEQUENCES, minSupp));
+		}
+	}
+
+	@Test
+	public void testToSequenceDatabase() {
+		final SequenceDatabase database = FrequentSequenceMiner.toSequenceDatabase(SEQUENCES);
+		assertEquals(SEQUENCES.size(), database.size());
+		for (int id = 0; id < SEQUENCES.size(); id++) {
+			final ca.pfv.spmf.input.sequence_database_list_integers.Sequence sequence = database.getSequences()
+					.get(id);
+			assertEquals(id, sequence.getId());
+			final List<List<Integer>> itemsets = new ArrayList<>();
+			for (final int item : SEQUENCES.get(id))
+				itemsets.add(Collections.singletonList(item));
+			assertEquals(itemsets, sequence.getItemsets());
+		}
+	}
+
+	/** Write the sequences in SPMF format */
+	private File writeDatabase(final List<int[]> sequences) throws IOException {
+		final File file = folder.newFile("sequences.txt");
+		try (final PrintWriter out = new PrintWriter(file)) {
+			for (final int[] items : sequences) {
+				for (final int item : items)
+					out.print(item + " -1 ");
+				out.println("-2");
+			}
+		}
+		return file;
+	}
+
+}
@@ -0,0 +1,88 @@
+package apimining.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ArffCallReaderTest {
+
+	private static final String HEADER = "@relation test\n\n@attribute fqCaller string\n@attribute fqCalls string\n\n@data\n";
+
+	@Test
+	public void testQuotedValues() {
+
+		final String arff = HEADER + "'a.B.m','x.Y.<init> x.Y.get'\n" + "% comment\n\n"
+				+ "'a.B.n(int,java.lang.String)','x.Y.get  x.Z.set'\r\n" + "'a.B.it\\'s','x.Y.<init>'\n"
+				+ "'a.B.empty',''\n";
+		final CallDataset calls = ArffCallReader.read(ByteBuffer.wrap(arff.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(4, calls.size());
+		assertEquals("a.B.m", calls.getCallerName(0));
+		assertEquals("a.B.n(int,java.lang.String)", calls.getCallerName(1));
+		assertEquals("a.B.it's", calls.getCallerName(2));
+		assertEquals(Arrays.asList("x.Y.<init>", "x.Y.get"), calls.getCallNames(0));
+		assertEquals(Arrays.asList("x.Y.get", "x.Z.set"), calls.getCallNames(1));
+		assertArrayEquals(new int[] { 0, 1 }, calls.getCalls(0));
+		assertArrayEquals(new int[] { 1, 2 }, calls.getCalls(1));
+		assertArrayEquals(new int[] { 0 }, calls.getCalls(2));
+		assertEquals(0, calls.getNoCalls(3));
+	}
+
+	@Test
+	public void testChunksAndStreaming() throws IOException {
+
+		final File arffFile = File.createTempFile("calls", ".arff");
+		arffFile.deleteOnExit();
+		final PrintWriter out = new PrintWriter(arffFile, "UTF-8");
+		out.print(HEADER);
+		for (int i = 0; i < 100_000; i++) {
+			out.print("'caller" + i % 1000 + "','");
+			for (int j = 0; j < i % 7; j++)
+				out.print("call" + (i * 31 + j) % 5000 + " ");
+			out.println("'");
+		}
+		out.close();
+
+		final CallDataset sequential = ArffCallReader.read(arffFile, 1);
+		final CallDataset parallel = ArffCallReader.read(arffFile, 4);
+
+		assertEquals(100_000, sequential.size());
+		assertEquals(sequential.size(), parallel.size());
+		assertEquals(sequential.getCallDictionary().size(), parallel.getCallDictionary().size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.getCaller(i), parallel.getCaller(i));
+			assertArrayEquals(sequential.getCalls(i), parallel.getCalls(i));
+		}
+		for (int id = 0; id < sequential.getCallDictionary().size(); id++)
+			assertEquals(sequential.getCallName(id), parallel.getCallName(id));
+		assertEquals(sequential.hash(), parallel.hash());
+
+		// Compressed file is streamed in blocks
+		final File gzFile = File.createTempFile("calls", ".arff.gz");
+		gzFile.deleteOnExit();
+		try (final OutputStream gzOut = CompressedFiles.newOutputStream(gzFile)) {
+			Files.copy(arffFile.toPath(), gzOut);
+		}
+		final CallDataset streamed = ArffCallReader.read(gzFile, 4);
+
+		assertEquals(sequential.size(), streamed.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.getCaller(i), streamed.getCaller(i));
+			assertArrayEquals(sequential.getCalls(i), streamed.getCalls(i));
+		}
+		for (int id = 0; id < sequential.getCallDictionary().size(); id++)
+			assertEquals(sequential.getCallName(id), streamed.getCallName(id));
+		assertEquals(sequential.hash(), streamed.hash());
+	}
+
+}
@@ -0,0 +1,41 @@
+package apimining.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AtomicFilesTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWrite() throws IOException {
+		final File file = new File(folder.getRoot(), "entries/ab/entry");
+		AtomicFiles.write(file, out -> out.writeInt(1));
+		AtomicFiles.write(file, out -> out.writeInt(2));
+		assertArrayEquals(new byte[] { 0, 0, 0, 2 }, Files.readAllBytes(file.toPath()));
+
+		// A failed write keeps the old file and leaves no temporary file
+		try {
+			AtomicFiles.write(file, out -> {
+				out.writeInt(3);
+				throw new IOException("disk full");
+			});
+			fail();
+		} catch (final IOException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+		assertArrayEquals(new byte[] { 0, 0, 0, 2 }, Files.readAllBytes(file.toPath()));
+		assertEquals(1, file.getParentFile().list().length);
+	}
+
+}
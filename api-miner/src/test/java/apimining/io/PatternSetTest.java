@@ -0,0 +1,75 @@
+package apimining.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import apimining.io.PatternSet.Miner;
+
+public class PatternSetTest {
+
+	@Test
+	public void testReadWrite() throws IOException {
+
+		final PatternSet.Builder builder = new PatternSet.Builder(Miner.MAPO);
+		builder.add(0, Arrays.asList("a.A.<init>", "a.A.open"), 0.5, 1.25, 10);
+		builder.add(0, Arrays.asList("a.A.open"), Double.NaN, Double.NaN, 7);
+		builder.add(3, Arrays.asList("b.B.caf\u00e9", "a.A.open", "a.A.open"), 0.125, 0.5, -1);
+
+		for (final String extension : new String[] { PatternSet.EXTENSION, PatternSet.EXTENSION + ".gz" }) {
+			final File file = File.createTempFile("FreqCallSeqs", extension);
+			file.deleteOnExit();
+			builder.write(file);
+			assertTrue(PatternSet.isBinaryFile(file));
+
+			final PatternSet patterns = PatternSet.read(file);
+			assertEquals(Miner.MAPO, patterns.getMiner());
+			assertEquals(3, patterns.size());
+			assertEquals(3, patterns.getNoCalls());
+			assertEquals(Arrays.asList("a.A.<init>", "a.A.open"), patterns.getCalls(0));
+			assertEquals(Arrays.asList("b.B.caf\u00e9", "a.A.open", "a.A.open"), patterns.getCalls(2));
+			assertArrayEquals(new int[] { 2, 1, 1 }, patterns.getItems(2));
+			assertEquals(3, patterns.getCluster(2));
+			assertEquals(0.5, patterns.getProbability(0), 0);
+			assertEquals(1.25, patterns.getInterestingness(0), 0);
+			assertTrue(Double.isNaN(patterns.getProbability(1)));
+			assertEquals(7, patterns.getSupport(1));
+			assertEquals(-1, patterns.getSupport(2));
+		}
+
+		assertEquals(new File("out", "PAM_seqs.pat.gz"), PatternSet.getBinaryFile(new File("out", "PAM_seqs.txt.gz")));
+	}
+
+	@Test
+	public void testCorruptHeader() throws IOException {
+		final PatternSet.Builder builder = new PatternSet.Builder(Miner.PAM);
+		builder.add(0, Arrays.asList("a.A.open"), 0.5, 1.25, 10);
+		final File file = File.createTempFile("FreqCallSeqs", PatternSet.EXTENSION);
+		file.deleteOnExit();
+
+		// Versions other than the current one and unknown miners are rejected
+		for (final int[] header : new int[][] { { 4, 0 }, { 4, -1 }, { 4, PatternSet.VERSION + 1 }, { 8, -1 },
+				{ 8, Miner.values().length } }) {
+			builder.write(file);
+			try (final RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+				out.seek(header[0]);
+				out.writeInt(header[1]);
+			}
+			try {
+				PatternSet.read(file);
+				fail("Read corrupt header " + Arrays.toString(header));
+			} catch (final IOException e) {
+				// expected
+			}
+		}
+	}
+
+}
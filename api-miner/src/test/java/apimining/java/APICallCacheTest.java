@@ -0,0 +1,83 @@
+package apimining.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.LinkedListMultimap;
+
+import apimining.java.JavaSources.Source;
+
+public class APICallCacheTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCacheHit() throws IOException {
+		final LinkedListMultimap<String, String> fqAPICalls = LinkedListMultimap.create();
+		fqAPICalls.put("a.A.m", "java.util.List.add");
+		fqAPICalls.put("a.A.m", "twitter4j.Twitter.getOAuthAccessToken");
+		fqAPICalls.put("a.A.n", "java.io.File.exists");
+		fqAPICalls.put("a.A.m", "twitter4j.Twitter.verifyCredentials");
+
+		final File source = folder.newFile("A.java");
+		Files.write(source.toPath(), "class A {}".getBytes("UTF-8"));
+
+		// Populate entry for the file contents, so the file is not parsed
+		final APICallCache cache = new APICallCache(folder.newFolder("cache"), null);
+		APICallCache.write(fqAPICalls, cache.getEntry(Files.readAllBytes(source.toPath())));
+
+		assertEquals(fqAPICalls, cache.getAPINames(new Source(source), ""));
+
+		final LinkedListMultimap<String, String> expected = LinkedListMultimap.create();
+		expected.put("a.A.m", "twitter4j.Twitter.getOAuthAccessToken");
+		expected.put("a.A.m", "twitter4j.Twitter.verifyCredentials");
+		assertEquals(expected, cache.getAPINames(new Source(source), "twitter4j"));
+	}
+
+	@Test
+	public void testRepeatedCaller() throws IOException {
+		// Calls of a.A.m interleaved with calls of a.A.n (e.g. anonymous class)
+		final LinkedListMultimap<String, String> fqAPICalls = LinkedListMultimap.create();
+		fqAPICalls.put("a.A.m", "java.util.List.add");
+		fqAPICalls.put("a.A.n", "java.io.File.exists");
+		fqAPICalls.put("a.A.m", "java.util.List.size");
+		fqAPICalls.put("a.A.n", "java.io.File.delete");
+		fqAPICalls.put("a.A.m", "java.util.List.clear");
+
+		final File entry = folder.newFile("entry");
+		APICallCache.write(fqAPICalls, entry);
+		final LinkedListMultimap<String, String> cached = APICallCache.read(entry);
+		assertEquals(fqAPICalls.entries(), cached.entries());
+		assertEquals(APICallCache.filter(fqAPICalls, "java.util").entries(),
+				APICallCache.filter(cached, "java.util").entries());
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		final File entry = folder.newFile("entry");
+		Files.write(entry.toPath(), new byte[] { 0, 0, 0, 5, 0 });
+		assertNull(APICallCache.read(entry));
+	}
+
+	@Test
+	public void testNamespaceVersion() throws IOException {
+		final File namespaces = folder.newFolder("namespaces");
+		new File(namespaces, "class").mkdir();
+		final String version = APICallCache.getVersion(namespaces.getPath());
+		assertEquals(version, APICallCache.getVersion(namespaces.getPath()));
+
+		Files.write(new File(namespaces, "class/twitter4j").toPath(), "twitter4j.Twitter".getBytes("UTF-8"));
+		assertNotEquals(version, APICallCache.getVersion(namespaces.getPath()));
+	}
+
+}
@@ -0,0 +1,52 @@
+package apimining.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Test;
+
+import com.google.common.collect.LinkedListMultimap;
+
+public class APICallVisitorScopeTest {
+
+	/** APICallVisitor finding variable scopes by a range search over the whole AST */
+	private static class RangeScopeAPICallVisitor extends APICallVisitor {
+
+		public RangeScopeAPICallVisitor(final CompilationUnit unit) {
+			super(unit);
+		}
+
+		@Override
+		ASTNode getCoveringBlock(final ASTNode node) {
+			return ASTVisitors.getCoveringBlock(rootNode, node);
+		}
+
+	}
+
+	@Test
+	public void testSameAPINamesAsRangeSearch() throws IOException {
+		for (final String name : new String[] { "ScopeSample.java", "AccessTokenGenerator.java" }) {
+			final File file = getTestFile(name);
+
+			final APICallVisitor expected = new RangeScopeAPICallVisitor(ASTVisitors.getAST(file));
+			expected.process();
+			final LinkedListMultimap<String, String> expectedCalls = expected.getAPINames("");
+			assertFalse(expectedCalls.isEmpty());
+
+			final APICallVisitor actual = new APICallVisitor(ASTVisitors.getAST(file));
+			actual.process();
+			assertEquals(name, expectedCalls.entries(), actual.getAPINames("").entries());
+		}
+	}
+
+	private File getTestFile(final String filename) throws IOException {
+		return new File(URLDecoder.decode(getClass().getClassLoader().getResource(filename).getPath(), "UTF-8"));
+	}
+
+}
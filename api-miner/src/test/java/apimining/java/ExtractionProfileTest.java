@@ -0,0 +1,27 @@
+package apimining.java;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ExtractionProfileTest {
+
+	@Test
+	public void testBucket() {
+		assertEquals(0, ExtractionProfile.getBucket(0));
+		assertEquals(0, ExtractionProfile.getBucket(999_999));
+		assertEquals(1, ExtractionProfile.getBucket(1_000_000));
+		assertEquals(1, ExtractionProfile.getBucket(1_999_999));
+		assertEquals(2, ExtractionProfile.getBucket(2_000_000));
+		assertEquals(2, ExtractionProfile.getBucket(3_999_999));
+		assertEquals(3, ExtractionProfile.getBucket(4_000_000));
+		assertEquals(17, ExtractionProfile.getBucket(65_536_000_000L));
+		assertEquals(17, ExtractionProfile.getBucket(Long.MAX_VALUE));
+
+		// Each bucket's time is below its label
+		assertEquals("< 1 ms", ExtractionProfile.getBucketLabel(ExtractionProfile.getBucket(999_999)));
+		assertEquals("< 4 ms", ExtractionProfile.getBucketLabel(ExtractionProfile.getBucket(3_999_999)));
+		assertEquals(">= 65536 ms", ExtractionProfile.getBucketLabel(ExtractionProfile.getBucket(Long.MAX_VALUE)));
+	}
+
+}
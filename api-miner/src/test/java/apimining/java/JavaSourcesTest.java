@@ -0,0 +1,62 @@
+package apimining.java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import apimining.java.JavaSources.Source;
+
+public class JavaSourcesTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testArchiveAndFolder() throws IOException {
+		final File project = folder.newFolder("project");
+		Files.write(new File(project, "B.java").toPath(), bytes("class B {}"));
+		Files.write(new File(project, "notes.txt").toPath(), bytes("not java"));
+
+		final File archive = new File(project, "A-sources.jar");
+		try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+			out.putNextEntry(new ZipEntry("a/"));
+			out.putNextEntry(new ZipEntry("a/A.java"));
+			out.write(bytes("class A {}"));
+			out.putNextEntry(new ZipEntry("a/A.class"));
+			out.write(new byte[] { 1, 2, 3 });
+		}
+
+		try (final JavaSources sources = JavaSources.open(project)) {
+			final List<Source> files = sources.getSources();
+			assertEquals(2, files.size());
+			assertEquals(archive.getPath() + "!/a/A.java", files.get(0).getName());
+			assertNull(files.get(0).getFile());
+			assertArrayEquals(bytes("class A {}"), files.get(0).getBytes());
+			assertEquals(new File(project, "B.java"), files.get(1).getFile());
+			assertArrayEquals(bytes("class B {}"), files.get(1).getBytes());
+		}
+
+		// Archive resolved for missing folder
+		try (final JavaSources sources = JavaSources.open(new File(project, "A-sources"))) {
+			assertEquals(1, sources.getSources().size());
+		}
+	}
+
+	private static byte[] bytes(final String contents) {
+		return contents.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
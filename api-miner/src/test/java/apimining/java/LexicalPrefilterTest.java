@@ -0,0 +1,35 @@
+package apimining.java;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class LexicalPrefilterTest {
+
+	@Test
+	public void testMatches() {
+		final LexicalPrefilter prefilter = new LexicalPrefilter("io.netty", "org.apache.hadoop", "org.apache.mahout");
+
+		assertTrue(prefilter.matches(bytes("import io.netty.buffer.ByteBuf;")));
+		assertTrue(prefilter.matches(bytes("x = new org.apache.mahout.math.DenseVector(3);")));
+		assertTrue(prefilter.matches(bytes("package org.apache.hadoop.fs;")));
+		// overlapping prefix
+		assertTrue(prefilter.matches(bytes("import org.apache.hadoo; import org.apache.hadoop.*;")));
+		assertFalse(prefilter.matches(bytes("import org.apache.commons.io.FileUtils; import io.nett;")));
+		assertFalse(prefilter.matches(new byte[0]));
+	}
+
+	@Test
+	public void testMatchAll() {
+		assertTrue(new LexicalPrefilter("").matches(bytes("class A {}")));
+		assertTrue(new LexicalPrefilter().matches(new byte[0]));
+	}
+
+	private static byte[] bytes(final String contents) {
+		return contents.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
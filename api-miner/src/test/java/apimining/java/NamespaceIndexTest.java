@@ -0,0 +1,49 @@
+package apimining.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NamespaceIndexTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testNamespaceIndex() throws IOException {
+		final File namespaces = folder.newFolder("namespaces");
+		new File(namespaces, "class").mkdir();
+		new File(namespaces, "method").mkdir();
+		Files.write(new File(namespaces, "class/twitter4j").toPath(),
+				Arrays.asList("twitter4j.Twitter", "twitter4j.auth.AccessToken"));
+		Files.write(new File(namespaces, "method/twitter4j.TwitterFactory").toPath(),
+				Arrays.asList("twitter4j.TwitterFactory.getSingleton", "twitter4j.TwitterFactory.DEFAULT"));
+
+		final NamespaceIndex index = NamespaceIndex.get(namespaces.getPath());
+		assertSame(index, NamespaceIndex.get(namespaces.getAbsolutePath()));
+
+		final Map<String, String> classes = index.getClasses("twitter4j");
+		assertEquals(2, classes.size());
+		assertEquals("twitter4j.Twitter", classes.get("Twitter"));
+		assertEquals("twitter4j.auth.AccessToken", classes.get("AccessToken"));
+		assertSame(classes, index.getClasses("twitter4j"));
+		assertNull(index.getClasses("twitter4j.auth"));
+
+		final Map<String, String> methods = index.getMethods("twitter4j.TwitterFactory");
+		assertEquals(1, methods.size());
+		assertEquals("twitter4j.TwitterFactory", methods.get("getSingleton"));
+
+		assertNull(NamespaceIndex.get(null).getClasses("twitter4j"));
+	}
+
+}
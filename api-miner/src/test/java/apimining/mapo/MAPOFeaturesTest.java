@@ -0,0 +1,80 @@
+package apimining.mapo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+
+public class MAPOFeaturesTest {
+
+	private static final String HEADER = "@relation test\n\n@attribute fqCaller string\n@attribute fqCalls string\n\n@data\n";
+
+	private static final String[] words = new String[] { "get", "Set", "parse", "HTTP", "request", "_id", "Buffer",
+			"readLine", "URL" };
+
+	@Test
+	public void testSameDistanceAsWeka() {
+		final Random random = new Random(1);
+		final List<String[]> records = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			final String caller = "org.example." + getName(random, true) + "." + getName(random, false);
+			final StringBuilder calls = new StringBuilder();
+			final int noCalls = random.nextInt(8);
+			for (int k = 0; k < noCalls; k++)
+				calls.append(k == 0 ? "" : " ").append("x.Y.call").append(random.nextInt(10));
+			records.add(new String[] { caller, calls.toString() });
+		}
+
+		final StringBuilder arff = new StringBuilder(HEADER);
+		for (final String[] record : records)
+			arff.append("'").append(record[0]).append("','").append(record[1]).append("'\n");
+		final CallDataset dataset = ArffCallReader
+				.read(ByteBuffer.wrap(arff.toString().getBytes(StandardCharsets.UTF_8)));
+
+		final MAPOFeatures features = new MAPOFeatures(dataset);
+		for (int i = 0; i < records.size(); i++) {
+			for (int j = 0; j < records.size(); j++) {
+				final double expected = APICallClustererMAPO.getDistance(records.get(i)[0], records.get(i)[1],
+						records.get(j)[0], records.get(j)[1]);
+				assertEquals(expected, features.distance(i, j), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testBitParallelEditDistance() {
+		final Random random = new Random(2);
+		final String alphabet = "abcAB_\u00e9";
+		for (int k = 0; k < 2000; k++) {
+			final String s = getRandomString(random, alphabet, random.nextInt(k < 1900 ? 12 : 80));
+			final String t = getRandomString(random, alphabet, random.nextInt(k < 1900 ? 12 : 80));
+			assertEquals(APICallClustererMAPO.editDistance(s, t), MAPOFeatures.editDistance(s, t));
+		}
+	}
+
+	private static String getRandomString(final Random random, final String alphabet, final int length) {
+		final StringBuilder sb = new StringBuilder();
+		for (int k = 0; k < length; k++)
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return sb.toString();
+	}
+
+	private static String getName(final Random random, final boolean capitalise) {
+		final StringBuilder name = new StringBuilder();
+		final int noWords = 1 + random.nextInt(3);
+		for (int k = 0; k < noWords; k++)
+			name.append(words[random.nextInt(words.length)]);
+		if (capitalise)
+			name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+
+}
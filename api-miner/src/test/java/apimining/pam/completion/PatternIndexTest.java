@@ -0,0 +1,52 @@
+package apimining.pam.completion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import apimining.pam.completion.PatternIndex.Completion;
+
+public class PatternIndexTest {
+
+	@Test
+	public void testCompletion() throws IOException {
+
+		final File patternsFile = File.createTempFile("PAM_seqs", ".txt");
+		patternsFile.deleteOnExit();
+		final PrintWriter out = new PrintWriter(patternsFile, "UTF-8");
+		out.println("prob: 0.50000\n[a.A.<init>, a.A.open, a.A.close]\n");
+		out.println("prob: 0.40000\n[a.A.open, a.A.read]\n");
+		out.println("prob: 0.40000\tint: 0.90000\n[a.A.<init>, a.A.read, a.A.open]\n");
+		out.println("prob: 0.10000\n[a.A.open]\n");
+		out.close();
+
+		final PatternIndex index = PatternIndex.load(patternsFile);
+		assertEquals(4, index.size());
+
+		// Ranked by probability then interestingness
+		List<Completion> completions = index.complete(Collections.singletonList("a.A.open"), 10);
+		assertEquals(4, completions.size());
+		assertEquals(Arrays.asList("a.A.<init>", "a.A.open", "a.A.close"), completions.get(0).getPattern());
+		assertEquals(Arrays.asList("a.A.<init>", "a.A.read", "a.A.open"), completions.get(1).getPattern());
+		assertEquals(0.9, completions.get(1).getInterestingness(), 1e-10);
+
+		// Gapped subsequence in order
+		completions = index.complete(Arrays.asList("a.A.<init>", "a.A.open"), 10);
+		assertEquals(2, completions.size());
+		completions = index.complete(Arrays.asList("a.A.open", "a.A.<init>"), 10);
+		assertTrue(completions.isEmpty());
+
+		// Top-k and unknown calls
+		assertEquals(2, index.complete(Collections.<String> emptyList(), 2).size());
+		assertTrue(index.complete(Arrays.asList("a.A.open", "b.B.unknown"), 10).isEmpty());
+	}
+
+}
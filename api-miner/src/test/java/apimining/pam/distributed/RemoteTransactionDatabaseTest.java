@@ -0,0 +1,67 @@
+package apimining.pam.distributed;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import apimining.pam.main.InferenceAlgorithms.InferGreedy;
+import apimining.pam.main.PAMCore;
+import apimining.pam.sequence.Sequence;
+import apimining.pam.transaction.Transaction;
+import apimining.pam.transaction.TransactionList;
+
+public class RemoteTransactionDatabaseTest {
+
+	@Test
+	public void testSameSequencesAsInMemory() throws IOException {
+		final File logFile = File.createTempFile("PAM", ".log");
+		logFile.deleteOnExit();
+
+		final Map<Sequence, Double> expected = PAMCore.mineInterestingSequences(getTransactions(), new InferGreedy(),
+				100, 20, logFile, null);
+
+		// Shard the same transactions across three worker JVMs
+		final TransactionList transactions = getTransactions();
+		final Map<Sequence, Double> actual;
+		try (final RemoteTransactionDatabase database = RemoteTransactionDatabase.launchLocal(3, transactions)) {
+			assertEquals(3, database.getNoWorkers());
+			actual = PAMCore.mineInterestingSequences(database,
+					PAMCore.scanTransactionsToDetermineFrequencyOfSingleItems(transactions), new InferGreedy(), 100,
+					20, logFile, null);
+		}
+
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		for (final Sequence seq : expected.keySet())
+			assertEquals(expected.get(seq), actual.get(seq), 1e-12);
+	}
+
+	/** Random transactions with a few planted call sequences */
+	private static TransactionList getTransactions() {
+		final Random random = new Random(1);
+		final int[][] planted = new int[][] { { 1, 2, 3 }, { 4, 5 }, { 6, 7, 8, 9 } };
+		final List<Transaction> transactions = new ArrayList<>();
+		for (int i = 0; i < 150; i++) {
+			final Transaction transaction = new Transaction();
+			for (final int[] seq : planted) {
+				if (random.nextInt(3) == 0) {
+					for (final int item : seq)
+						transaction.add(item);
+				}
+			}
+			for (int k = random.nextInt(4); k > 0; k--)
+				transaction.add(10 + random.nextInt(10));
+			if (transaction.size() == 0)
+				transaction.add(10);
+			transactions.add(transaction);
+		}
+		return new TransactionList(transactions);
+	}
+
+}
@@ -0,0 +1,60 @@
+package apimining.upminer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+
+public class UPMinerFeaturesTest {
+
+	private static final String HEADER = "@relation test\n\n@attribute fqCaller string\n@attribute fqCalls string\n\n@data\n";
+
+	@Test
+	public void testSameDistanceAsWeka() {
+		assertSameDistanceAsWeka(getRandomCallSeqs(60, 12, 4, new Random(1)));
+	}
+
+	@Test
+	public void testSameDistanceAsWekaLongSeqs() {
+		// Long sequences of few calls, sharing many long n-grams
+		assertSameDistanceAsWeka(getRandomCallSeqs(6, 300, 3, new Random(2)));
+	}
+
+	private static List<String> getRandomCallSeqs(final int noSeqs, final int maxCalls, final int noDistinctCalls,
+			final Random random) {
+		final List<String> callSeqs = new ArrayList<>();
+		for (int i = 0; i < noSeqs; i++) {
+			final StringBuilder calls = new StringBuilder();
+			final int noCalls = random.nextInt(maxCalls);
+			for (int k = 0; k < noCalls; k++)
+				calls.append(k == 0 ? "" : " ").append("x.Y.call").append(random.nextInt(noDistinctCalls));
+			callSeqs.add(calls.toString());
+		}
+		return callSeqs;
+	}
+
+	private static void assertSameDistanceAsWeka(final List<String> callSeqs) {
+		final StringBuilder arff = new StringBuilder(HEADER);
+		for (int i = 0; i < callSeqs.size(); i++)
+			arff.append("'a.B.m").append(i).append("','").append(callSeqs.get(i)).append("'\n");
+		final CallDataset dataset = ArffCallReader
+				.read(ByteBuffer.wrap(arff.toString().getBytes(StandardCharsets.UTF_8)));
+
+		final UPMinerFeatures features = new UPMinerFeatures(dataset);
+		for (int i = 0; i < callSeqs.size(); i++) {
+			for (int j = 0; j < callSeqs.size(); j++) {
+				final double expected = APICallClustererUPMiner.getDistance(callSeqs.get(i), callSeqs.get(j));
+				assertEquals(expected, features.distance(i, j), 0);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package apimining.upminer;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Enumeration;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import apimining.io.CompressedFiles;
+import weka.clusterers.HierarchicalClusterer;
+import weka.core.DistanceFunction;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+import weka.core.neighboursearch.PerformanceStats;
+
+/**
+ * Complete linkage clustering of API call sequences using Weka's
+ * HierarchicalClusterer, as the MAPO and UPMiner clusterers did before they
+ * cut their own dendrograms. Reference implementation for the tests (cubic in
+ * the number of sequences).
+ */
+public class WekaCompleteLinkage {
+
+	/** Distance between two (fqCaller, fqCalls) instances */
+	public interface InstanceDistance {
+		double distance(String fqCaller1, String fqCalls1, String fqCaller2, String fqCalls2);
+	}
+
+	/**
+	 * Cluster API call sequences and assign them to clusters based on the
+	 * dendrogram, i.e. seqs go to all clusters containing their caller
+	 *
+	 * @return Multimap of cluster IDs to API call sequences
+	 */
+	public static Multimap<Integer, String> clusterAPICallSeqs(final String arffFile, final double threshold,
+			final InstanceDistance distance) throws Exception {
+		final Instances data = readInstances(arffFile);
+		final String newick = getNewick(data, distance);
+		if (newick.equals("(no,clusters):0")) // Handle no clusters
+			return HashMultimap.create();
+		final Multimap<Integer, String> clusters = NewickTreeParser.getClusters(newick, threshold);
+		final Multimap<Integer, String> assignments = HashMultimap.create();
+		for (int i = 0; i < data.numInstances(); i++) {
+			for (final int id : clusters.keySet()) {
+				if (clusters.get(id).contains(data.instance(i).stringValue(0)))
+					assignments.put(id, data.instance(i).stringValue(1));
+			}
+		}
+		return assignments;
+	}
+
+	private static Instances readInstances(final String arffFile) throws Exception {
+		try (final InputStream in = CompressedFiles.newInputStream(new File(arffFile))) {
+			return new DataSource(in).getDataSet();
+		}
+	}
+
+	/** Cluster API call sequences, returning the Newick dendrogram */
+	public static String getNewick(final String arffFile, final InstanceDistance distance) throws Exception {
+		return getNewick(readInstances(arffFile), distance);
+	}
+
+	private static String getNewick(final Instances data, final InstanceDistance distance) throws Exception {
+
+		// Clusterer settings
+		final HierarchicalClusterer clusterer = new HierarchicalClusterer();
+		clusterer.setOptions(new String[] { "-L", "COMPLETE" }); // link type
+		clusterer.setDebug(true);
+		clusterer.setNumClusters(1);
+		clusterer.setDistanceFunction(new Distance(distance));
+		clusterer.setDistanceIsBranchLength(false);
+
+		clusterer.buildClusterer(data);
+		return clusterer.graph().replace("Newick:", "") + ":0";
+	}
+
+	/** Weka distance function over (fqCaller, fqCalls) instances */
+	private static class Distance implements DistanceFunction {
+
+		private final InstanceDistance distance;
+
+		public Distance(final InstanceDistance distance) {
+			this.distance = distance;
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public Enumeration listOptions() {
+			// we have no distance options
+			return null;
+		}
+
+		@Override
+		public void setOptions(final String[] options) throws Exception {
+			// we have no distance options
+		}
+
+		@Override
+		public String[] getOptions() {
+			// we have no distance options
+			return null;
+		}
+
+		@Override
+		public void setInstances(final Instances insts) {
+			// we don't use internal instances
+		}
+
+		@Override
+		public Instances getInstances() {
+			// we don't use internal instances
+			return null;
+		}
+
+		@Override
+		public void setAttributeIndices(final String value) {
+			// we use all attributes
+		}
+
+		@Override
+		public String getAttributeIndices() {
+			// we use all attributes
+			return null;
+		}
+
+		@Override
+		public void setInvertSelection(final boolean value) {
+			// we use all attributes
+		}
+
+		@Override
+		public boolean getInvertSelection() {
+			// we use all attributes
+			return false;
+		}
+
+		@Override
+		public double distance(final Instance first, final Instance second) {
+			return distance(first, second, null);
+		}
+
+		@Override
+		public double distance(final Instance first, final Instance second, final PerformanceStats stats) {
+			return distance(first, second, Double.POSITIVE_INFINITY, stats);
+		}
+
+		@Override
+		public double distance(final Instance first, final Instance second, final double cutOffValue) {
+			return distance(first, second, cutOffValue, null);
+		}
+
+		@Override
+		public double distance(final Instance first, final Instance second, final double cutOffValue,
+				final PerformanceStats stats) {
+
+			final double dist = distance.distance(first.stringValue(0), first.stringValue(1), second.stringValue(0),
+					second.stringValue(1));
+
+			if (stats != null)
+				stats.incrCoordCount();
+
+			return dist;
+		}
+
+		@Override
+		public void postProcessDistances(final double[] distances) {
+			// no need to post process distances
+		}
+
+		@Override
+		public void update(final Instance ins) {
+			// we use all attributes
+		}
+
+	}
+
+}
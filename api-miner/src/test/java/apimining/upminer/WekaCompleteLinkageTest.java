@@ -0,0 +1,113 @@
+package apimining.upminer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import apimining.clustering.Dendrogram;
+import apimining.io.ArffCallReader;
+import apimining.io.CallDataset;
+import apimining.mapo.APICallClustererMAPO;
+
+/**
+ * Check that the MAPO and UPMiner clusterers cut the same clusters and assign
+ * the same API call sequences as Weka's HierarchicalClusterer did.
+ */
+@RunWith(Parameterized.class)
+public class WekaCompleteLinkageTest {
+
+	private static final File trainFolder = new File("../datasets/calls/train");
+
+	/** Training datasets small enough for Weka's cubic clustering in every build */
+	private static final String[] smallDatasets = new String[] { "netty.arff", "hornetq.arff" };
+
+	/** Largest dataset to cluster (Weka needs two n x n double matrices) */
+	private static final int maxSize = 4000;
+
+	private static final double[] thresholds = new double[] { 0.1, 0.2, 0.4, 0.6, 0.8 };
+
+	/** Exact clustering of a dataset */
+	private interface Clusterer {
+		Dendrogram cluster(CallDataset dataset) throws IOException;
+	}
+
+	/** Clustering of an ARFF file into assignments of API call sequences */
+	private interface Assigner {
+		Multimap<Integer, String> clusterAPICallSeqs(String arffFile, double threshold) throws Exception;
+	}
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> clusterers() {
+		final Clusterer mapo = APICallClustererMAPO::cluster;
+		final Clusterer upminer = APICallClustererUPMiner::cluster;
+		final Assigner mapoAssigner = APICallClustererMAPO::clusterAPICallSeqs;
+		final Assigner upminerAssigner = APICallClustererUPMiner::clusterAPICallSeqs;
+		final WekaCompleteLinkage.InstanceDistance mapoDistance = APICallClustererMAPO::getDistance;
+		final WekaCompleteLinkage.InstanceDistance upminerDistance = (fqCaller1, fqCalls1, fqCaller2,
+				fqCalls2) -> APICallClustererUPMiner.getDistance(fqCalls1, fqCalls2);
+		return Arrays.asList(new Object[][] { { "MAPO", mapo, mapoAssigner, mapoDistance },
+				{ "UPMiner", upminer, upminerAssigner, upminerDistance } });
+	}
+
+	private final Clusterer clusterer;
+	private final Assigner assigner;
+	private final WekaCompleteLinkage.InstanceDistance distance;
+
+	public WekaCompleteLinkageTest(final String name, final Clusterer clusterer, final Assigner assigner,
+			final WekaCompleteLinkage.InstanceDistance distance) {
+		this.clusterer = clusterer;
+		this.assigner = assigner;
+		this.distance = distance;
+	}
+
+	@Test
+	public void testSmallDatasets() throws Exception {
+		for (final String name : smallDatasets) {
+			final File arffFile = new File(trainFolder, name);
+			assertSameClusters(arffFile);
+			for (final double threshold : thresholds)
+				assertEquals(name + " at " + threshold,
+						WekaCompleteLinkage.clusterAPICallSeqs(arffFile.getPath(), threshold, distance),
+						assigner.clusterAPICallSeqs(arffFile.getPath(), threshold));
+		}
+	}
+
+	@Ignore("Slow: clusters every training dataset with Weka's cubic HierarchicalClusterer")
+	@Test
+	public void testAllDatasets() throws Exception {
+		final File[] arffFiles = trainFolder.listFiles((dir, name) -> name.endsWith(".arff"));
+		Arrays.sort(arffFiles);
+		for (final File arffFile : arffFiles)
+			assertSameClusters(arffFile);
+	}
+
+	/** Assert the dendrogram cuts have the same callers as Weka's */
+	private void assertSameClusters(final File arffFile) throws Exception {
+		final CallDataset dataset = ArffCallReader.read(arffFile);
+		if (dataset.size() > maxSize)
+			return;
+		final Dendrogram dendrogram = clusterer.cluster(dataset);
+		final String newick = WekaCompleteLinkage.getNewick(arffFile.getPath(), distance);
+		for (final double threshold : thresholds) {
+			final int[] clusters = dendrogram.cut(threshold);
+			final Multimap<Integer, String> callerClusters = HashMultimap.create();
+			for (int i = 0; i < dataset.size(); i++)
+				callerClusters.put(clusters[i], dataset.getCallerName(i));
+			assertEquals(arffFile.getName() + " at " + threshold, NewickTreeParser.getClusters(newick, threshold),
+					callerClusters);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package scopes;
+
+import java.io.File;
+import java.util.*;
+
+public class ScopeSample {
+
+	private List<String> names = new ArrayList<>();
+	private File file;
+
+	public void nestedBlocks(final Map<String, Integer> counts) {
+		final StringBuilder sb = new StringBuilder();
+		{
+			final Set<String> keys = counts.keySet();
+			keys.size();
+			{
+				final Iterator<String> it = keys.iterator();
+				it.hasNext();
+				sb.append(it.next());
+			}
+		}
+		sb.toString();
+	}
+
+	public void forVariables(final List<File> files) {
+		for (int i = 0; i < files.size(); i++)
+			files.get(i).exists();
+		for (final File f : files) {
+			f.getName();
+		}
+		for (final Iterator<File> it = files.iterator(); it.hasNext();)
+			it.next().delete();
+		for (final String f : names)
+			f.trim();
+	}
+
+	public void localAndAnonymousClasses() {
+		final Random random = new Random();
+		class Local {
+			private final Date date = new Date();
+
+			long time() {
+				final Calendar date = Calendar.getInstance();
+				return date.getTimeInMillis() + random.nextLong();
+			}
+
+			long next() {
+				return date.getTime();
+			}
+		}
+		new Local().time();
+		final Runnable runnable = new Runnable() {
+			private final Calendar calendar = Calendar.getInstance();
+
+			@Override
+			public void run() {
+				calendar.getTime();
+				random.nextInt();
+				names.isEmpty();
+			}
+		};
+		runnable.run();
+	}
+
+	public void fieldAccess(final ScopeSample other) {
+		this.names.add("a");
+		names.size();
+		this.file.exists();
+		other.names.clear();
+	}
+
+	public void shadowing(final String file) {
+		file.length();
+		this.file.getName();
+		{
+			final List<Integer> names = new LinkedList<>();
+			names.add(1);
+			this.names.add("b");
+		}
+		names.clear();
+		if (file.isEmpty()) {
+			final StringBuilder file2 = new StringBuilder(file);
+			file2.reverse();
+		} else {
+			final File names = new File(file);
+			names.delete();
+		}
+	}
+
+}
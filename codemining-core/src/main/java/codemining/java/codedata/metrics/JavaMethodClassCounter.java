@@ -2,12 +2,14 @@ package codemining.java.codedata.metrics;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 
 import codemining.java.codeutils.JavaASTExtractor;
 
@@ -50,16 +52,22 @@ public final class JavaMethodClassCounter {
 		final List<File> files = (List<File>) FileUtils.listFiles(projectDir,
 				new String[] { "java" }, true);
 
-		int count = 0;
-		for (final File file : files) {
-
-			final CompilationUnit cu = astExtractor.getAST(file);
-			cu.accept(mccv);
-
-			if (count % 1000 == 0)
-				System.out.println("At file " + count + " of " + files.size());
-			count++;
-		}
+		// Parse all files through a single parser
+		astExtractor.getASTs(files, new HashSet<String>(),
+				new FileASTRequestor() {
+					private int count = 0;
+
+					@Override
+					public void acceptAST(final String sourceFilePath,
+							final CompilationUnit cu) {
+						cu.accept(mccv);
+
+						if (count % 1000 == 0)
+							System.out.println("At file " + count + " of "
+									+ files.size());
+						count++;
+					}
+				});
 
 		System.out.println("Project " + projectDir);
 		System.out.println("No. *.java files " + files.size());
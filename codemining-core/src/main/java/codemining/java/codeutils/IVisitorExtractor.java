@@ -0,0 +1,40 @@
+/**
+ *
+ */
+package codemining.java.codeutils;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+/**
+ * An extractor that collects its results with a single AST visitor, so that
+ * many extractors can share one parse and one traversal of a file (see
+ * {@link JavaMultiExtractor}).
+ *
+ * @param <T>
+ *            the type of the results
+ */
+public interface IVisitorExtractor<T> {
+
+	/**
+	 * Return a new visitor that collects the results of this extractor.
+	 */
+	ASTVisitor createVisitor();
+
+	/**
+	 * Return the results of this extractor for the given node, visiting it on
+	 * its own.
+	 */
+	default T extract(final ASTNode node) {
+		final ASTVisitor visitor = createVisitor();
+		node.accept(visitor);
+		return getResult(visitor);
+	}
+
+	/**
+	 * Return the results collected by the given visitor, created by
+	 * {@link #createVisitor()}, after it has visited the AST.
+	 */
+	T getResult(ASTVisitor visitor);
+
+}
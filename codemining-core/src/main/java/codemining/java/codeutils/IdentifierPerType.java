@@ -44,22 +44,9 @@ import com.google.common.collect.TreeRangeSet;
 public class IdentifierPerType {
 
 	private static class MethodIdentifierExtractor extends ASTVisitor {
-		final ASTNode cu;
-
 		private final Map<String, RangeSet<Integer>> identifiers = Maps
 				.newTreeMap();
 
-		public MethodIdentifierExtractor(final char[] code) throws Exception {
-			cu = (new JavaASTExtractor(false)).getBestEffortAstNode(new String(
-					code));
-			cu.accept(this);
-		}
-
-		public MethodIdentifierExtractor(final File f) throws IOException {
-			cu = (new JavaASTExtractor(false)).getAST(f);
-			cu.accept(this);
-		}
-
 		@Override
 		public boolean visit(final MethodDeclaration node) {
 			addToMap(identifiers, node, node.getName().toString());
@@ -75,22 +62,9 @@ public class IdentifierPerType {
 	}
 
 	private static class TypeIdentifierExtractor extends ASTVisitor {
-		final ASTNode cu;
-
 		private final Map<String, RangeSet<Integer>> identifiers = Maps
 				.newTreeMap();
 
-		public TypeIdentifierExtractor(final char[] code) throws Exception {
-			cu = (new JavaASTExtractor(false)).getBestEffortAstNode(new String(
-					code));
-			cu.accept(this);
-		}
-
-		public TypeIdentifierExtractor(final File f) throws IOException {
-			cu = (new JavaASTExtractor(false)).getAST(f);
-			cu.accept(this);
-		}
-
 		@Override
 		public boolean visit(final ArrayType node) {
 			addToMap(identifiers, node, node.toString());
@@ -152,22 +126,9 @@ public class IdentifierPerType {
 	}
 
 	private static class VariableIdentifierExtractor extends ASTVisitor {
-		final ASTNode cu;
-
 		private final Map<String, RangeSet<Integer>> identifiers = Maps
 				.newTreeMap();
 
-		public VariableIdentifierExtractor(final char[] code) throws Exception {
-			cu = (new JavaASTExtractor(false)).getBestEffortAstNode(new String(
-					code));
-			cu.accept(this);
-		}
-
-		public VariableIdentifierExtractor(final File f) throws IOException {
-			cu = (new JavaASTExtractor(false)).getAST(f);
-			cu.accept(this);
-		}
-
 		@Override
 		public boolean visit(final EnumConstantDeclaration node) {
 			addToMap(identifiers, node, node.getName().toString());
@@ -217,6 +178,60 @@ public class IdentifierPerType {
 
 	}
 
+	/**
+	 * Extracts the method identifiers and their ranges, e.g. to be registered
+	 * in a {@link JavaMultiExtractor}.
+	 */
+	public static final IVisitorExtractor<Map<String, RangeSet<Integer>>> METHOD_IDENTIFIERS = new IVisitorExtractor<Map<String, RangeSet<Integer>>>() {
+
+		@Override
+		public ASTVisitor createVisitor() {
+			return new MethodIdentifierExtractor();
+		}
+
+		@Override
+		public Map<String, RangeSet<Integer>> getResult(
+				final ASTVisitor visitor) {
+			return ((MethodIdentifierExtractor) visitor).identifiers;
+		}
+	};
+
+	/**
+	 * Extracts the type identifiers and their ranges, e.g. to be registered
+	 * in a {@link JavaMultiExtractor}.
+	 */
+	public static final IVisitorExtractor<Map<String, RangeSet<Integer>>> TYPE_IDENTIFIERS = new IVisitorExtractor<Map<String, RangeSet<Integer>>>() {
+
+		@Override
+		public ASTVisitor createVisitor() {
+			return new TypeIdentifierExtractor();
+		}
+
+		@Override
+		public Map<String, RangeSet<Integer>> getResult(
+				final ASTVisitor visitor) {
+			return ((TypeIdentifierExtractor) visitor).identifiers;
+		}
+	};
+
+	/**
+	 * Extracts the variable identifiers and their ranges, e.g. to be registered
+	 * in a {@link JavaMultiExtractor}.
+	 */
+	public static final IVisitorExtractor<Map<String, RangeSet<Integer>>> VARIABLE_IDENTIFIERS = new IVisitorExtractor<Map<String, RangeSet<Integer>>>() {
+
+		@Override
+		public ASTVisitor createVisitor() {
+			return new VariableIdentifierExtractor();
+		}
+
+		@Override
+		public Map<String, RangeSet<Integer>> getResult(
+				final ASTVisitor visitor) {
+			return ((VariableIdentifierExtractor) visitor).identifiers;
+		}
+	};
+
 	public static final void addToMap(
 			final Map<String, RangeSet<Integer>> identifiers,
 			final ASTNode node, final String identifier) {
@@ -245,14 +260,14 @@ public class IdentifierPerType {
 
 	public static Map<String, RangeSet<Integer>> getMethodIdentifiersRanges(
 			final char[] code) throws Exception {
-		final MethodIdentifierExtractor ex = new MethodIdentifierExtractor(code);
-		return ex.identifiers;
+		return METHOD_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getBestEffortAstNode(new String(code)));
 	}
 
 	public static Map<String, RangeSet<Integer>> getMethodIdentifiersRanges(
 			final File f) throws IOException {
-		final MethodIdentifierExtractor ex = new MethodIdentifierExtractor(f);
-		return ex.identifiers;
+		return METHOD_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getAST(f));
 	}
 
 	public static Set<String> getTypeIdentifiers(final char[] code)
@@ -267,14 +282,14 @@ public class IdentifierPerType {
 
 	public static Map<String, RangeSet<Integer>> getTypeIdentifiersRanges(
 			final char[] code) throws Exception {
-		final TypeIdentifierExtractor ex = new TypeIdentifierExtractor(code);
-		return ex.identifiers;
+		return TYPE_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getBestEffortAstNode(new String(code)));
 	}
 
 	public static Map<String, RangeSet<Integer>> getTypeIdentifiersRanges(
 			final File f) throws IOException {
-		final TypeIdentifierExtractor ex = new TypeIdentifierExtractor(f);
-		return ex.identifiers;
+		return TYPE_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getAST(f));
 	}
 
 	public static Set<String> getVariableIdentifiers(final char[] code)
@@ -289,16 +304,14 @@ public class IdentifierPerType {
 
 	public static Map<String, RangeSet<Integer>> getVariableIdentifiersRanges(
 			final char[] code) throws Exception {
-		final VariableIdentifierExtractor ex = new VariableIdentifierExtractor(
-				code);
-		return ex.identifiers;
+		return VARIABLE_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getBestEffortAstNode(new String(code)));
 	}
 
 	public static Map<String, RangeSet<Integer>> getVariableIdentifiersRanges(
 			final File f) throws IOException {
-		final VariableIdentifierExtractor ex = new VariableIdentifierExtractor(
-				f);
-		return ex.identifiers;
+		return VARIABLE_IDENTIFIERS.extract((new JavaASTExtractor(false))
+				.getAST(f));
 	}
 
 	/**
@@ -5,6 +5,7 @@ package codemining.java.codeutils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
@@ -18,6 +19,7 @@ import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 
 import codemining.java.tokenizers.JavaTokenizer;
@@ -49,6 +51,11 @@ public class JavaASTExtractor {
 
 	private final boolean useJavadocs;
 
+	/**
+	 * Compiler options, shared by all parsers of this extractor.
+	 */
+	private final Map<String, String> compilerOptions;
+
 	/**
 	 * Constructor.
 	 *
@@ -56,13 +63,21 @@ public class JavaASTExtractor {
 	 *            calculate bindings on the extracted AST.
 	 */
 	public JavaASTExtractor(final boolean useBindings) {
-		this.useBindings = useBindings;
-		useJavadocs = false;
+		this(useBindings, false);
 	}
 
 	public JavaASTExtractor(final boolean useBindings, final boolean useJavadocs) {
 		this.useBindings = useBindings;
 		this.useJavadocs = useJavadocs;
+
+		final Map<String, String> options = new Hashtable<String, String>();
+		options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM,
+				JavaCore.VERSION_1_8);
+		options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+		if (useJavadocs) {
+			options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
+		}
+		compilerOptions = options;
 	}
 
 	/**
@@ -97,14 +112,7 @@ public class JavaASTExtractor {
 		final ASTParser parser = ASTParser.newParser(AST.JLS8);
 		parser.setKind(ASTParser.K_COMPILATION_UNIT);
 
-		final Map<String, String> options = new Hashtable<String, String>();
-		options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM,
-				JavaCore.VERSION_1_8);
-		options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
-		if (useJavadocs) {
-			options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
-		}
-		parser.setCompilerOptions(options);
+		parser.setCompilerOptions(compilerOptions);
 		parser.setSource(sourceFile.toCharArray()); // set source
 		parser.setResolveBindings(useBindings);
 		parser.setBindingsRecovery(useBindings);
@@ -113,17 +121,8 @@ public class JavaASTExtractor {
 
 		parser.setUnitName(file.getAbsolutePath());
 
-		// Heuristic to retrieve source file path
-		final String srcFilePath;
-		if (file.getAbsolutePath().contains("/src")) {
-			srcFilePath = file.getAbsolutePath().substring(0,
-					file.getAbsolutePath().indexOf("src", 0) + 3);
-		} else {
-			srcFilePath = "";
-		}
-
 		// Add file to source paths if not already present
-		srcPaths.add(srcFilePath);
+		srcPaths.add(getSourcePath(file));
 
 		final String[] sourcePathEntries = srcPaths.toArray(new String[srcPaths
 				.size()]);
@@ -135,6 +134,44 @@ public class JavaASTExtractor {
 		return compilationUnit;
 	}
 
+	/**
+	 * Parse the given files in a batch through a single parser, passing each
+	 * compilation unit to the requestor as soon as it is parsed. The units
+	 * are not kept alive by the parser, so arbitrarily many files can be
+	 * streamed. The source path heuristic of {@link #getAST(File)} is applied
+	 * to all files.
+	 *
+	 * @param files
+	 * @param srcPaths
+	 *            additional source paths for binding resolution
+	 * @param requestor
+	 *            receives each file's path and compilation unit
+	 */
+	public final void getASTs(final Collection<File> files,
+			final Set<String> srcPaths, final FileASTRequestor requestor) {
+		if (files.isEmpty()) {
+			return;
+		}
+		final ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setCompilerOptions(compilerOptions);
+		parser.setResolveBindings(useBindings);
+		parser.setBindingsRecovery(useBindings);
+		parser.setStatementsRecovery(true);
+
+		final String[] sourceFilePaths = new String[files.size()];
+		final Set<String> sourcePaths = new HashSet<String>(srcPaths);
+		int i = 0;
+		for (final File file : files) {
+			sourceFilePaths[i++] = file.getAbsolutePath();
+			sourcePaths.add(getSourcePath(file));
+		}
+		parser.setEnvironment(new String[0],
+				sourcePaths.toArray(new String[sourcePaths.size()]), null, true);
+
+		parser.createASTs(sourceFilePaths, null, new String[0], requestor, null);
+	}
+
 	/**
 	 * Get a compilation unit of the given file content.
 	 *
@@ -176,14 +213,7 @@ public class JavaASTExtractor {
 		}
 		parser.setKind(astKind);
 
-		final Map<String, String> options = new Hashtable<String, String>();
-		options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM,
-				JavaCore.VERSION_1_8);
-		options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
-		if (useJavadocs) {
-			options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
-		}
-		parser.setCompilerOptions(options);
+		parser.setCompilerOptions(compilerOptions);
 		parser.setSource(content); // set source
 		parser.setResolveBindings(useBindings);
 		parser.setBindingsRecovery(useBindings);
@@ -242,6 +272,18 @@ public class JavaASTExtractor {
 		return getBestEffortAstNode(fileContent.toCharArray());
 	}
 
+	/**
+	 * Heuristic to retrieve the source path of a file.
+	 */
+	private static String getSourcePath(final File file) {
+		if (file.getAbsolutePath().contains("/src")) {
+			return file.getAbsolutePath().substring(0,
+					file.getAbsolutePath().indexOf("src", 0) + 3);
+		} else {
+			return "";
+		}
+	}
+
 	private final MethodDeclaration getFirstMethodDeclaration(final ASTNode node) {
 		final TopMethodRetriever visitor = new TopMethodRetriever();
 		node.accept(visitor);
@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package codemining.java.codeutils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+import codemining.languagetools.ParseType;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Run any number of registered extractors on a file with a single parse and a
+ * single traversal of its AST (see {@link MultiASTVisitor}), keeping the
+ * results of each extractor separately.
+ */
+public class JavaMultiExtractor {
+
+	/**
+	 * The results of each registered extractor.
+	 */
+	public static final class Results {
+
+		private final Map<IVisitorExtractor<?>, Object> results = new IdentityHashMap<IVisitorExtractor<?>, Object>();
+
+		@SuppressWarnings("unchecked")
+		public <T> T get(final IVisitorExtractor<T> extractor) {
+			checkArgument(results.containsKey(extractor),
+					"Extractor is not registered");
+			return (T) results.get(extractor);
+		}
+	}
+
+	private final JavaASTExtractor astExtractor;
+
+	private final List<IVisitorExtractor<?>> extractors = Lists
+			.newArrayList();
+
+	/**
+	 * @param useBindings
+	 *            calculate bindings on the parsed ASTs (e.g. for
+	 *            {@link codemining.java.codeutils.binding.JavaExactVariableBindingsExtractor}
+	 *            )
+	 */
+	public JavaMultiExtractor(final boolean useBindings) {
+		astExtractor = new JavaASTExtractor(useBindings);
+	}
+
+	/**
+	 * Run all extractors on the given node in a single traversal.
+	 */
+	public Results extract(final ASTNode node) {
+		final List<ASTVisitor> visitors = Lists.newArrayList();
+		for (final IVisitorExtractor<?> extractor : extractors) {
+			visitors.add(extractor.createVisitor());
+		}
+		node.accept(new MultiASTVisitor(visitors));
+
+		final Results results = new Results();
+		for (int i = 0; i < extractors.size(); i++) {
+			results.results.put(extractors.get(i),
+					extractors.get(i).getResult(visitors.get(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * Parse the given file once and run all extractors on it.
+	 */
+	public Results extract(final File file) throws IOException {
+		return extract(astExtractor.getAST(file));
+	}
+
+	/**
+	 * Parse the given code once and run all extractors on it.
+	 */
+	public Results extract(final String code, final ParseType parseType) {
+		return extract(astExtractor.getAST(code, parseType));
+	}
+
+	/**
+	 * Register an extractor to run on each file.
+	 *
+	 * @return this, for chaining
+	 */
+	public JavaMultiExtractor register(final IVisitorExtractor<?> extractor) {
+		extractors.add(extractor);
+		return this;
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package codemining.java.codeutils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An AST visitor that runs any number of visitors in a single traversal of
+ * the AST. Each visitor receives exactly the calls (preVisit2, visit, endVisit
+ * and postVisit) it would receive if it visited the AST on its own, including
+ * skipping the children of nodes it returns false for, so the visitors keep
+ * their results separately.
+ */
+public class MultiASTVisitor extends ASTVisitor {
+
+	private static final MethodType VISIT_TYPE = MethodType.methodType(
+			boolean.class, ASTVisitor.class, ASTNode.class);
+
+	private static final MethodType END_VISIT_TYPE = MethodType.methodType(
+			void.class, ASTVisitor.class, ASTNode.class);
+
+	/**
+	 * The type-specific visit/endVisit methods of ASTVisitor, per node type.
+	 */
+	private static final Map<Integer, MethodHandle> visitMethods = new ConcurrentHashMap<Integer, MethodHandle>();
+
+	private static final Map<Integer, MethodHandle> endVisitMethods = new ConcurrentHashMap<Integer, MethodHandle>();
+
+	private static MethodHandle findMethod(final int nodeType,
+			final String name, final MethodType type) {
+		final Class<?> nodeClass = ASTNode.nodeClassForType(nodeType);
+		try {
+			return MethodHandles
+					.publicLookup()
+					.findVirtual(ASTVisitor.class, name,
+							MethodType.methodType(type.returnType(), nodeClass))
+					.asType(type);
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("No ASTVisitor." + name
+					+ " method for " + nodeClass.getName(), e);
+		}
+	}
+
+	private static MethodHandle getEndVisitMethod(final int nodeType) {
+		MethodHandle method = endVisitMethods.get(nodeType);
+		if (method == null) {
+			method = findMethod(nodeType, "endVisit", END_VISIT_TYPE);
+			endVisitMethods.put(nodeType, method);
+		}
+		return method;
+	}
+
+	private static MethodHandle getVisitMethod(final int nodeType) {
+		MethodHandle method = visitMethods.get(nodeType);
+		if (method == null) {
+			method = findMethod(nodeType, "visit", VISIT_TYPE);
+			visitMethods.put(nodeType, method);
+		}
+		return method;
+	}
+
+	private final List<ASTVisitor> visitors;
+
+	/**
+	 * The node at which each visitor stopped descending, null while it visits
+	 * the current node's children.
+	 */
+	private final ASTNode[] prunedAt;
+
+	/**
+	 * Whether each visitor's preVisit2 returned false at the node where it
+	 * stopped, so it doesn't get endVisit either.
+	 */
+	private final boolean[] skippedAt;
+
+	/**
+	 * @param visitors
+	 *            the visitors to run, called in the given order at each node.
+	 */
+	public MultiASTVisitor(final List<? extends ASTVisitor> visitors) {
+		super(true); // each visitor decides whether to visit Javadoc tags
+		this.visitors = ImmutableList.copyOf(visitors);
+		prunedAt = new ASTNode[this.visitors.size()];
+		skippedAt = new boolean[this.visitors.size()];
+	}
+
+	public List<ASTVisitor> getVisitors() {
+		return visitors;
+	}
+
+	@Override
+	public void postVisit(final ASTNode node) {
+		for (int i = 0; i < prunedAt.length; i++) {
+			if (prunedAt[i] != null && prunedAt[i] != node) {
+				continue;
+			}
+			final ASTVisitor visitor = visitors.get(i);
+			if (!skippedAt[i]) {
+				try {
+					getEndVisitMethod(node.getNodeType()).invokeExact(visitor,
+							node);
+				} catch (final RuntimeException | Error e) {
+					throw e;
+				} catch (final Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			visitor.postVisit(node);
+			prunedAt[i] = null;
+			skippedAt[i] = false;
+		}
+	}
+
+	@Override
+	public boolean preVisit2(final ASTNode node) {
+		boolean visitChildren = false;
+		for (int i = 0; i < prunedAt.length; i++) {
+			if (prunedAt[i] != null) {
+				continue;
+			}
+			final ASTVisitor visitor = visitors.get(i);
+			if (!visitor.preVisit2(node)) {
+				prunedAt[i] = node;
+				skippedAt[i] = true;
+				continue;
+			}
+			final boolean visit;
+			try {
+				visit = (boolean) getVisitMethod(node.getNodeType())
+						.invokeExact(visitor, node);
+			} catch (final RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new IllegalStateException(e);
+			}
+			if (visit) {
+				visitChildren = true;
+			} else {
+				prunedAt[i] = node;
+			}
+		}
+		return visitChildren;
+	}
+
+}
@@ -190,9 +190,30 @@ public class UsagePointExtractor {
 	public static List<ASTNode> usagePoints(final String qualifiedName,
 			final File f) throws IOException {
 		final JavaASTExtractor ex = new JavaASTExtractor(false);
-		final UsageExtractor usageExtractor = new UsageExtractor(qualifiedName);
-		ex.getAST(f).accept(usageExtractor);
-		return usageExtractor.interestingNodes;
+		return usagePointExtractor(qualifiedName).extract(ex.getAST(f));
+	}
+
+	/**
+	 * Return an extractor of the usage points of the given class or package,
+	 * e.g. to be registered in a {@link JavaMultiExtractor}.
+	 * 
+	 * @param qualifiedName
+	 *            the fully qualified name of the class or the package
+	 */
+	public static IVisitorExtractor<List<ASTNode>> usagePointExtractor(
+			final String qualifiedName) {
+		return new IVisitorExtractor<List<ASTNode>>() {
+
+			@Override
+			public ASTVisitor createVisitor() {
+				return new UsageExtractor(qualifiedName);
+			}
+
+			@Override
+			public List<ASTNode> getResult(final ASTVisitor visitor) {
+				return ((UsageExtractor) visitor).interestingNodes;
+			}
+		};
 	}
 
 }
@@ -13,6 +13,7 @@ import java.util.function.Predicate;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.dom.ASTNode;
 
+import codemining.java.codeutils.IVisitorExtractor;
 import codemining.java.codeutils.JavaASTExtractor;
 import codemining.languagetools.ITokenizer;
 import codemining.languagetools.ITokenizer.FullToken;
@@ -32,7 +33,8 @@ import com.google.common.collect.Sets;
  *
  */
 public abstract class AbstractJavaNameBindingsExtractor extends
-		AbstractNameBindingsExtractor {
+		AbstractNameBindingsExtractor implements
+		IVisitorExtractor<Set<Set<ASTNode>>> {
 
 	/**
 	 * Return the token index for the given position.
@@ -70,7 +72,9 @@ public abstract class AbstractJavaNameBindingsExtractor extends
 	 * @param node
 	 * @return
 	 */
-	public abstract Set<Set<ASTNode>> getNameBindings(final ASTNode node);
+	public Set<Set<ASTNode>> getNameBindings(final ASTNode node) {
+		return extract(node);
+	}
 
 	public final List<TokenNameBinding> getNameBindings(final ASTNode node,
 			final File file) throws IOException {
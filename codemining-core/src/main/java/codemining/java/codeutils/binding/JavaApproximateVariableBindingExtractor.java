@@ -191,9 +191,13 @@ public class JavaApproximateVariableBindingExtractor extends
 	}
 
 	@Override
-	public Set<Set<ASTNode>> getNameBindings(final ASTNode node) {
-		final VariableBindingFinder bindingFinder = new VariableBindingFinder();
-		node.accept(bindingFinder);
+	public ASTVisitor createVisitor() {
+		return new VariableBindingFinder();
+	}
+
+	@Override
+	public Set<Set<ASTNode>> getResult(final ASTVisitor visitor) {
+		final VariableBindingFinder bindingFinder = (VariableBindingFinder) visitor;
 
 		final Set<Set<ASTNode>> nameBindings = Sets.newHashSet();
 		for (final Entry<Integer, List<ASTNode>> variableBindings : bindingFinder.variableBinding
@@ -169,9 +169,13 @@ public class JavaExactVariableBindingsExtractor extends
 	}
 
 	@Override
-	public Set<Set<ASTNode>> getNameBindings(final ASTNode node) {
-		final VariableBindingFinder bindingFinder = new VariableBindingFinder();
-		node.accept(bindingFinder);
+	public ASTVisitor createVisitor() {
+		return new VariableBindingFinder();
+	}
+
+	@Override
+	public Set<Set<ASTNode>> getResult(final ASTVisitor visitor) {
+		final VariableBindingFinder bindingFinder = (VariableBindingFinder) visitor;
 
 		final Set<Set<ASTNode>> nameBindings = Sets.newHashSet();
 		for (final Entry<IVariableBinding, List<ASTNode>> variableBindings : bindingFinder.variableScope
@@ -85,9 +85,13 @@ public class JavaMethodInvocationBindingExtractor extends
 	}
 
 	@Override
-	public Set<Set<ASTNode>> getNameBindings(final ASTNode node) {
-		final MethodBindings mb = new MethodBindings();
-		node.accept(mb);
+	public ASTVisitor createVisitor() {
+		return new MethodBindings();
+	}
+
+	@Override
+	public Set<Set<ASTNode>> getResult(final ASTVisitor visitor) {
+		final MethodBindings mb = (MethodBindings) visitor;
 
 		final Set<Set<ASTNode>> nameBindings = Sets.newHashSet();
 		for (final Entry<String, ASTNode> entry : mb.methodNamePostions
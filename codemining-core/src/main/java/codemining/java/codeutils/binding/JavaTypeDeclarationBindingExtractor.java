@@ -173,9 +173,13 @@ public class JavaTypeDeclarationBindingExtractor extends
 	}
 
 	@Override
-	public Set<Set<ASTNode>> getNameBindings(final ASTNode node) {
-		final ClassnameFinder finder = new ClassnameFinder();
-		node.accept(finder);
+	public ASTVisitor createVisitor() {
+		return new ClassnameFinder();
+	}
+
+	@Override
+	public Set<Set<ASTNode>> getResult(final ASTVisitor visitor) {
+		final ClassnameFinder finder = (ClassnameFinder) visitor;
 
 		final Set<Set<ASTNode>> nameBindings = Sets.newHashSet();
 		for (final String typeName : finder.classNamePostions.keySet()) {
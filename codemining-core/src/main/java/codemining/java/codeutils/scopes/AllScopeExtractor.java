@@ -10,7 +10,11 @@ import java.io.IOException;
 import java.util.List;
 
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
 
+import codemining.java.codeutils.IVisitorExtractor;
+import codemining.java.codeutils.JavaASTExtractor;
+import codemining.java.codeutils.MultiASTVisitor;
 import codemining.languagetools.IScopeExtractor;
 import codemining.languagetools.ParseType;
 import codemining.languagetools.Scope;
@@ -20,7 +24,8 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
 
 /**
- * Aggregate all extractors.
+ * Aggregate all extractors. The code is parsed once and all extractors run in
+ * a single traversal of the AST.
  * 
  * @author Miltos Allamanis <m.allamanis@ed.ac.uk>
  * 
@@ -28,7 +33,7 @@ import com.google.common.collect.TreeMultimap;
 public class AllScopeExtractor {
 
 	public static final class AllScopeSnippetExtractor implements
-			IScopeExtractor {
+			IScopeExtractor, IVisitorExtractor<Multimap<Scope, String>> {
 
 		public AllScopeSnippetExtractor() {
 			allExtractors = Lists.newArrayList();
@@ -63,33 +68,43 @@ public class AllScopeExtractor {
 			}
 		}
 
-		private final List<IScopeExtractor> allExtractors;
+		private final List<IVisitorExtractor<Multimap<Scope, String>>> allExtractors;
+
+		@Override
+		public ASTVisitor createVisitor() {
+			final List<ASTVisitor> visitors = Lists.newArrayList();
+			for (final IVisitorExtractor<Multimap<Scope, String>> extractor : allExtractors) {
+				visitors.add(extractor.createVisitor());
+			}
+			return new MultiASTVisitor(visitors);
+		}
 
 		@Override
 		public Multimap<Scope, String> getFromFile(final File file)
 				throws IOException {
-			final Multimap<Scope, String> scopes = TreeMultimap.create();
-			for (final IScopeExtractor extractor : allExtractors) {
-				scopes.putAll(extractor.getFromFile(file));
-			}
-			return scopes;
+			final JavaASTExtractor ex = new JavaASTExtractor(false);
+			return getFromNode(ex.getAST(file));
 		}
 
 		@Override
-		public Multimap<Scope, String> getFromNode(ASTNode node) {
-			final Multimap<Scope, String> scopes = TreeMultimap.create();
-			for (final IScopeExtractor extractor : allExtractors) {
-				scopes.putAll(extractor.getFromNode(node));
-			}
-			return scopes;
+		public Multimap<Scope, String> getFromNode(final ASTNode node) {
+			return extract(node);
 		}
 
 		@Override
 		public Multimap<Scope, String> getFromString(final String file,
 				final ParseType parseType) {
+			final JavaASTExtractor ex = new JavaASTExtractor(false);
+			return getFromNode(ex.getAST(file, parseType));
+		}
+
+		@Override
+		public Multimap<Scope, String> getResult(final ASTVisitor visitor) {
+			final List<ASTVisitor> visitors = ((MultiASTVisitor) visitor)
+					.getVisitors();
 			final Multimap<Scope, String> scopes = TreeMultimap.create();
-			for (final IScopeExtractor extractor : allExtractors) {
-				scopes.putAll(extractor.getFromString(file, parseType));
+			for (int i = 0; i < allExtractors.size(); i++) {
+				scopes.putAll(allExtractors.get(i).getResult(visitors.get(i)));
 			}
 			return scopes;
 		}
@@ -14,6 +14,7 @@ import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
+import codemining.java.codeutils.IVisitorExtractor;
 import codemining.java.codeutils.JavaASTExtractor;
 import codemining.languagetools.IScopeExtractor;
 import codemining.languagetools.ParseType;
@@ -59,7 +60,7 @@ public class MethodScopeExtractor {
 	}
 
 	public static final class MethodScopeSnippetExtractor implements
-			IScopeExtractor {
+			IScopeExtractor, IVisitorExtractor<Multimap<Scope, String>> {
 
 		final boolean methodAsRoots;
 
@@ -67,6 +68,11 @@ public class MethodScopeExtractor {
 			methodAsRoots = useMethodsAsRoots;
 		}
 
+		@Override
+		public ASTVisitor createVisitor() {
+			return new ScopeFinder(methodAsRoots);
+		}
+
 		@Override
 		public final Multimap<Scope, String> getFromFile(final File f) {
 			try {
@@ -89,6 +95,11 @@ public class MethodScopeExtractor {
 				final ParseType parseType) {
 			return getScopeSnippets(code, methodAsRoots, parseType);
 		}
+
+		@Override
+		public Multimap<Scope, String> getResult(final ASTVisitor visitor) {
+			return getScopeSnippets((ScopeFinder) visitor);
+		}
 	}
 
 	private static class ScopeFinder extends ASTVisitor {
@@ -159,7 +170,11 @@ public class MethodScopeExtractor {
 			final boolean methodAsRoots) {
 		final ScopeFinder scopeFinder = new ScopeFinder(methodAsRoots);
 		node.accept(scopeFinder);
+		return getScopeSnippets(scopeFinder);
+	}
 
+	private static Multimap<Scope, String> getScopeSnippets(
+			final ScopeFinder scopeFinder) {
 		final Multimap<Scope, String> scopes = TreeMultimap.create();
 		for (final Entry<ASTNode, Method> method : scopeFinder.methods
 				.entries()) {
@@ -20,6 +20,7 @@ import org.eclipse.jdt.core.dom.TypeLiteral;
 import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
+import codemining.java.codeutils.IVisitorExtractor;
 import codemining.java.codeutils.JavaASTExtractor;
 import codemining.languagetools.IScopeExtractor;
 import codemining.languagetools.ParseType;
@@ -160,7 +161,7 @@ public class TypenameScopeExtractor {
 	}
 
 	public static final class TypenameSnippetExtractor implements
-			IScopeExtractor {
+			IScopeExtractor, IVisitorExtractor<Multimap<Scope, String>> {
 
 		private final boolean methodsAsRoots;
 
@@ -168,9 +169,18 @@ public class TypenameScopeExtractor {
 			methodsAsRoots = useMethodsAsRoots;
 		}
 
+		@Override
+		public ASTVisitor createVisitor() {
+			return new ClassnameFinder(methodsAsRoots);
+		}
+
 		private Multimap<Scope, String> getClassnames(final ASTNode node) {
-			final ClassnameFinder cf = new ClassnameFinder(methodsAsRoots);
-			node.accept(cf);
+			return extract(node);
+		}
+
+		@Override
+		public Multimap<Scope, String> getResult(final ASTVisitor visitor) {
+			final ClassnameFinder cf = (ClassnameFinder) visitor;
 
 			final Multimap<Scope, String> classnames = TreeMultimap.create();
 
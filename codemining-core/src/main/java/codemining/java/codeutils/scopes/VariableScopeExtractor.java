@@ -16,6 +16,7 @@ import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
+import codemining.java.codeutils.IVisitorExtractor;
 import codemining.java.codeutils.JavaASTExtractor;
 import codemining.languagetools.IScopeExtractor;
 import codemining.languagetools.ParseType;
@@ -182,7 +183,13 @@ public class VariableScopeExtractor {
 	}
 
 	public static final class VariableScopeSnippetExtractor implements
-			IScopeExtractor {
+			IScopeExtractor, IVisitorExtractor<Multimap<Scope, String>> {
+
+		@Override
+		public ASTVisitor createVisitor() {
+			return new VariableScopeFinder();
+		}
+
 		@Override
 		public Multimap<Scope, String> getFromFile(final File f)
 				throws IOException {
@@ -199,6 +206,11 @@ public class VariableScopeExtractor {
 				final ParseType parseType) {
 			return getScopeSnippets(code, parseType);
 		}
+
+		@Override
+		public Multimap<Scope, String> getResult(final ASTVisitor visitor) {
+			return getScopeSnippets((VariableScopeFinder) visitor);
+		}
 	}
 
 	private static final Logger LOGGER = Logger
@@ -229,7 +241,15 @@ public class VariableScopeExtractor {
 	public static Multimap<Scope, String> getScopeSnippets(final ASTNode cu) {
 		final VariableScopeFinder scopeFinder = new VariableScopeFinder();
 		cu.accept(scopeFinder);
+		return getScopeSnippets(scopeFinder);
+	}
 
+	/**
+	 * Return a multimap containing all the (local) variables found by the
+	 * given scope finder.
+	 */
+	private static Multimap<Scope, String> getScopeSnippets(
+			final VariableScopeFinder scopeFinder) {
 		final Multimap<Scope, String> scopes = TreeMultimap.create();
 		for (final Entry<ASTNode, Variable> variable : scopeFinder.variableScopes
 				.entries()) {
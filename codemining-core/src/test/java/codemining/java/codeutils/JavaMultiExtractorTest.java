@@ -0,0 +1,86 @@
+package codemining.java.codeutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import codemining.java.codeutils.binding.JavaApproximateVariableBindingExtractor;
+import codemining.java.codeutils.binding.JavaMethodInvocationBindingExtractor;
+import codemining.java.codeutils.scopes.AllScopeExtractor.AllScopeSnippetExtractor;
+import codemining.java.codeutils.scopes.VariableScopeExtractor.VariableScopeSnippetExtractor;
+import codemining.languagetools.Scope;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.RangeSet;
+
+public class JavaMultiExtractorTest {
+
+	File classContent;
+
+	@Before
+	public void setUp() throws IOException {
+		classContent = new File(JavaAstExtractorTest.class.getClassLoader()
+				.getResource("SampleClass.txt").getFile());
+	}
+
+	@Test
+	public void testSameResultsAsSeparateTraversals() throws IOException {
+		final ASTNode cu = new JavaASTExtractor(false).getAST(classContent);
+
+		final VariableScopeSnippetExtractor variableScopes = new VariableScopeSnippetExtractor();
+		final AllScopeSnippetExtractor allScopes = new AllScopeSnippetExtractor();
+		final JavaApproximateVariableBindingExtractor variableBindings = new JavaApproximateVariableBindingExtractor();
+		final JavaMethodInvocationBindingExtractor methodBindings = new JavaMethodInvocationBindingExtractor();
+		final IVisitorExtractor<List<ASTNode>> usagePoints = UsagePointExtractor
+				.usagePointExtractor("java.util.List");
+
+		final JavaMultiExtractor multiExtractor = new JavaMultiExtractor(false);
+		multiExtractor.register(variableScopes).register(allScopes)
+				.register(variableBindings).register(methodBindings)
+				.register(usagePoints)
+				.register(IdentifierPerType.METHOD_IDENTIFIERS)
+				.register(IdentifierPerType.TYPE_IDENTIFIERS)
+				.register(IdentifierPerType.VARIABLE_IDENTIFIERS);
+		final JavaMultiExtractor.Results results = multiExtractor.extract(cu);
+
+		final Multimap<Scope, String> scopes = results.get(variableScopes);
+		assertFalse(scopes.isEmpty());
+		assertEquals(variableScopes.getFromNode(cu), scopes);
+		assertEquals(allScopes.getFromNode(cu), results.get(allScopes));
+
+		final Set<Set<ASTNode>> bindings = results.get(variableBindings);
+		assertFalse(bindings.isEmpty());
+		assertEquals(variableBindings.getNameBindings(cu), bindings);
+		assertEquals(methodBindings.getNameBindings(cu),
+				results.get(methodBindings));
+		assertEquals(usagePoints.extract(cu), results.get(usagePoints));
+
+		final Map<String, RangeSet<Integer>> methodIds = results
+				.get(IdentifierPerType.METHOD_IDENTIFIERS);
+		assertFalse(methodIds.isEmpty());
+		assertEquals(IdentifierPerType.METHOD_IDENTIFIERS.extract(cu),
+				methodIds);
+		assertEquals(IdentifierPerType.TYPE_IDENTIFIERS.extract(cu),
+				results.get(IdentifierPerType.TYPE_IDENTIFIERS));
+		assertEquals(IdentifierPerType.VARIABLE_IDENTIFIERS.extract(cu),
+				results.get(IdentifierPerType.VARIABLE_IDENTIFIERS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnregisteredExtractor() throws IOException {
+		final JavaMultiExtractor multiExtractor = new JavaMultiExtractor(false)
+				.register(IdentifierPerType.METHOD_IDENTIFIERS);
+		multiExtractor.extract(classContent).get(
+				IdentifierPerType.TYPE_IDENTIFIERS);
+	}
+
+}